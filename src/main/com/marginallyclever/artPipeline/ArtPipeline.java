@@ -1,15 +1,19 @@
 package com.marginallyclever.artPipeline;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 
 import javax.swing.JOptionPane;
-import javax.vecmath.Vector2d;
 
 import com.marginallyclever.convenience.Clipper2D;
 import com.marginallyclever.convenience.ColorRGB;
+import com.marginallyclever.convenience.CurveFlattener;
 import com.marginallyclever.convenience.LineSegment2D;
 import com.marginallyclever.convenience.MathHelper;
 import com.marginallyclever.convenience.Point2D;
+import com.marginallyclever.convenience.PolylineSimplifier;
 import com.marginallyclever.convenience.log.Log;
 import com.marginallyclever.convenience.turtle.Turtle;
 import com.marginallyclever.convenience.turtle.TurtleMove;
@@ -93,48 +97,6 @@ public void reorder(Turtle turtle, MakelangeloRobotSettings settings) {
 		System.out.println("reorder() end");
 	}
 
-	private ArrayList<LineSegment2D> removeVeryShortSegments(ArrayList<LineSegment2D> toTest, double d) {
-		ArrayList<LineSegment2D> toKeep = new ArrayList<LineSegment2D>();
-		int count = toTest.size();
-		if(count==0) return toKeep;
-		
-		toKeep.add(toTest.get(0));
-		LineSegment2D first = toKeep.get(toKeep.size()-1); 
-
-		for(int i=1;i<count;++i) {
-			LineSegment2D second = toTest.get(i);
-			// sequential with no jump?
-			if(lengthSquared(first.b,second.a)<d) {
-				// very short?
-				if(lengthSquared(second.a,second.b)<d) {
-					first.b=second.b;
-					continue;
-				}
-
-				// colinear?
-				Vector2d firstN = makeUnitVectorFromLineSegment(first);
-				Vector2d secondN = makeUnitVectorFromLineSegment(second);
-				if(firstN.dot(secondN)>0.9999) {
-					first.b=second.b;
-					continue;
-				}
-				second.a=first.b;
-			}
-			
-			toKeep.add(second);
-			first = second;
-		}
-		return toKeep;
-	}
-
-	private Vector2d makeUnitVectorFromLineSegment(LineSegment2D line) {
-		Vector2d n = new Vector2d();
-		n.x = line.b.x - line.a.x;
-		n.y = line.b.y - line.a.y;
-		n.normalize();
-		return n;
-	}
-
 	private Turtle convertLinesToTurtle(ArrayList<LineSegment2D> orderedLines,double epsilon) {
 		Turtle t = new Turtle();
 		if(orderedLines.isEmpty()) return t;
@@ -310,9 +272,9 @@ public boolean thesePointsAreTheSame(Point2D a,Point2D b,double epsilon) {
 	}
 	
 	/**
-	 * Offers to optimize your gcode by chopping out very short line segments.
-	 * It travels the entire path and drops any pen-down segment shorter than 
-	 * minimumStepSize.
+	 * Offers to optimize your gcode by dropping points that don't change the drawing.
+	 * Every pen-down polyline is simplified with Ramer-Douglas-Peucker, no further from the original than the pen
+	 * could show.
 	 * @param turtle
 	 * @param settings
 	 */
@@ -320,22 +282,133 @@ public void simplify(Turtle turtle, MakelangeloRobotSettings settings) {
 		System.out.println("simplify() begin");
 
 		int os = turtle.history.size();
+		PolylineSimplifier.simplify(turtle, CurveFlattener.getTolerance(settings.getPenDiameter()));
+		int ns = turtle.history.size();
 		
+		System.out.println("simplify() end (was "+os+" is now "+ns+")");
+	}
+
+	/**
+	 * Joins pen-down segments of the same color that lie end to end or overlap on one line, wherever they are in the
+	 * history.  Grids, mazes and fills become a few long strokes instead of many short ones.
+	 * Segments are hashed by the line they lie on, so this takes about n log n time.
+	 * @param turtle
+	 * @param settings
+	 */
+	public void mergeCollinear(Turtle turtle, MakelangeloRobotSettings settings) {
+		Log.message("mergeCollinear() begin");
+
+		int os = turtle.history.size();
 		ArrayList<LineSegment2D> originalLines = convertTurtleToLines(turtle);
-		int originalCount = originalLines.size();
-		System.out.println("  Converted to "+originalCount+" lines.");
 
-		ArrayList<LineSegment2D> longLines = removeVeryShortSegments(originalLines,1e-1); 
-		int longCount = longLines.size();
-		int shortCount = originalCount - longCount;
-		System.out.println("  - "+shortCount+" shorts = "+longCount+" lines.");
+		// every line, and the segments on it in the order they were drawn.
+		HashMap<LineKey,ArrayList<Integer>> byLine = new HashMap<LineKey,ArrayList<Integer>>();
+		ArrayList<LineKey> keys = new ArrayList<LineKey>();
+		for(int i=0;i<originalLines.size();++i) {
+			LineKey key = new LineKey(originalLines.get(i));
+			keys.add(key);
+			byLine.computeIfAbsent(key, k->new ArrayList<Integer>()).add(i);
+		}
+
+		// merge each line where it is first drawn.  the rest of its segments are dropped.
+		ArrayList<LineSegment2D> mergedLines = new ArrayList<LineSegment2D>();
+		for(int i=0;i<originalLines.size();++i) {
+			ArrayList<Integer> members = byLine.get(keys.get(i));
+			if(members.get(0)!=i) continue;
+			mergeRuns(originalLines,members,keys.get(i),mergedLines);
+		}
 
-		Turtle t = convertLinesToTurtle(longLines,1);
-		
+		Turtle t = convertLinesToTurtle(mergedLines,MERGE_EPSILON*MERGE_EPSILON);
 		int ns = t.history.size();
 		turtle.history = t.history;
-		
-		System.out.println("simplify() end (was "+os+" is now "+ns+")");
+
+		Log.message("mergeCollinear() end (was "+os+" is now "+ns+")");
+	}
+
+	/**
+	 * Sort the segments on one line by where they start along it and join those that touch.
+	 */
+	private void mergeRuns(ArrayList<LineSegment2D> lines,ArrayList<Integer> members,LineKey key,ArrayList<LineSegment2D> mergedLines) {
+		double dx = Math.cos(key.angle*MERGE_ANGLE);
+		double dy = Math.sin(key.angle*MERGE_ANGLE);
+		int n = members.size();
+		// each segment with its ends sorted along the line.
+		LineSegment2D [] sorted = new LineSegment2D[n];
+		for(int j=0;j<n;++j) {
+			LineSegment2D line = lines.get(members.get(j));
+			sorted[j] = along(line,dx,dy)<0 ? new LineSegment2D(line.b,line.a,line.c) : line;
+		}
+		// the first segment drawn decides which way the merged strokes go.
+		final boolean backwards = (sorted[0]!=lines.get(members.get(0)));
+		Arrays.sort(sorted, (p,q)->Double.compare(p.a.x*dx+p.a.y*dy, q.a.x*dx+q.a.y*dy));
+
+		// keep the original end points so nothing moves.
+		ArrayList<LineSegment2D> runs = new ArrayList<LineSegment2D>();
+		Point2D start = sorted[0].a;
+		Point2D end = sorted[0].b;
+		double endT = end.x*dx+end.y*dy;
+		for(int j=1;j<=n;++j) {
+			if(j<n && sorted[j].a.x*dx+sorted[j].a.y*dy <= endT+MERGE_EPSILON) {
+				double t = sorted[j].b.x*dx+sorted[j].b.y*dy;
+				if(endT<t) {
+					endT = t;
+					end = sorted[j].b;
+				}
+				continue;
+			}
+			LineSegment2D run = new LineSegment2D(new Point2D(start.x,start.y),new Point2D(end.x,end.y),sorted[0].c);
+			if(backwards) run.flip();
+			runs.add(run);
+			if(j<n) {
+				start = sorted[j].a;
+				end = sorted[j].b;
+				endT = end.x*dx+end.y*dy;
+			}
+		}
+		if(backwards) Collections.reverse(runs);
+		mergedLines.addAll(runs);
+	}
+
+	// how far b is past a, along direction (dx,dy).
+	private double along(LineSegment2D line,double dx,double dy) {
+		return (line.b.x-line.a.x)*dx + (line.b.y-line.a.y)*dy;
+	}
+
+	// how far apart two segments can be, sideways or end to end, and still be joined.  in mm.
+	private static final double MERGE_EPSILON = 1e-3;
+	// how far apart two angles can be and still be the same line.  in radians.
+	private static final double MERGE_ANGLE = 1e-6;
+
+	/**
+	 * The infinite line a segment lies on, rounded so that nearly identical lines match: its angle in [0,PI) and its
+	 * distance from the origin.
+	 */
+	private static class LineKey {
+		final long angle, offset;
+		final int color;
+
+		LineKey(LineSegment2D line) {
+			long steps = Math.round(Math.PI/MERGE_ANGLE);
+			double a = Math.atan2(line.b.y-line.a.y, line.b.x-line.a.x);
+			if(a<0) a += Math.PI;
+			angle = Math.round(a/MERGE_ANGLE) % steps;
+			// measure the offset against the rounded angle so every segment on this line agrees.
+			double r = angle*MERGE_ANGLE;
+			offset = Math.round((line.a.y*Math.cos(r) - line.a.x*Math.sin(r))/MERGE_EPSILON);
+			color = line.c.toInt();
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if(!(o instanceof LineKey)) return false;
+			LineKey k = (LineKey)o;
+			return angle==k.angle && offset==k.offset && color==k.color;
+		}
+
+		@Override
+		public int hashCode() {
+			return Long.hashCode(angle*31+offset)*31+color;
+		}
 	}
 
 	protected void flipV(Turtle turtle, MakelangeloRobotSettings settings) {	
@@ -490,7 +563,10 @@ public void processTurtle(Turtle turtleLoaded, MakelangeloRobotSettings settings
 		if(shouldFlipV()) flipV(newTurtle,settings);
 		if(shouldFlipH()) flipH(newTurtle,settings);
 		if(shouldReorder()) reorder(newTurtle,settings);
-		if(shouldSimplify()) simplify(newTurtle,settings);
+		if(shouldSimplify()) {
+			mergeCollinear(newTurtle,settings);
+			simplify(newTurtle,settings);
+		}
 		if(shouldCrop()) cropToPageMargin(newTurtle,settings);
 		removeRedundantToolChanges(newTurtle);
 
@@ -0,0 +1,184 @@
+package com.marginallyclever.artPipeline;
+
+import java.util.stream.IntStream;
+
+/**
+ * A {@link TransformedImage} resampled onto rings and spokes around a center point in paper space.
+ * <p>
+ * The grid is sampled once, one ring per task across all cores, and stored ring after ring so that walking a circle
+ * reads contiguous memory.  Only the rings and the arc of spokes that cross the paper are kept.  Rings are about one
+ * image pixel apart and the outermost ring is sampled about as often, unless that would need more than
+ * {@link #MAX_SAMPLES}; then both are spaced out evenly until it fits.
+ */
+public class PolarImage {
+	// cap on the grid size, 16MB.
+	private static final int MAX_SAMPLES = 16*1024*1024;
+	private static final double TWO_PI = Math.PI * 2.0;
+
+	private final int rings, spokes;
+	private final double rMin, ringStep;
+	// the spokes run from thetaMin to thetaMin+span.  a full circle wraps around.
+	private final double thetaMin, span;
+	private final boolean fullCircle;
+	// values[ring*spokes+spoke], intensity 0...255
+	private final byte[] values;
+
+	/**
+	 * Rings all the way around the center, out to rMax.
+	 * @param img the image to sample
+	 * @param cx center of the rings in paper space
+	 * @param cy center of the rings in paper space
+	 * @param rMax radius of the outermost ring
+	 */
+	public PolarImage(TransformedImage img, double cx, double cy, double rMax) {
+		this(img, cx, cy, rMax, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+				Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Rings out to rMax, but only where they cross the paper.  Everything else reads as white.
+	 * @param img the image to sample
+	 * @param cx center of the rings in paper space
+	 * @param cy center of the rings in paper space
+	 * @param rMax radius of the outermost ring
+	 * @param left edge of the paper
+	 * @param bottom edge of the paper
+	 * @param right edge of the paper
+	 * @param top edge of the paper
+	 */
+	public PolarImage(TransformedImage img, double cx, double cy, double rMax,
+			double left, double bottom, double right, double top) {
+		// the nearest and furthest the paper gets from the center.
+		double nx = Math.max(left, Math.min(cx, right)) - cx;
+		double ny = Math.max(bottom, Math.min(cy, top)) - cy;
+		double fx = Math.max(Math.abs(left - cx), Math.abs(right - cx));
+		double fy = Math.max(Math.abs(bottom - cy), Math.abs(top - cy));
+		rMax = Math.min(rMax, Math.hypot(fx, fy));
+		rMin = Math.min(rMax, Math.hypot(nx, ny));
+
+		// the angles the paper covers, seen from the center.
+		fullCircle = (nx == 0 && ny == 0);
+		if (fullCircle) {
+			thetaMin = 0;
+			span = TWO_PI;
+		} else {
+			// a rectangle seen from outside covers less than half a circle, between two of its corners.
+			double middle = Math.atan2((bottom + top) / 2 - cy, (left + right) / 2 - cx);
+			double lo = 0, hi = 0;
+			double[] xs = { left, right, right, left };
+			double[] ys = { bottom, bottom, top, top };
+			for (int i = 0; i < 4; ++i) {
+				double a = Math.atan2(ys[i] - cy, xs[i] - cx) - middle;
+				a -= TWO_PI * Math.floor((a + Math.PI) / TWO_PI);
+				lo = Math.min(lo, a);
+				hi = Math.max(hi, a);
+			}
+			thetaMin = middle + lo;
+			span = hi - lo;
+		}
+
+		double pixel = Math.max(1e-6, Math.min(Math.abs(img.getScaleX()), Math.abs(img.getScaleY())));
+		double across = Math.max(rMax - rMin, 0);
+		double around = span * rMax;
+		// rings*spokes grows with the square of 1/step, so shrinking both by the same factor fits the cap.
+		double samples = (across / pixel + 1) * (around / pixel + 1);
+		double step = pixel * Math.max(1, Math.sqrt(samples / MAX_SAMPLES));
+		ringStep = step;
+		rings = (int) Math.min(MAX_SAMPLES / 8, Math.ceil(across / step) + 1);
+		int s = (int) Math.max(8, Math.ceil(around / step));
+		spokes = (int) Math.min(s, MAX_SAMPLES / rings);
+
+		final double[] cos = new double[spokes];
+		final double[] sin = new double[spokes];
+		for (int i = 0; i < spokes; ++i) {
+			double a = thetaMin + spokeAngle() * i;
+			cos[i] = Math.cos(a);
+			sin[i] = Math.sin(a);
+		}
+
+		values = new byte[rings * spokes];
+		IntStream.range(0, rings).parallel().forEach(ring -> {
+			double r = rMin + ring * ringStep;
+			int offset = ring * spokes;
+			for (int i = 0; i < spokes; ++i) {
+				values[offset + i] = (byte) img.sample1x1(cx + cos[i] * r, cy + sin[i] * r);
+			}
+		});
+	}
+
+	/**
+	 * @param r distance from the center
+	 * @param theta angle in radians, counter-clockwise from +x.  any value, it wraps.
+	 * @return intensity at the nearest grid point, 0...255.  255 outside the grid.
+	 */
+	public int sample(double r, double theta) {
+		int ring = (int) Math.round((r - rMin) / ringStep);
+		if (ring < 0 || ring >= rings) return 255;
+		int s = spoke(theta);
+		if (s < 0) return 255;
+		return values[ring * spokes + s] & 0xff;
+	}
+
+	/**
+	 * @param r distance from the center
+	 * @param theta angle in radians, counter-clockwise from +x.  any value, it wraps.
+	 * @param halfWidth average every ring from r-halfWidth to r+halfWidth along this spoke.
+	 * @return average intensity, 0...255.  anything off the grid counts as 255.
+	 */
+	public int sample(double r, double theta, double halfWidth) {
+		int first = (int) Math.round((r - halfWidth - rMin) / ringStep);
+		int last = (int) Math.round((r + halfWidth - rMin) / ringStep);
+		if (last < first) return 255;
+
+		int s = spoke(theta);
+		if (s < 0) return 255;
+		int sum = 0;
+		for (int ring = first; ring <= last; ++ring) {
+			sum += (ring >= 0 && ring < rings) ? (values[ring * spokes + s] & 0xff) : 255;
+		}
+		return sum / (last - first + 1);
+	}
+
+	private double spokeAngle() {
+		// a full circle wraps, so its last spoke is one step short of its first.  an arc includes both ends.
+		return fullCircle ? span / spokes : span / Math.max(1, spokes - 1);
+	}
+
+	/**
+	 * @return the nearest spoke, or -1 if theta is outside the arc.
+	 */
+	private int spoke(double theta) {
+		double a = theta - thetaMin;
+		a -= TWO_PI * Math.floor(a / TWO_PI);
+		long s = Math.round(a / spokeAngle());
+		if (fullCircle) return (int) Math.floorMod(s, (long) spokes);
+		if (s < spokes) return (int) s;
+		// just short of the start of the arc.
+		if (TWO_PI - a < spokeAngle() / 2) return 0;
+		return -1;
+	}
+
+	/**
+	 * @return the distance between rings in paper space
+	 */
+	public double getRingStep() {
+		return ringStep;
+	}
+}
+
+/**
+ * This file is part of Makelangelo.
+ * <p>
+ * Makelangelo is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * Makelangelo is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with Makelangelo.  If not, see <http://www.gnu.org/licenses/>.
+ */
@@ -272,6 +272,15 @@ public void setScale(float x,float y) {
 		scaleY = y;
 	}
 	
+	/**
+	 * @param x source image pixel offset added before scaling.  the default is minus half the width.
+	 * @param y source image pixel offset added before scaling.  the default is minus half the height.
+	 */
+	public void setTranslation(float x,float y) {
+		translateX = x;
+		translateY = y;
+	}
+
 	@Deprecated
 	public void translateX(float x) {
 		translateX = x;
@@ -1,7 +1,11 @@
 package com.marginallyclever.artPipeline.converters;
 
 import java.awt.image.BufferedImage;
+import java.lang.ref.SoftReference;
 import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
 
 /**
  * <p><em>This software has been released into the public domain.
@@ -11,7 +15,10 @@
  * <p>This class provides a configurable implementation of the Canny edge
  * detection algorithm. This classic algorithm has a number of shortcomings,
  * but remains an effective tool in many scenarios. <em>This class is designed
- * for single threaded use only.</em></p>
+ * for single threaded use only.</em>  process() itself spreads the work across all cores.</p>
+ * 
+ * <p>Changing only the thresholds and calling process() again skips straight to
+ * hysteresis, so thresholds can be tweaked interactively.</p>
  * 
  * <p>Sample usage:</p>
  * 
@@ -59,6 +66,35 @@ public class CannyEdgeDetector {
 	private float[] yConv;
 	private float[] xGradient;
 	private float[] yGradient;
+
+	/**
+	 * Everything process() needs for one picture size.  A 20MP picture needs about 480MB, so spare sets are only
+	 * softly held.
+	 */
+	private static class Buffers {
+		final int[] data, magnitude;
+		final float[] xConv, yConv, xGradient, yGradient;
+
+		Buffers(int picsize) {
+			data = new int[picsize];
+			magnitude = new int[picsize];
+			xConv = new float[picsize];
+			yConv = new float[picsize];
+			xGradient = new float[picsize];
+			yGradient = new float[picsize];
+		}
+	}
+
+	// spare buffers, one set per picture size (width<<32|height).
+	private static final Map<Long,SoftReference<Buffers>> pool = new ConcurrentHashMap<Long,SoftReference<Buffers>>();
+
+	private Buffers buffers;
+	private long buffersKey;
+	// the settings that made the current magnitude.  if none of them change only hysteresis has to run again.
+	private BufferedImage magnitudeOf;
+	private float magnitudeRadius;
+	private int magnitudeWidth;
+	private boolean magnitudeNormalized;
 	
 	// constructors
 	
@@ -97,6 +133,7 @@ public BufferedImage getSourceImage() {
 	
 	public void setSourceImage(BufferedImage image) {
 		sourceImage = image;
+		magnitudeOf = null;
 	}
 
 	/**
@@ -242,9 +279,18 @@ public void process() {
 		height = sourceImage.getHeight();
 		picsize = width * height;
 		initArrays();
-		readLuminance();
-		if (contrastNormalized) normalizeContrast();
-		computeGradients(gaussianKernelRadius, gaussianKernelWidth);
+		if (magnitudeOf != sourceImage
+				|| magnitudeRadius != gaussianKernelRadius
+				|| magnitudeWidth != gaussianKernelWidth
+				|| magnitudeNormalized != contrastNormalized) {
+			readLuminance();
+			if (contrastNormalized) normalizeContrast();
+			computeGradients(gaussianKernelRadius, gaussianKernelWidth);
+			magnitudeOf = sourceImage;
+			magnitudeRadius = gaussianKernelRadius;
+			magnitudeWidth = gaussianKernelWidth;
+			magnitudeNormalized = contrastNormalized;
+		}
 		int low = Math.round(lowThreshold * MAGNITUDE_SCALE);
 		int high = Math.round( highThreshold * MAGNITUDE_SCALE);
 		performHysteresis(low, high);
@@ -255,14 +301,22 @@ public void process() {
 	// private utility methods
 	
 	private void initArrays() {
-		if (data == null || picsize != data.length) {
-			data = new int[picsize];
-			magnitude = new int[picsize];
+		long key = ((long)width << 32) | height;
+		if (buffers == null || buffersKey != key) {
+			// hand the old set back for the next picture that size, and take a spare for this size if there is one.
+			if (buffers != null) pool.put(buffersKey, new SoftReference<Buffers>(buffers));
+			SoftReference<Buffers> spare = pool.remove(key);
+			buffers = (spare == null) ? null : spare.get();
+			if (buffers == null) buffers = new Buffers(picsize);
+			buffersKey = key;
+			magnitudeOf = null;
 
-			xConv = new float[picsize];
-			yConv = new float[picsize];
-			xGradient = new float[picsize];
-			yGradient = new float[picsize];
+			data = buffers.data;
+			magnitude = buffers.magnitude;
+			xConv = buffers.xConv;
+			yConv = buffers.yConv;
+			xGradient = buffers.xGradient;
+			yGradient = buffers.yGradient;
 		}
 	}
 	
@@ -292,20 +346,30 @@ private void computeGradients(float kernelRadius, int kernelWidth) {
 			diffKernel[kwidth] = g3 - g2;
 		}
 
-		int initX = kwidth - 1;
-		int maxX = width - (kwidth - 1);
-		int initY = width * (kwidth - 1);
-		int maxY = width * (height - (kwidth - 1));
+		// the buffers are reused, so clear what the passes below don't write.  rows are spread across all cores.
+		IntStream.range(0, height).parallel().forEach(row -> {
+			int from = row * width, to = from + width;
+			Arrays.fill(xConv, from, to, 0f);
+			Arrays.fill(yConv, from, to, 0f);
+			Arrays.fill(xGradient, from, to, 0f);
+			Arrays.fill(yGradient, from, to, 0f);
+			Arrays.fill(magnitude, from, to, 0);
+		});
+
+		final int kw = kwidth;
+		final int initX = kwidth - 1;
+		final int maxX = width - (kwidth - 1);
 		
-		//perform convolution in x and y directions
-		for (int x = initX; x < maxX; x++) {
-			for (int y = initY; y < maxY; y += width) {
+		//perform convolution in x and y directions.  the gaussian is separable, so each is a 1D pass.
+		IntStream.range(kw - 1, height - (kw - 1)).parallel().forEach(row -> {
+			int y = row * width;
+			for (int x = initX; x < maxX; x++) {
 				int index = x + y;
 				float sumX = data[index] * kernel[0];
 				float sumY = sumX;
 				int xOffset = 1;
 				int yOffset = width;
-				for(; xOffset < kwidth ;) {
+				for(; xOffset < kw ;) {
 					sumY += kernel[xOffset] * (data[index - yOffset] + data[index + yOffset]);
 					sumX += kernel[xOffset] * (data[index - xOffset] + data[index + xOffset]);
 					yOffset += width;
@@ -315,42 +379,46 @@ private void computeGradients(float kernelRadius, int kernelWidth) {
 				yConv[index] = sumY;
 				xConv[index] = sumX;
 			}
+		});
  
-		}
- 
-		for (int x = initX; x < maxX; x++) {
-			for (int y = initY; y < maxY; y += width) {
+		IntStream.range(kw - 1, height - (kw - 1)).parallel().forEach(row -> {
+			int y = row * width;
+			for (int x = initX; x < maxX; x++) {
 				float sum = 0f;
 				int index = x + y;
-				for (int i = 1; i < kwidth; i++)
+				for (int i = 1; i < kw; i++)
 					sum += diffKernel[i] * (yConv[index - i] - yConv[index + i]);
  
 				xGradient[index] = sum;
 			}
- 
-		}
+		});
 
-		for (int x = kwidth; x < width - kwidth; x++) {
-			for (int y = initY; y < maxY; y += width) {
+		IntStream.range(kw - 1, height - (kw - 1)).parallel().forEach(row -> {
+			int y = row * width;
+			for (int x = kw; x < width - kw; x++) {
 				float sum = 0.0f;
 				int index = x + y;
 				int yOffset = width;
-				for (int i = 1; i < kwidth; i++) {
+				for (int i = 1; i < kw; i++) {
 					sum += diffKernel[i] * (xConv[index - yOffset] - xConv[index + yOffset]);
 					yOffset += width;
 				}
  
 				yGradient[index] = sum;
 			}
- 
-		}
- 
-		initX = kwidth;
-		maxX = width - kwidth;
-		initY = width * kwidth;
-		maxY = width * (height - kwidth);
-		for (int x = initX; x < maxX; x++) {
-			for (int y = initY; y < maxY; y += width) {
+		});
+
+		// xConv is done with.  keep the length of every gradient in it so each is only found once.
+		final float[] gradient = xConv;
+		IntStream.range(0, height).parallel().forEach(row -> {
+			for (int index = row * width, end = index + width; index < end; index++) {
+				gradient[index] = hypot(xGradient[index], yGradient[index]);
+			}
+		});
+
+		IntStream.range(kw, height - kw).parallel().forEach(row -> {
+			int y = row * width;
+			for (int x = kw; x < width - kw; x++) {
 				int index = x + y;
 				int indexN = index - width;
 				int indexS = index + width;
@@ -363,17 +431,17 @@ private void computeGradients(float kernelRadius, int kernelWidth) {
 				
 				float xGrad = xGradient[index];
 				float yGrad = yGradient[index];
-				float gradMag = hypot(xGrad, yGrad);
+				float gradMag = gradient[index];
 
 				//perform non-maximal supression
-				float nMag = hypot(xGradient[indexN], yGradient[indexN]);
-				float sMag = hypot(xGradient[indexS], yGradient[indexS]);
-				float wMag = hypot(xGradient[indexW], yGradient[indexW]);
-				float eMag = hypot(xGradient[indexE], yGradient[indexE]);
-				float neMag = hypot(xGradient[indexNE], yGradient[indexNE]);
-				float seMag = hypot(xGradient[indexSE], yGradient[indexSE]);
-				float swMag = hypot(xGradient[indexSW], yGradient[indexSW]);
-				float nwMag = hypot(xGradient[indexNW], yGradient[indexNW]);
+				float nMag = gradient[indexN];
+				float sMag = gradient[indexS];
+				float wMag = gradient[indexW];
+				float eMag = gradient[indexE];
+				float neMag = gradient[indexNE];
+				float seMag = gradient[indexSE];
+				float swMag = gradient[indexSW];
+				float nwMag = gradient[indexNW];
 				float tmp;
 				/*
 				 * An explanation of what's happening here, for those who want
@@ -423,7 +491,7 @@ private void computeGradients(float kernelRadius, int kernelWidth) {
 					magnitude[index] = 0;
 				}
 			}
-		}
+		});
 	}
  
 	//NOTE: It is quite feasible to replace the implementation of this method
@@ -443,42 +511,44 @@ private void performHysteresis(int low, int high) {
 		//This is done for memory efficiency, other implementations may wish
 		//to separate these functions.
 		Arrays.fill(data, 0);
- 
-		int offset = 0;
-		for (int y = 0; y < height; y++) {
-			for (int x = 0; x < width; x++) {
-				if (data[offset] == 0 && magnitude[offset] >= high) {
-					follow(x, y, offset, low);
+		// a magnitude of 0 is never an edge, and data 0 means "not visited".
+		low = Math.max(low, 1);
+		high = Math.max(high, 1);
+
+		// follow every strong pixel through its weak neighbors with an explicit stack instead of recursion,
+		// which overflowed the call stack on large pictures.
+		int[] stack = new int[1024];
+		for (int offset = 0; offset < picsize; offset++) {
+			if (data[offset] != 0 || magnitude[offset] < high) continue;
+			data[offset] = magnitude[offset];
+			int top = 0;
+			stack[top++] = offset;
+			while (top > 0) {
+				int i1 = stack[--top];
+				int x1 = i1 % width;
+				int y1 = i1 / width;
+				int x0 = x1 == 0 ? x1 : x1 - 1;
+				int x2 = x1 == width - 1 ? x1 : x1 + 1;
+				int y0 = y1 == 0 ? y1 : y1 - 1;
+				int y2 = y1 == height -1 ? y1 : y1 + 1;
+				for (int y = y0; y <= y2; y++) {
+					for (int x = x0; x <= x2; x++) {
+						int i2 = x + y * width;
+						if (data[i2] == 0 && magnitude[i2] >= low) {
+							data[i2] = magnitude[i2];
+							if (top == stack.length) stack = Arrays.copyOf(stack, top * 2);
+							stack[top++] = i2;
+						}
+					}
 				}
-				offset++;
 			}
 		}
  	}
- 
-	private void follow(int x1, int y1, int i1, int threshold) {
-		int x0 = x1 == 0 ? x1 : x1 - 1;
-		int x2 = x1 == width - 1 ? x1 : x1 + 1;
-		int y0 = y1 == 0 ? y1 : y1 - 1;
-		int y2 = y1 == height -1 ? y1 : y1 + 1;
-		
-		data[i1] = magnitude[i1];
-		for (int x = x0; x <= x2; x++) {
-			for (int y = y0; y <= y2; y++) {
-				int i2 = x + y * width;
-				if ((y != y1 || x != x1)
-					&& data[i2] == 0 
-					&& magnitude[i2] >= threshold) {
-					follow(x, y, i2, threshold);
-					return;
-				}
-			}
-		}
-	}
 
 	private void thresholdEdges() {
-		for (int i = 0; i < picsize; i++) {
+		IntStream.range(0, picsize).parallel().forEach(i -> {
 			data[i] = data[i] > 0 ? -1 : 0xff000000;
-		}
+		});
 	}
 	
 	private int luminance(float r, float g, float b) {
@@ -546,7 +616,7 @@ private void writeEdges(int pixels[]) {
 		//NOTE: There is currently no mechanism for obtaining the edge data
 		//in any other format other than an INT_ARGB type BufferedImage.
 		//This may be easily remedied by providing alternative accessors.
-		if (edgesImage == null) {
+		if (edgesImage == null || edgesImage.getWidth() != width || edgesImage.getHeight() != height) {
 			edgesImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
 		}
 		edgesImage.getWritableTile(0, 0).setDataElements(0, 0, width, height, pixels);
@@ -1,8 +1,9 @@
 package com.marginallyclever.artPipeline.converters;
 
+import java.util.ArrayList;
+import java.util.List;
 
 import com.marginallyclever.artPipeline.TransformedImage;
-import com.marginallyclever.artPipeline.imageFilters.Filter_BlackAndWhite;
 import com.marginallyclever.convenience.turtle.Turtle;
 import com.marginallyclever.makelangelo.Translator;
 
@@ -47,8 +48,7 @@ public int getCutoff() {
 	@Override
 	public void finish() {
 		// The picture might be in color.  Smash it to 255 shades of grey.
-		Filter_BlackAndWhite bw = new Filter_BlackAndWhite(255);
-		TransformedImage img = bw.filter(sourceImage);
+		TransformedImage img = getGreyImage();
 
 		double yBottom = machine.getMarginBottom();
 		double yTop    = machine.getMarginTop();
@@ -67,11 +67,14 @@ public void finish() {
 		turtle = new Turtle();
 		
 		// from top to bottom of the image...
-		double x, y, z;
-		int i = 0;
-		for (y = yBottom + halfStep; y < yTop - halfStep; y += fullStep) {
-			++i;
-			if ((i % 2) == 0) {
+		List<Double> rows = new ArrayList<Double>();
+		for (double y = yBottom + halfStep; y < yTop - halfStep; y += fullStep) rows.add(y);
+
+		// the rows don't depend on each other.  draw them all at once.
+		drawRowsInParallel(turtle, rows.size(), (t,i) -> {
+			double y = rows.get(i);
+			double x, z;
+			if ((i % 2) == 1) {
 				// every even line move left to right
 				for (x = xLeft; x < xRight; x += fullStep) {
 					// read a block of the image and find the average intensity in this block
@@ -85,15 +88,15 @@ public void finish() {
 						double ymin = y + halfStep - pulseSize;
 						double ymax = y + halfStep + pulseSize;
 						// Draw a square.  the diameter is relative to the intensity.
-						turtle.jumpTo(xmin, ymin);
-						turtle.moveTo(xmax, ymin);
-						turtle.moveTo(xmax, ymax);
-						turtle.moveTo(xmin, ymax);
-						turtle.moveTo(xmin, ymin);
+						t.jumpTo(xmin, ymin);
+						t.moveTo(xmax, ymin);
+						t.moveTo(xmax, ymax);
+						t.moveTo(xmin, ymax);
+						t.moveTo(xmin, ymin);
 						// fill in the square
 						boolean flip = false;
 						for(double yy=ymin;yy<ymax;yy+=d) {
-							turtle.moveTo(flip?xmin:xmax,yy);
+							t.moveTo(flip?xmin:xmax,yy);
 							flip = !flip;
 						}
 					}
@@ -112,21 +115,21 @@ public void finish() {
 						double ymin = y + halfStep - pulseSize;
 						double ymax = y + halfStep + pulseSize;
 						// draw a square.  the diameter is relative to the intensity.
-						turtle.jumpTo(xmin, ymin);
-						turtle.moveTo(xmax, ymin);
-						turtle.moveTo(xmax, ymax);
-						turtle.moveTo(xmin, ymax);
-						turtle.moveTo(xmin, ymin);
+						t.jumpTo(xmin, ymin);
+						t.moveTo(xmax, ymin);
+						t.moveTo(xmax, ymax);
+						t.moveTo(xmin, ymax);
+						t.moveTo(xmin, ymin);
 						// fill in the square
 						boolean flip = false;
 						for(double yy=ymin;yy<ymax;yy+=d) {
-							turtle.moveTo(flip?xmin:xmax,yy);
+							t.moveTo(flip?xmin:xmax,yy);
 							flip = !flip;
 						}
 					}
 				}
 			}
-		}
+		});
 	}
 }
 
@@ -1,5 +1,8 @@
 package com.marginallyclever.artPipeline.converters;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
 
 import com.marginallyclever.artPipeline.TransformedImage;
 import com.marginallyclever.artPipeline.imageFilters.Filter_CMYK;
@@ -41,19 +44,21 @@ public void setPasses(int value) {
 	 */
 	@Override
 	public void finish() {
-		Filter_CMYK cmyk = new Filter_CMYK();
-		cmyk.filter(sourceImage);
+		Filter_CMYK cmyk = getCMYKChannels();
 		
 		turtle = new Turtle();
-		
-		Log.message("Yellow...");		outputChannel(cmyk.getY(),0 ,new ColorRGB(255,255,  0));
-		Log.message("Cyan...");			outputChannel(cmyk.getC(),15,new ColorRGB(  0,255,255));
-		Log.message("Magenta...");		outputChannel(cmyk.getM(),75,new ColorRGB(255,  0,255));
-		Log.message("Black...");		outputChannel(cmyk.getK(),45,new ColorRGB(  0,  0,  0));
+
+		Log.message("Yellow, cyan, magenta, black...");
+		List<Consumer<Turtle>> channels = new ArrayList<Consumer<Turtle>>();
+		channels.add((t)->outputChannel(t,cmyk.getY(),0 ,new ColorRGB(255,255,  0)));
+		channels.add((t)->outputChannel(t,cmyk.getC(),15,new ColorRGB(  0,255,255)));
+		channels.add((t)->outputChannel(t,cmyk.getM(),75,new ColorRGB(255,  0,255)));
+		channels.add((t)->outputChannel(t,cmyk.getK(),45,new ColorRGB(  0,  0,  0)));
+		drawInParallel(channels);
 		Log.message("Finishing...");
 	}
 	
-	protected void outputChannel(TransformedImage img,float angle,ColorRGB newColor) {
+	protected void outputChannel(Turtle turtle,TransformedImage img,float angle,ColorRGB newColor) {
 		// The picture might be in color.  Smash it to 255 shades of grey.
 		double dx = Math.cos(Math.toRadians(angle));
 		double dy = Math.sin(Math.toRadians(angle));
@@ -88,11 +93,11 @@ protected void outputChannel(TransformedImage img,float angle,ColorRGB newColor)
 
 			double cutoff=channelCutoff[i%channelCutoff.length];
 			if ((i % 2) == 0) {
-				if(!useError) convertAlongLine(x0,y0,x1,y1,stepSize,cutoff,img);
-				else convertAlongLineErrorTerms(x0,y0,x1,y1,stepSize,cutoff,error0,error1,img);
+				if(!useError) convertAlongLine(turtle,x0,y0,x1,y1,stepSize,cutoff,img);
+				else convertAlongLineErrorTerms(turtle,x0,y0,x1,y1,stepSize,cutoff,error0,error1,img);
 			} else {
-				if(!useError) convertAlongLine(x1,y1,x0,y0,stepSize,cutoff,img);
-				else convertAlongLineErrorTerms(x1,y1,x0,y0,stepSize,cutoff,error0,error1,img);
+				if(!useError) convertAlongLine(turtle,x1,y1,x0,y0,stepSize,cutoff,img);
+				else convertAlongLineErrorTerms(turtle,x1,y1,x0,y0,stepSize,cutoff,error0,error1,img);
 			}
 			
 			for(int j=0;j<error0.length;++j) {
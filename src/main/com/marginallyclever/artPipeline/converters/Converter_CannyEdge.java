@@ -1,116 +1,82 @@
 package com.marginallyclever.artPipeline.converters;
 
 
-import java.io.IOException;
-import java.io.Writer;
+import java.util.List;
 
 import com.marginallyclever.artPipeline.TransformedImage;
-import com.marginallyclever.artPipeline.imageFilters.Filter_BlackAndWhite;
-import com.marginallyclever.artPipeline.imageFilters.Filter_Invert;
+import com.marginallyclever.convenience.PolylineSimplifier;
+import com.marginallyclever.convenience.log.Log;
+import com.marginallyclever.convenience.turtle.Turtle;
 import com.marginallyclever.makelangelo.Translator;
 
 /**
- * 
+ * Draws the outlines found by {@link CannyEdgeDetector}.  The edge pixels are traced into polylines and every
+ * polyline is simplified before it is drawn.
  * @author Dan Royer
  */
 public class Converter_CannyEdge extends ImageConverter {
+	// kept between conversions so its buffers are reused, and so the same picture only has its gradients found once.
+	private CannyEdgeDetector detector = new CannyEdgeDetector();
+
 	@Override
 	public String getName() {
 		return Translator.get("CannyEdgeConverterName");
 	}
 
+	@Override
+	public void finish() {
+		convert(sourceImage);
+	}
 
 	/**
-	 * turn the image into a grid of boxes.  box size is affected by source image darkness.
-	 * @param img the image to convert.
+	 * trace the edges of the image into lines.
+	 * @param img the image to convert.  must be the image given to setImage(), whose cached grey copy is traced.
 	 */
-	public boolean convert(TransformedImage img,Writer out) throws IOException {
-		// The picture might be in color.  Smash it to 255 shades of grey.
-		Filter_BlackAndWhite bw = new Filter_BlackAndWhite(255);
-		img = bw.filter(img);
-
-		//create the detector
-		CannyEdgeDetector detector = new CannyEdgeDetector();
+	public boolean convert(TransformedImage img) {
+		// The picture might be in color.  Smash it to 255 shades of grey.  Cached for as long as the picture
+		// doesn't change or move.
+		img = getGreyImage();
 
 		//adjust its parameters as desired
 		detector.setLowThreshold(0.5f);
 		detector.setHighThreshold(1f);
 
-		//apply it to an image
-		detector.setSourceImage(img.getSourceImage());
+		//apply it to an image.  a new source image means the gradients have to be found again.
+		if(detector.getSourceImage() != img.getSourceImage()) {
+			detector.setSourceImage(img.getSourceImage());
+		}
 		detector.process();
-		TransformedImage edges = new TransformedImage(detector.getEdgesImage());
-		edges.copySettingsFrom(img);
-		
-		Filter_Invert inv = new Filter_Invert();
-		edges = inv.filter(edges);
-		
-		// Now we have a bitmap of the edges.  How to turn that into vectors?
-		
-/*
-		// Set up the conversion from image space to paper space, select the current tool, etc.
-		imageStart(edges, out);
-		// Make sure the pen is up for the first move
-		liftPen(out);
-
-		double pw = machine.getPaperWidth();
-		//double ph = machine.GetPaperHeight();
-
-		// figure out how many lines we're going to have on this image.
-		float steps = (float) (pw / tool.getDiameter());
-		if (steps < 1) steps = 1;
-
-		float blockSize = (int) (imageWidth / steps);
-		float halfstep = (float) blockSize / 2.0f;
-
-		// from top to bottom of the image...
-		float x, y, z;
-		int i = 0;
-		for (y = 0; y < imageHeight; y += blockSize) {
-			++i;
-			if ((i % 2) == 0) {
-				// every even line move left to right
-				//lineTo(file,x,y,pen up?)]
-				for (x = 0; x < imageWidth - blockSize; x += blockSize) {
-					// read a block of the image and find the average intensity in this block
-					z = takeImageSampleBlock(img, (int) x, (int) (y - halfstep), (int) (x + blockSize), (int) (y + halfstep));
-					// scale the intensity value
-					float scale_z = (255.0f - (float) z) / 255.0f;
-					float pulse_size = (halfstep - 1.0f) * scale_z;
-					if (pulse_size > 0.1f) {
-						// draw a square.  the diameter is relative to the intensity.
-						lineTo(out, x + halfstep - pulse_size, y + halfstep - pulse_size, true);
-						lineTo(out, x + halfstep + pulse_size, y + halfstep - pulse_size, false);
-						lineTo(out, x + halfstep + pulse_size, y + halfstep + pulse_size, false);
-						lineTo(out, x + halfstep - pulse_size, y + halfstep + pulse_size, false);
-						lineTo(out, x + halfstep - pulse_size, y + halfstep - pulse_size, false);
-						lineTo(out, x + halfstep - pulse_size, y + halfstep - pulse_size, true);
-					}
-				}
-			} else {
-				// every odd line move right to left
-				//lineTo(file,x,y,pen up?)]
-				for (x = imageWidth - blockSize; x >= 0; x -= blockSize) {
-					// read a block of the image and find the average intensity in this block
-					z = takeImageSampleBlock(img, (int) (x - blockSize), (int) (y - halfstep), (int) x, (int) (y + halfstep));
-					// scale the intensity value
-					float scale_z = (255.0f - (float) z) / 255.0f;
-					float pulse_size = (halfstep - 1.0f) * scale_z;
-					if (pulse_size > 0.1f) {
-						// draw a square.  the diameter is relative to the intensity.
-						lineTo(out, x - halfstep - pulse_size, y + halfstep - pulse_size, true);
-						lineTo(out, x - halfstep + pulse_size, y + halfstep - pulse_size, false);
-						lineTo(out, x - halfstep + pulse_size, y + halfstep + pulse_size, false);
-						lineTo(out, x - halfstep - pulse_size, y + halfstep + pulse_size, false);
-						lineTo(out, x - halfstep - pulse_size, y + halfstep - pulse_size, false);
-						lineTo(out, x - halfstep - pulse_size, y + halfstep - pulse_size, true);
-					}
-				}
+
+		// follow the edge pixels into lines.
+		EdgeTracer tracer = new EdgeTracer(detector.getEdgesImage());
+		List<int[]> lines = tracer.trace();
+		int width = tracer.getWidth();
+
+		// bumps smaller than half a pen width don't show.
+		double epsilon = machine.getPenDiameter() / 2.0;
+
+		turtle = new Turtle();
+		int pixels = 0, moves = 0;
+		for( int[] line : lines ) {
+			double [] x = new double[line.length];
+			double [] y = new double[line.length];
+			for(int i=0;i<line.length;++i) {
+				// the center of each pixel, in paper space.
+				x[i] = (line[i] % width + 0.5 + img.getTranslateX()) * img.getScaleX();
+				y[i] = (line[i] / width + 0.5 + img.getTranslateY()) * img.getScaleY();
+			}
+			int [] keep = PolylineSimplifier.ramerDouglasPeucker(x, y, epsilon);
+
+			turtle.jumpTo(x[keep[0]], y[keep[0]]);
+			for(int i=1;i<keep.length;++i) {
+				turtle.moveTo(x[keep[i]], y[keep[i]]);
 			}
+			turtle.penUp();
+			pixels += line.length;
+			moves += keep.length;
+		}
+		Log.message(lines.size()+" edges, "+pixels+" pixels, "+moves+" moves.");
 
-			liftPen(out);
-		    moveTo(out, (float)machine.getHomeX(), (float)machine.getHomeY(),true);
-	    }*/
 		return true;
 	}
 }
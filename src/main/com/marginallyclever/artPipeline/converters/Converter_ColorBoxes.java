@@ -1,8 +1,13 @@
 package com.marginallyclever.artPipeline.converters;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
 import com.marginallyclever.artPipeline.TransformedImage;
 import com.marginallyclever.convenience.ColorPalette;
 import com.marginallyclever.convenience.ColorRGB;
+import com.marginallyclever.convenience.turtle.Turtle;
 import com.marginallyclever.makelangelo.Translator;
 
 
@@ -15,11 +20,7 @@ public class Converter_ColorBoxes extends ImageConverter {
 	private double step1;
 	private double step2;
 	private double step4;
-	private int palette_mask;
-	private ColorRGB[] error = null;
-	private ColorRGB[] nexterror = null;
 	private double stepsTotal = 0;
-	private int direction = 1;
 
 	// TODO make this a parameter
 	public boolean draw_filled = false;
@@ -39,7 +40,7 @@ public String getName() {
 	}
 
 
-	private void ditherDirection(TransformedImage img, int y, ColorRGB[] error, ColorRGB[] nexterror, int direction) {
+	private void ditherDirection(Turtle turtle, TransformedImage img, int y, ColorRGB[] error, ColorRGB[] nexterror, int direction, int palette_mask) {
 		ColorRGB oldPixel = new ColorRGB(0, 0, 0);
 		ColorRGB newPixel = new ColorRGB(0, 0, 0);
 		ColorRGB quant_error = new ColorRGB(0, 0, 0);
@@ -113,12 +114,14 @@ private void ditherDirection(TransformedImage img, int y, ColorRGB[] error, Colo
 	}
 	
 
-	protected void scan(int tool_index, TransformedImage img, String colorName, ColorRGB newPenColor) {
-		palette_mask = tool_index;
-
+	protected void scan(Turtle turtle, int tool_index, TransformedImage img, String colorName, ColorRGB newPenColor) {
 		turtle.penUp();
 		turtle.setColor(newPenColor);
 
+		// set up the error buffers for floyd/steinberg dithering
+		ColorRGB[] error = new ColorRGB[(int) Math.ceil(stepsTotal)];
+		ColorRGB[] nexterror = new ColorRGB[(int) Math.ceil(stepsTotal)];
+
 		int y;
 
 		for (y = 0; y < error.length; ++y) {
@@ -129,9 +132,9 @@ protected void scan(int tool_index, TransformedImage img, String colorName, Colo
 		double yBottom = machine.getMarginBottom();
 		double yTop    = machine.getMarginTop();
 		
-		direction = 1;
+		int direction = 1;
 		for (y = (int)yBottom; y < yTop; y+= step4) {
-			ditherDirection(img, y, error, nexterror, direction);
+			ditherDirection(turtle, img, y, error, nexterror, direction, tool_index);
 
 			direction = -direction;
 			ColorRGB[] tmp = error;
@@ -156,15 +159,16 @@ public boolean convert(TransformedImage img) {
 		stepsTotal = pw / step4;
 		if (stepsTotal < 1) stepsTotal = 1;
 
-		// set up the error buffers for floyd/steinberg dithering
-		error = new ColorRGB[(int) Math.ceil(stepsTotal)];
-		nexterror = new ColorRGB[(int) Math.ceil(stepsTotal)];
+		turtle = new Turtle();
 
+		// the error terms carry from row to row, so the rows of one color have to be drawn in order.
+		List<Consumer<Turtle>> colors = new ArrayList<Consumer<Turtle>>();
+		colors.add((t)->scan(t, 0, img, "Black",new ColorRGB(  0,  0,  0)));  // black
+		colors.add((t)->scan(t, 1, img, "Red"  ,new ColorRGB(255,  0,  0)));  // red
+		colors.add((t)->scan(t, 2, img, "Green",new ColorRGB(  0,255,  0)));  // green
+		colors.add((t)->scan(t, 3, img, "Blue" ,new ColorRGB(  0,  0,255)));  // blue
 		try {
-			scan(0, img, "Black",new ColorRGB(  0,  0,  0));  // black
-			scan(1, img, "Red"  ,new ColorRGB(255,  0,  0));  // red
-			scan(2, img, "Green",new ColorRGB(  0,255,  0));  // green
-			scan(3, img, "Blue" ,new ColorRGB(  0,  0,255));  // blue
+			drawInParallel(colors);
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
@@ -1,11 +1,12 @@
 package com.marginallyclever.artPipeline.converters;
 
 
-import java.awt.Color;
-import java.awt.Graphics2D;
-import java.awt.Point;
 import java.awt.image.BufferedImage;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
 import com.marginallyclever.artPipeline.TransformedImage;
 import com.marginallyclever.artPipeline.imageFilters.Filter_GaussianBlur;
@@ -16,15 +17,23 @@
 import com.marginallyclever.makelangelo.Translator;
 
 /**
+ * Cuts the paper into a grid of pen sized cells, finds the palette color of each cell, and fills each blob of
+ * touching cells of one color with back and forth strokes.
+ * <p>
+ * Blobs are found with a scanline span fill.  The grid is cut into bands of rows, each band is filled on its own
+ * core, and blobs that cross from one band to the next are joined with union-find.
+ *
  * @author Dan Royer
  * @since 7.1.4
  */
 public class Converter_ColorFloodFill extends ImageConverter {
+	// cells that are not part of any blob.
+	private static final int NO_LABEL = -1;
+
 	private ColorPalette palette;
+	// colors from 0 to this-1 are drawn.  the rest of the palette (white) is paper.
+	private int colorsToDraw;
 	private float diameter;
-	private float lastX, lastY;
-	private TransformedImage imgChanged;
-	private TransformedImage imgMask;
 
 	protected double yBottom , yTop, xLeft, xRight;
 
@@ -35,6 +44,7 @@ public Converter_ColorFloodFill() {
 		palette.addColor(new ColorRGB(255,   0,   0));
 		palette.addColor(new ColorRGB(  0, 255,   0));
 		palette.addColor(new ColorRGB(  0,   0, 255));
+		colorsToDraw = 4;
 		palette.addColor(new ColorRGB(255, 255, 255));
 	}
 
@@ -43,173 +53,250 @@ public String getName() {
 		return Translator.get("RGBFloodFillName");
 	}
 
+	@Override
+	public void finish() {
+		convert(sourceImage);
+	}
+
 
 	/**
-	 * test the mask from x0,y0 (top left) to x1,y1 (bottom right) to see if this region has already been visited
-	 *
-	 * @param x0 left
-	 * @param y0 top
-	 * @return true if all the pixels in this region are zero.
+	 * Average the color of every pixel in each cell and find the nearest palette color.
+	 * @param img the image to sample
+	 * @param cols cells across
+	 * @param rows cells down
+	 * @return the palette index of every cell, row after row from the bottom.  Cells off the image are white.
 	 */
-	protected boolean getMaskTouched(float x0, float y0) {
-		float x1 = x0 + diameter;
-		float y1 = y0 + diameter;
-
-		Color value;
-		int sum = 0;
-		for (float y = y0; y < y1; ++y) {
-			for (float x = x0; x < x1; ++x) {
-				if(imgMask.canSampleAt(x, y)) {
-					++sum;
-					value = new Color(imgMask.sample1x1Unchecked(x, y));
-					if (value.getRed() != 0) {
-						return true;
+	protected byte [] quantizeCells(TransformedImage img,int cols,int rows) {
+		final BufferedImage src = img.getSourceImage();
+		final int w = src.getWidth();
+		final int h = src.getHeight();
+		final int white = palette.quantizeIndex(new ColorRGB(255,255,255));
+
+		byte [] cells = new byte[cols*rows];
+		IntStream.range(0, rows).parallel().forEach(r -> {
+			double y0 = yBottom + r*diameter;
+			int iy0 = img.getTransformedY(y0);
+			int iy1 = img.getTransformedY(y0+diameter);
+			if(iy1<iy0) { int t=iy0; iy0=iy1; iy1=t; }
+			if(iy1==iy0) ++iy1;  // cells smaller than a pixel still get one.
+			iy0 = Math.max(iy0, 0);
+			iy1 = Math.min(iy1, h);
+
+			ColorRGB average = new ColorRGB(0,0,0);
+			for(int c=0;c<cols;++c) {
+				double x0 = xLeft + c*diameter;
+				int ix0 = img.getTransformedX(x0);
+				int ix1 = img.getTransformedX(x0+diameter);
+				if(ix1<ix0) { int t=ix0; ix0=ix1; ix1=t; }
+				if(ix1==ix0) ++ix1;
+				ix0 = Math.max(ix0, 0);
+				ix1 = Math.min(ix1, w);
+
+				if(ix0>=ix1 || iy0>=iy1) {
+					cells[r*cols+c] = (byte)white;
+					continue;
+				}
+				long red=0, green=0, blue=0;
+				for(int y=iy0;y<iy1;++y) {
+					for(int x=ix0;x<ix1;++x) {
+						int rgb = src.getRGB(x,y);
+						red   += (rgb>>16)&0xff;
+						green += (rgb>> 8)&0xff;
+						blue  += (rgb    )&0xff;
 					}
 				}
+				int n = (ix1-ix0)*(iy1-iy0);
+				average.set((int)(red/n), (int)(green/n), (int)(blue/n));
+				cells[r*cols+c] = (byte)palette.quantizeIndex(average);
 			}
-		}
-
-		return (sum == 0);
+		});
+		return cells;
 	}
 
-	protected void setMaskTouched(float x0, float y0, float x1, float y1) {
-		
-		int c = (new ColorRGB(255, 255, 255)).toInt();
-		for (float y = y0; y < y1; ++y) {
-			for (float x = x0; x < x1; ++x) {
-				if(imgMask.canSampleAt(x, y)) {
-					imgMask.getSourceImage().setRGB(imgMask.getTransformedX(x), imgMask.getTransformedY(y), c);
+	/**
+	 * Label every blob of touching cells (left, right, up, down) with the same color.
+	 * @param cells palette index of every cell, as from {@link #quantizeCells(TransformedImage, int, int)}
+	 * @param cols cells across
+	 * @param rows cells down
+	 * @return for every cell the index of the first cell (in row order) of its blob, or {@link #NO_LABEL} for cells
+	 * that are not drawn.
+	 */
+	protected int [] labelBlobs(byte [] cells,int cols,int rows) {
+		int [] label = new int[cells.length];
+		Arrays.fill(label, NO_LABEL);
+
+		final int bands = Math.max(1, Math.min(rows, Runtime.getRuntime().availableProcessors()*4));
+		final int bandHeight = (rows + bands - 1) / bands;
+		IntStream.range(0, bands).parallel().forEach(b -> {
+			int r0 = b*bandHeight;
+			int r1 = Math.min(rows, r0+bandHeight);
+			for(int i=r0*cols;i<r1*cols;++i) {
+				if(label[i]==NO_LABEL && cells[i]<colorsToDraw) {
+					spanFill(cells,label,cols,r0,r1,i);
+				}
+			}
+		});
+
+		// join the blobs that cross band edges.  the lower index always becomes the root.
+		int [] parent = new int[cells.length];
+		Arrays.parallelSetAll(parent, i -> i);
+		for(int r=bandHeight;r<rows;r+=bandHeight) {
+			int below = (r-1)*cols;
+			int above = r*cols;
+			for(int c=0;c<cols;++c) {
+				int a = label[below+c];
+				int b = label[above+c];
+				if(a!=NO_LABEL && b!=NO_LABEL && cells[below+c]==cells[above+c]) {
+					union(parent,a,b);
 				}
 			}
 		}
-		//imgMask.flush();
+		IntStream.range(0, label.length).parallel().forEach(i -> {
+			if(label[i]!=NO_LABEL) label[i] = find(parent,label[i]);
+		});
+		return label;
 	}
 
-
 	/**
-	 * sample the pixels from x0,y0 (top left) to x1,y1 (bottom right) and average the color.
-	 *
-	 * @param x2
-	 * @param y2
-	 * @param f
-	 * @param g
-	 * @return the average color in the region.  if nothing is sampled, return white.
+	 * Scanline span fill of one blob inside rows r0...r1-1.  Every cell of the blob is labeled with the seed index.
 	 */
-	protected ColorRGB takeImageSampleBlock(float x2, float y2, float f, float g) {
-		// point sampling
-		ColorRGB value = new ColorRGB(0, 0, 0);
-		int sum = 0;
-
-		for (float y = y2; y < g; ++y) {
-			for (float x = x2; x < f; ++x) {
-				if(isInsidePaperMargins(x, y) && imgChanged.canSampleAt(x, y)) {
-					value.add(new ColorRGB(imgChanged.sample1x1(x, y)));
-					++sum;
+	private void spanFill(byte [] cells,int [] label,int cols,int r0,int r1,int seed) {
+		final byte color = cells[seed];
+		// pairs of row,column still to visit.
+		int [] stack = new int[64];
+		int top=0;
+		stack[top++] = seed/cols;
+		stack[top++] = seed%cols;
+
+		while(top>0) {
+			int c = stack[--top];
+			int r = stack[--top];
+			int row = r*cols;
+			if(label[row+c]!=NO_LABEL) continue;
+
+			// grow the span as far as it goes left and right.
+			int left=c, right=c;
+			while(left>0 && label[row+left-1]==NO_LABEL && cells[row+left-1]==color) --left;
+			while(right<cols-1 && label[row+right+1]==NO_LABEL && cells[row+right+1]==color) ++right;
+			for(int x=left;x<=right;++x) label[row+x]=seed;
+
+			// queue the start of every matching run in the rows below and above.
+			for(int nr=r-1;nr<=r+1;nr+=2) {
+				if(nr<r0 || nr>=r1) continue;
+				int nRow = nr*cols;
+				boolean inRun=false;
+				for(int x=left;x<=right;++x) {
+					boolean match = label[nRow+x]==NO_LABEL && cells[nRow+x]==color;
+					if(match && !inRun) {
+						if(top+2>stack.length) stack = Arrays.copyOf(stack, stack.length*2);
+						stack[top++] = nr;
+						stack[top++] = x;
+					}
+					inRun=match;
 				}
 			}
 		}
-
-		if (sum == 0) return new ColorRGB(255, 255, 255);
-
-		return value.mul(1.0f / sum);
 	}
 
-
-	protected boolean doesQuantizedBlockMatch(int color_index, float x, float y) {
-		ColorRGB original_color = takeImageSampleBlock((int) x, (int) y, (int) (x + diameter), (int) (y + diameter));
-		int quantized_color = palette.quantizeIndex(original_color);
-		return (quantized_color == color_index);
+	private static int find(int [] parent,int i) {
+		while(parent[i]!=i) i=parent[i];
+		return i;
 	}
 
+	private static void union(int [] parent,int a,int b) {
+		a = find(parent,a);
+		b = find(parent,b);
+		if(a<b) parent[b]=a;
+		else if(b<a) parent[a]=b;
+	}
 
 	/**
-	 * queue-based flood fill
-	 *
-	 * @param colorIndex
+	 * Fill every blob of one color.  Blobs are drawn in the order they were found.  Each blob is filled with one
+	 * stroke per run of cells, alternating direction from row to row, and the pen only lifts when the next run
+	 * doesn't start next to where the last one ended.
+	 * @param turtle where to draw
+	 * @param colorIndex the palette color to draw
+	 * @param runs every run of cells as row,first column,last column,blob label; sorted by label then row.
 	 */
-	protected void floodFillBlob(int colorIndex, float x, float y) {
-		LinkedList<Point> pointsToVisit = new LinkedList<Point>();
-		pointsToVisit.add(new Point((int)x, (int)y));
-
-		Point a;
-
-		while (!pointsToVisit.isEmpty()) {
-			a = pointsToVisit.removeLast();
-
-			if (getMaskTouched(a.x,a.y)) continue;
-			if (!doesQuantizedBlockMatch(colorIndex, a.x, a.y)) continue;
-			// mark this spot as visited.
-			setMaskTouched(a.x, a.y, (int)(a.x + diameter), (int)(a.y + diameter));
-
-			// if the difference between the last filled pixel and this one is more than diameter*2, pen up, move, pen down.
-			float dx = a.x - lastX;
-			float dy = a.y - lastY;
-			if ((dx * dx + dy * dy) > diameter * diameter * 2.0f) {
-				//Log.message("Jump at "+x+", "+y+"\n");
-				turtle.jumpTo(a.getX(),a.getY());
-			} else {
-				//Log.message("Move to "+x+", "+y+"\n");
-				turtle.moveTo(a.x, a.y);
+	protected void fillBlobs(Turtle turtle,int colorIndex,int [][] runs,byte [] cells,int cols) {
+		turtle.penUp();
+		turtle.setColor(palette.getColor(colorIndex));
+
+		int blobs=0;
+		double lastX=0, lastY=0;
+		int i=0;
+		while(i<runs.length) {
+			int blob = runs[i][3];
+			int blobEnd = i;
+			while(blobEnd<runs.length && runs[blobEnd][3]==blob) ++blobEnd;
+			if(cells[blob]!=colorIndex) {
+				i=blobEnd;
+				continue;
 			}
-			// update the last position.
-			lastX = a.x;
-			lastY = a.y;
-
-			//      if( !getMaskTouched((int)(a.x + diameter), (int)a.y            ))
-			pointsToVisit.add(new Point((int)(a.x + diameter), a.y                 ));
-			//      if( !getMaskTouched((int)(a.x - diameter), (int)a.y            ))
-			pointsToVisit.add(new Point((int)(a.x - diameter), a.y                 ));
-			//      if( !getMaskTouched((int)a.x             , (int)(a.y + diameter)))
-			pointsToVisit.add(new Point(     a.x             , (int)(a.y + diameter)));
-			//      if( !getMaskTouched((int)a.x             , (int)(a.y - diameter)))
-			pointsToVisit.add(new Point(     a.x             , (int)(a.y - diameter)));
+			blobs++;
+
+			boolean reverse=false;
+			while(i<blobEnd) {
+				int row = runs[i][0];
+				int rowEnd = i;
+				while(rowEnd<blobEnd && runs[rowEnd][0]==row) ++rowEnd;
+				double y = yBottom + (row+0.5)*diameter;
+				for(int k=0;k<rowEnd-i;++k) {
+					int [] run = runs[reverse ? rowEnd-1-k : i+k];
+					double xa = xLeft + (run[1]+0.5)*diameter;
+					double xb = xLeft + (run[2]+0.5)*diameter;
+					double x0 = reverse ? xb : xa;
+					double x1 = reverse ? xa : xb;
+					// if the next run is more than one cell away, pen up, move, pen down.
+					double dx = x0-lastX;
+					double dy = y-lastY;
+					if(turtle.isUp() || dx*dx+dy*dy > diameter*diameter*2.0) {
+						turtle.jumpTo(x0,y);
+					} else {
+						turtle.moveTo(x0,y);
+					}
+					turtle.moveTo(x1,y);
+					lastX=x1;
+					lastY=y;
+				}
+				reverse=!reverse;
+				i=rowEnd;
+			}
+			turtle.penUp();
 		}
+		Log.message("Color " + colorIndex + ": " + blobs + " blobs.");
 	}
 
-
 	/**
-	 * find blobs of color in the original image.  Send that to the flood fill system.
-	 *
-	 * @param colorIndex index into the list of colors at the top of the class
+	 * @return every run of cells that belong to one blob as row,first column,last column,blob label, grouped by
+	 * blob in the order the blobs were found, then by row.
 	 */
-	void scanForContiguousBlocks(int colorIndex) {
-		ColorRGB originalColor;
-		int quantized_color;
-
-		float x, y;
-		int z = 0;
-
-		Log.message("Palette color " + palette.getColor(colorIndex).toString() );
-
-		for (y = (int)yBottom; y < yTop; y += diameter) {
-			for (x = (int)xLeft; x < xRight; x += diameter) {
-				if (getMaskTouched(x, y)) continue;
-
-				originalColor = takeImageSampleBlock(x, y, x + diameter, y + diameter);
-				quantized_color = palette.quantizeIndex(originalColor);
-				if (quantized_color == colorIndex) {
-					// found blob
-					floodFillBlob(colorIndex, x, y);
-					z++;
-					//if(z==20)
-					//            return;
-				}
+	protected int [][] findRuns(int [] label,int cols,int rows) {
+		List<List<int[]>> perRow = new ArrayList<List<int[]>>();
+		for(int r=0;r<rows;++r) perRow.add(null);
+		IntStream.range(0, rows).parallel().forEach(r -> {
+			List<int[]> list = new ArrayList<int[]>();
+			int row = r*cols;
+			int c=0;
+			while(c<cols) {
+				int l = label[row+c];
+				int start = c;
+				while(c<cols && label[row+c]==l) ++c;
+				if(l!=NO_LABEL) list.add(new int[] { r, start, c-1, l });
 			}
-		}
-		Log.message("Found " + z + " blobs.");
-	}
-
-	private void scanColor(int i) {
-		// "please change to tool X and press any key to continue"
-		turtle.penUp();
-		turtle.setColor(machine.getPenDownColorDefault());
-		Log.message("Color " + i );
-
-		scanForContiguousBlocks(i);
+			perRow.set(r, list);
+		});
+
+		List<int[]> all = new ArrayList<int[]>();
+		for(List<int[]> list : perRow) all.addAll(list);
+		int [][] runs = all.toArray(new int[all.size()][]);
+		// stable, so the runs of each blob stay in row order.
+		Arrays.sort(runs, (a,b) -> Integer.compare(a[3], b[3]));
+		return runs;
 	}
 
 	/**
-	 * create horizontal lines across the image.  Raise and lower the pen to darken the appropriate areas
+	 * fill each blob of palette color with back and forth lines.
 	 *
 	 * @param img the image to convert.
 	 */
@@ -220,34 +307,30 @@ public boolean convert(TransformedImage img) {
 		//    h.getHistogramOf(img);
 
 		turtle=new Turtle();
-		
-		// create a color mask so we don't repeat any pixels
-		BufferedImage bi = new BufferedImage(img.getSourceImage().getWidth(), img.getSourceImage().getHeight(), BufferedImage.TYPE_INT_RGB);
-		imgMask = new TransformedImage(bi);
-		imgMask.copySettingsFrom(imgChanged);
-		Graphics2D g = bi.createGraphics();
-		g.setPaint(new Color(0, 0, 0));
-		g.fillRect(0, 0, bi.getWidth(), bi.getHeight());
 
 		yBottom = machine.getMarginBottom();
 		yTop    = machine.getMarginTop();
 		xLeft   = machine.getMarginLeft();
 		xRight  = machine.getMarginRight();
-		
-		diameter = (int)( machine.getPenDiameter() );
 
-		imgChanged = img;
+		diameter = Math.max(machine.getPenDiameter(), 0.1f);
+
+		int cols = Math.max(1, (int)Math.ceil((xRight-xLeft)/diameter));
+		int rows = Math.max(1, (int)Math.ceil((yTop-yBottom)/diameter));
 
-		lastX = 0;
-		lastY = 0;
+		byte [] cells = quantizeCells(img,cols,rows);
+		int [] label = labelBlobs(cells,cols,rows);
+		int [][] runs = findRuns(label,cols,rows);
 
-		scanColor(0);  // black
-		scanColor(1);  // red
-		scanColor(2);  // green
-		scanColor(3);  // blue
+		List<Consumer<Turtle>> colors = new ArrayList<Consumer<Turtle>>();
+		for(int i=0;i<colorsToDraw;++i) {
+			final int colorIndex = i;
+			colors.add((t)->fillBlobs(t,colorIndex,runs,cells,cols));
+		}
+		drawInParallel(colors);
 
 		turtle.penUp();
-		
+
 		return true;
 	}
 }
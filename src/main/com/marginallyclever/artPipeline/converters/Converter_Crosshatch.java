@@ -1,7 +1,9 @@
 package com.marginallyclever.artPipeline.converters;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import com.marginallyclever.artPipeline.TransformedImage;
-import com.marginallyclever.artPipeline.imageFilters.Filter_BlackAndWhite;
 import com.marginallyclever.convenience.Histogram;
 import com.marginallyclever.convenience.turtle.Turtle;
 import com.marginallyclever.makelangelo.Translator;
@@ -41,8 +43,7 @@ public void finish() {
 	}
 	
 	public void finish2() {
-		Filter_BlackAndWhite bw = new Filter_BlackAndWhite(255);
-		TransformedImage img = bw.filter(sourceImage);
+		TransformedImage img = getGreyImage();
 
 		turtle = new Turtle();
 		
@@ -102,8 +103,7 @@ protected void finishPass(int [] passes,double angleDeg,TransformedImage img) {
 	}
 	
 	protected void finish1() {
-		Filter_BlackAndWhite bw = new Filter_BlackAndWhite(255);
-		TransformedImage img = bw.filter(sourceImage);
+		TransformedImage img = getGreyImage();
 
 		turtle = new Turtle();
 		
@@ -125,10 +125,8 @@ protected void finish1() {
 		
 		int maxLen = (int)Math.sqrt(x*x+y*y);
 		
-		double [] error0 = new double[(int)Math.ceil(maxLen)];
-		double [] error1 = new double[(int)Math.ceil(maxLen)];
 		Histogram hist = new Histogram();
-		
+		// transparent pixels count as white, the same as when the lines sample the image.
 		hist.getGreyHistogramOf(img.getSourceImage());
 		//*
 		double [] levels = hist.getLevelsMapped( new double[] { 192.0/255.0, 128.0/255.0, 64.0/255.0, 32.0/255.0 } );
@@ -142,49 +140,22 @@ protected void finish1() {
 		
 		boolean useError=false;
 		// vertical
-		double level = levels[0];
-
+		List<double[]> lines = new ArrayList<double[]>();
 		for (y = yStart; y <= yEnd; y += stepSize) {
-			if (flip) {
-				if(!useError) convertAlongLine(xStart, y, xEnd, y, stepSize, level,img);
-				else convertAlongLineErrorTerms(xStart, y, xEnd, y, stepSize, level,error0,error1, img);
-			} else {
-				if(!useError) convertAlongLine(xEnd, y, xStart, y, stepSize, level, img);
-				else convertAlongLineErrorTerms(xEnd, y, xStart, y, stepSize, level,error0,error1, img);
-			}
-			for(int j=0;j<error0.length;++j) {
-				error0[j]=error1[error0.length-1-j];
-				error1[error0.length-1-j]=0;
-			}
+			if (flip) lines.add(new double[] { xStart, y, xEnd, y });
+			else      lines.add(new double[] { xEnd, y, xStart, y });
 			flip = !flip;
 		}
+		drawHatch(lines, stepSize, levels[0], useError, maxLen, img);
 
-		level = levels[1];
-		for(int j=0;j<error0.length;++j) {
-			error0[j]=error1[j]=0;
-		}
-		
 		// horizontal
+		lines = new ArrayList<double[]>();
 		for (x = xStart; x <= xEnd; x += stepSize) {
-			if (flip) {
-				if(!useError) convertAlongLine(x, yStart, x, yEnd, stepSize, level, img);
-				else convertAlongLineErrorTerms(x, yStart, x, yEnd, stepSize, level,error0,error1, img);
-			} else {
-				if(!useError) convertAlongLine(x, yEnd, x, yStart, stepSize, level, img);
-				else convertAlongLineErrorTerms(x, yEnd, x, yStart, stepSize, level,error0,error1, img);
-			}
-			for(int j=0;j<error0.length;++j) {
-				error0[j]=error1[error0.length-1-j];
-				error1[error0.length-1-j]=0;
-			}
+			if (flip) lines.add(new double[] { x, yStart, x, yEnd });
+			else      lines.add(new double[] { x, yEnd, x, yStart });
 			flip = !flip;
 		}
-
-		level = levels[2];
-		for(int j=0;j<error0.length;++j) {
-			error0[j]=error1[j]=0;
-		}
-
+		drawHatch(lines, stepSize, levels[1], useError, maxLen, img);
 
 		// diagonal 1
 		double dy = yEnd - yStart;
@@ -205,6 +176,7 @@ protected void finish1() {
 			steps = 1;
 		double i;
 
+		lines = new ArrayList<double[]>();
 		for (i = 0; i < steps; ++i) {
 			double px = x1 + (x2 - x1) * (i / steps);
 			double py = y1 + (y2 - y1) * (i / steps);
@@ -214,24 +186,11 @@ protected void finish1() {
 			double x4 = px + len;
 			double y4 = py - len;
 
-			if (flip) {
-				if(!useError) convertAlongLine(x3, y3, x4, y4, stepSize, level, img);
-				else convertAlongLineErrorTerms(x3, y3, x4, y4, stepSize, level,error0,error1, img);
-			} else {
-				if(!useError) convertAlongLine(x4, y4, x3, y3, stepSize, level, img);
-				else convertAlongLineErrorTerms(x4, y4, x3, y3, stepSize, level,error0,error1, img);
-			}
-			for(int j=0;j<error0.length;++j) {
-				error0[j]=error1[error0.length-1-j];
-				error1[error0.length-1-j]=0;
-			}
+			if (flip) lines.add(new double[] { x3, y3, x4, y4 });
+			else      lines.add(new double[] { x4, y4, x3, y3 });
 			flip = !flip;
 		}
-
-		level = levels[3];
-		for(int j=0;j<error0.length;++j) {
-			error0[j]=error1[j]=0;
-		}
+		drawHatch(lines, stepSize, levels[2], useError, maxLen, img);
 
 		// diagonal 2
 
@@ -241,6 +200,7 @@ protected void finish1() {
 		x2 = -len;
 		y2 = +len;
 
+		lines = new ArrayList<double[]>();
 		for (i = 0; i < steps; ++i) {
 			double px = x1 + (x2 - x1) * (i / steps);
 			double py = y1 + (y2 - y1) * (i / steps);
@@ -250,18 +210,37 @@ protected void finish1() {
 			double x4 = px - len;
 			double y4 = py - len;
 
-			if (flip) {
-				if(!useError) convertAlongLine(x3, y3, x4, y4, stepSize, level, img);
-				else convertAlongLineErrorTerms(x3, y3, x4, y4, stepSize, level,error0,error1, img);
-			} else {
-				if(!useError) convertAlongLine(x4, y4, x3, y3, stepSize, level, img);
-				else convertAlongLineErrorTerms(x4, y4, x3, y3, stepSize, level,error0,error1, img);
-			}
+			if (flip) lines.add(new double[] { x3, y3, x4, y4 });
+			else      lines.add(new double[] { x4, y4, x3, y3 });
+			flip = !flip;
+		}
+		drawHatch(lines, stepSize, levels[3], useError, maxLen, img);
+	}
+
+	/**
+	 * Draw one set of hatch lines.  Without error terms the lines don't depend on each other, so they are all
+	 * drawn at once.
+	 * @param lines x0,y0,x1,y1 of every line, in drawing order.
+	 * @param maxLen the longest a line can be.
+	 */
+	protected void drawHatch(List<double[]> lines,double stepSize,double level,boolean useError,int maxLen,TransformedImage img) {
+		if(!useError) {
+			drawRowsInParallel(turtle, lines.size(), (t,i) -> {
+				double [] l = lines.get(i);
+				convertAlongLine(t, l[0], l[1], l[2], l[3], stepSize, level, img);
+			});
+			return;
+		}
+
+		// the error terms carry from each line to the next.
+		double [] error0 = new double[(int)Math.ceil(maxLen)];
+		double [] error1 = new double[(int)Math.ceil(maxLen)];
+		for( double [] l : lines ) {
+			convertAlongLineErrorTerms(l[0], l[1], l[2], l[3], stepSize, level, error0, error1, img);
 			for(int j=0;j<error0.length;++j) {
 				error0[j]=error1[error0.length-1-j];
 				error1[error0.length-1-j]=0;
 			}
-			flip = !flip;
 		}
 	}
 }
@@ -1,46 +1,43 @@
 package com.marginallyclever.artPipeline.converters;
 
 
-import java.util.Arrays;
-import java.util.Comparator;
+import java.util.Collections;
+import java.util.PriorityQueue;
+import java.util.stream.IntStream;
 
 import com.marginallyclever.artPipeline.TransformedImage;
-import com.marginallyclever.artPipeline.imageFilters.Filter_BlackAndWhite;
 import com.marginallyclever.convenience.log.Log;
 import com.marginallyclever.convenience.turtle.Turtle;
 import com.marginallyclever.makelangelo.Translator;
 
 /**
  * Attempt to generate a magic circle weaving pattern as seen in https://github.com/i-make-robots/weaving_algorithm
+ * <p>
+ * The circle is covered with a grid of cells no smaller than the pen.  Every chord between two pins is rasterized
+ * once into a list of the cells it crosses.  Each round the darkest chord is drawn and its darkness is taken out of
+ * the cells under it, so later chords don't pile ink on the same spot.  Scores can only go down, so chords wait in
+ * a max-heap with their last known score and are only measured again when they reach the top.
  *
  * @author Dan Royer
  */
 public class Converter_MagicCircle extends ImageConverter {
 	private static int numberOfPoints = 200;
 	private static int numberToDraw = 10000;
+	// cells across the grid.  also keeps every cell index small enough for a char.
+	private static final int MAX_GRID_SIZE = 256;
+
+	// darkness left in each cell, 0...255
+	private float [] darkness;
+	// cells crossed by chord c are cells[cellStart[c]] to cells[cellStart[c+1]-1]
+	private char [] cells;
+	private int [] cellStart;
+	// pins at either end of each chord
+	private int [] chordA, chordB;
 
 	@Override
 	public String getName() {
 		return Translator.get("MagicCircleName");
 	}
-
-	/**
-	 * @author Dan Royer
-	 */
-	private class LineIntensity {
-		public int i,j;
-		public int intensity=512;
-	}
-
-	/**
-	 * @author Dan Royer
-	 */
-	public class IntensityComparator implements Comparator<LineIntensity> {
-		@Override
-		public int compare(LineIntensity o1, LineIntensity o2) {
-			return (o1.intensity - o2.intensity);
-		}
-	}
 	
 	/**
 	 * create a spiral across the image.  raise and lower the pen to darken the appropriate areas
@@ -48,13 +45,10 @@ public int compare(LineIntensity o1, LineIntensity o2) {
 	@Override
 	public void finish() {
 		// black and white
-		Filter_BlackAndWhite bw = new Filter_BlackAndWhite(255);
-		TransformedImage img = bw.filter(sourceImage);
+		TransformedImage img = getGreyImage();
 
 		turtle = new Turtle();
 		
-		int numLines = numberOfPoints * numberOfPoints / 2;
-		LineIntensity [] intensities = new LineIntensity[numLines*2];
 		double [] px = new double[numberOfPoints];
 		double [] py = new double[numberOfPoints];
 		
@@ -65,55 +59,134 @@ public void finish() {
 		double h = machine.getMarginHeight()/2.0f;
 		double maxr = ( h < w ? h : w );
 
-		
-		int i,j,k;
+		int i;
 		for(i=0;i<numberOfPoints;++i) {
 			double d = Math.PI * 2.0 * (double)i/(double)numberOfPoints;
 			px[i] = Math.sin(d) * maxr;
 			py[i] = Math.cos(d) * maxr;
 		}
 
-		for(i=0;i<numberOfPoints*numberOfPoints;++i) {
-			intensities[i] = new LineIntensity();
-		}
-		
-		// go around the circle, calculating intensities
-		for(i=0;i<numberOfPoints;++i) {
-			for(j=i+1;j<numberOfPoints;++j) {
-				int index = i*numberOfPoints + j;
-				double dx = px[j] - px[i];
-				double dy = py[j] - py[i];
-				double len = Math.floor( Math.sqrt(dx*dx+dy*dy) / toolDiameter );
-				
-				// measure how dark is the image under this line.
-				double intensity = 0;
-				for(k=0;k<len;++k) {
-					double s = (double)k/len; 
-					double fx = px[i] + dx * s;
-					double fy = py[i] + dy * s;
-					intensity += img.sample3x3((float)fx, (float)fy);
-				}
-				intensities[index].intensity = (int)( intensity / len );
-				intensities[index].i=i;
-				intensities[index].j=j;
-			}
+		// one cell per pen width, unless that makes too many.
+		final int gridSize = (int)Math.max(1, Math.min(MAX_GRID_SIZE, Math.ceil(2.0*maxr/toolDiameter)));
+		final double cellSize = 2.0*maxr/gridSize;
+		measureDarkness(img,gridSize,cellSize,maxr);
+		rasterizeChords(px,py,gridSize,cellSize,maxr);
+
+		// how much darkness one line takes out of a cell it crosses.
+		float lineDarkness = (float)Math.min(255.0, 255.0 * toolDiameter / cellSize);
+
+		int numChords = chordA.length;
+		PriorityQueue<Long> heap = new PriorityQueue<Long>(Math.max(1,numChords),Collections.reverseOrder());
+		for(int c=0;c<numChords;++c) {
+			float score = score(c);
+			if(score>0) heap.add(encode(score,c));
 		}
-		
-		// sort by intensity, descending.
-		Arrays.sort(intensities, new IntensityComparator());
+		Log.message(numChords+" chords, "+cells.length+" cells crossed.");
 
 		// draw darkest lines first.
-		turtle = new Turtle();
-		
-		for(k=0;k<numberToDraw;++k) {
-			i = intensities[k].i;
-			j = intensities[k].j;
-			Log.message(""+intensities[k].intensity);
-			assert(intensities[k].intensity<255);
-			turtle.jumpTo(px[i], py[i]);
-			turtle.moveTo(px[j],py[j]);
+		int drawn=0;
+		while(drawn<numberToDraw && !heap.isEmpty()) {
+			int c = (int)(long)heap.poll();
+			float score = score(c);
+			if(score<=0) continue;
+			if(!heap.isEmpty() && score < decodeScore(heap.peek())) {
+				// something else is darker now.  put this one back with its real score.
+				heap.add(encode(score,c));
+				continue;
+			}
+
+			turtle.jumpTo(px[chordA[c]], py[chordA[c]]);
+			turtle.moveTo(px[chordB[c]], py[chordB[c]]);
+			for(int k=cellStart[c];k<cellStart[c+1];++k) {
+				int cell = cells[k];
+				darkness[cell] = Math.max(0, darkness[cell]-lineDarkness);
+			}
+			++drawn;
 		}
 		turtle.penUp();
+		Log.message(drawn+" lines.");
+	}
+
+	// sample the image once per cell.
+	private void measureDarkness(TransformedImage img,int gridSize,double cellSize,double maxr) {
+		darkness = new float[gridSize*gridSize];
+		IntStream.range(0, gridSize).parallel().forEach(gy -> {
+			double y0 = gy*cellSize - maxr;
+			for(int gx=0;gx<gridSize;++gx) {
+				double x0 = gx*cellSize - maxr;
+				darkness[gy*gridSize+gx] = 255 - img.sample(x0, y0, x0+cellSize, y0+cellSize);
+			}
+		});
+	}
+
+	/**
+	 * Bresenham every chord into the shared cell list.  Chord lengths are known up front, so the lists are filled
+	 * in parallel straight into their final place.
+	 */
+	private void rasterizeChords(double [] px,double [] py,int gridSize,double cellSize,double maxr) {
+		int n = numberOfPoints;
+		int numChords = n*(n-1)/2;
+		chordA = new int[numChords];
+		chordB = new int[numChords];
+		cellStart = new int[numChords+1];
+		int [] gx = new int[n];
+		int [] gy = new int[n];
+		for(int i=0;i<n;++i) {
+			gx[i] = Math.min(gridSize-1, (int)((px[i]+maxr)/cellSize));
+			gy[i] = Math.min(gridSize-1, (int)((py[i]+maxr)/cellSize));
+		}
+
+		int c=0;
+		long total=0;
+		for(int i=0;i<n;++i) {
+			for(int j=i+1;j<n;++j) {
+				chordA[c]=i;
+				chordB[c]=j;
+				cellStart[c]=(int)total;
+				total += Math.max(Math.abs(gx[j]-gx[i]), Math.abs(gy[j]-gy[i])) + 1;
+				++c;
+			}
+		}
+		if(total>Integer.MAX_VALUE) throw new IllegalStateException("Too many pins: "+n);
+		cellStart[numChords]=(int)total;
+		cells = new char[(int)total];
+
+		IntStream.range(0, numChords).parallel().forEach(k -> {
+			int x0 = gx[chordA[k]], y0 = gy[chordA[k]];
+			int x1 = gx[chordB[k]], y1 = gy[chordB[k]];
+			int dx = Math.abs(x1-x0), sx = x0<x1 ? 1 : -1;
+			int dy = -Math.abs(y1-y0), sy = y0<y1 ? 1 : -1;
+			int err = dx+dy;
+			int index = cellStart[k];
+			int steps = cellStart[k+1]-index;
+			// one cell per step along the major axis.
+			for(int s=0;s<steps;++s) {
+				cells[index++] = (char)(y0*gridSize+x0);
+				int e2 = 2*err;
+				if(e2>=dy) { err+=dy; x0+=sx; }
+				if(e2<=dx) { err+=dx; y0+=sy; }
+			}
+		});
+	}
+
+	// average darkness left under chord c.
+	private float score(int c) {
+		int start = cellStart[c];
+		int end = cellStart[c+1];
+		float sum=0;
+		for(int k=start;k<end;++k) {
+			sum += darkness[cells[k]];
+		}
+		return sum / (end-start);
+	}
+
+	// non-negative floats sort the same as their bits, so the score can ride in the top half of the key.
+	private static long encode(float score,int chord) {
+		return ((long)Float.floatToIntBits(score)<<32) | chord;
+	}
+
+	private static float decodeScore(long key) {
+		return Float.intBitsToFloat((int)(key>>>32));
 	}
 }
 
@@ -1,10 +1,10 @@
 package com.marginallyclever.artPipeline.converters;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.ListIterator;
 
 import com.marginallyclever.artPipeline.TransformedImage;
-import com.marginallyclever.artPipeline.imageFilters.Filter_BlackAndWhite;
 import com.marginallyclever.convenience.LineInterpolator;
 import com.marginallyclever.convenience.LineInterpolatorSinCurve;
 import com.marginallyclever.convenience.Point2D;
@@ -53,7 +53,7 @@ public void setDirectionIndex(int value) {
 	}
 
 	
-	protected void convertLine(TransformedImage img,float spaceBetweenLines,float halfStep,Point2D a,Point2D b) {
+	protected void convertLine(Turtle turtle,TransformedImage img,float spaceBetweenLines,float halfStep,Point2D a,Point2D b) {
 		LineInterpolatorSinCurve line = new LineInterpolatorSinCurve(a,b);
 		line.setAmplitude(0.4);
 		
@@ -140,13 +140,13 @@ protected void convertLine(TransformedImage img,float spaceBetweenLines,float ha
 								zi2 = zList.listIterator(ziStart);
 								for(zc=ziStart; zc<ziEnd; ++zc) {
 									z = zi2.next();
-									lineInternal(maxPulseNow,z,line,zc*iterStepSize);
+									lineInternal(turtle,maxPulseNow,z,line,zc*iterStepSize);
 								}
 							} else {
 								zi2 = zList.listIterator(ziEnd);
 								for(zc=ziEnd-1; zc>=ziStart; --zc) {
 									z = zi2.previous();
-									lineInternal(maxPulseNow,z,line,zc*iterStepSize);
+									lineInternal(turtle,maxPulseNow,z,line,zc*iterStepSize);
 								}
 							}
 							direction=-direction;
@@ -159,7 +159,7 @@ protected void convertLine(TransformedImage img,float spaceBetweenLines,float ha
 		}
 	}
 	
-	protected void lineInternal(double maxPulseNow,double z,LineInterpolator line,double t) {
+	protected void lineInternal(Turtle turtle,double maxPulseNow,double z,LineInterpolator line,double t) {
 		double pulseSize = maxPulseNow * z;
 		Point2D p = new Point2D();
 		Point2D n = new Point2D();
@@ -172,8 +172,7 @@ protected void lineInternal(double maxPulseNow,double z,LineInterpolator line,do
 
 	@Override
 	public void finish() {
-		Filter_BlackAndWhite bw = new Filter_BlackAndWhite(255);
-		TransformedImage img = bw.filter(sourceImage);
+		TransformedImage img = getGreyImage();
 		
 		double yBottom = machine.getMarginBottom();
 		double yTop    = machine.getMarginTop();
@@ -187,32 +186,38 @@ public void finish() {
 		float halfStep = machine.getPenDiameter();
 		float spaceBetweenLines = blockScale;
 
-		// from top to bottom of the image...
-		Point2D a = new Point2D();
-		Point2D b = new Point2D();
-		
 		turtle = new Turtle();
 		
 		Log.message("Moire start");
+		// from top to bottom of the image...
+		List<Double> lines = new ArrayList<Double>();
 		if (direction == 0) {
 			// horizontal
 			yBottom -= h;
 			yTop    += h;
-			for (double y = yBottom; y < yTop; y += spaceBetweenLines) {
-				a.set(xRight,y);
-				b.set(xLeft,y);
-				convertLine(img,spaceBetweenLines,halfStep,a,b);
-			}
+			for (double y = yBottom; y < yTop; y += spaceBetweenLines) lines.add(y);
 		} else {
 			// vertical
 			xLeft  -= w;
 			xRight += w;
-			for (double x = xLeft; x < xRight; x += spaceBetweenLines) {
-				a.set(x,yTop);
-				b.set(x,yBottom);
-				convertLine(img,spaceBetweenLines,halfStep,a,b);
-			}
+			for (double x = xLeft; x < xRight; x += spaceBetweenLines) lines.add(x);
 		}
+
+		// the lines don't depend on each other.  draw them all at once.
+		final double top = yTop, bottom = yBottom, left = xLeft, right = xRight;
+		drawRowsInParallel(turtle, lines.size(), (t,i) -> {
+			double v = lines.get(i);
+			Point2D a = new Point2D();
+			Point2D b = new Point2D();
+			if (direction == 0) {
+				a.set(right,v);
+				b.set(left,v);
+			} else {
+				a.set(v,top);
+				b.set(v,bottom);
+			}
+			convertLine(t,img,spaceBetweenLines,halfStep,a,b);
+		});
 		Log.message("Moire end");
 	}
 }
@@ -1,7 +1,9 @@
 package com.marginallyclever.artPipeline.converters;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import com.marginallyclever.artPipeline.TransformedImage;
-import com.marginallyclever.artPipeline.imageFilters.Filter_BlackAndWhite;
 import com.marginallyclever.convenience.Point2D;
 import com.marginallyclever.convenience.turtle.Turtle;
 import com.marginallyclever.makelangelo.Translator;
@@ -45,7 +47,7 @@ public void setDirectionIndex(int value) {
 		direction = value;
 	}
 	
-	protected void convertLine(TransformedImage img,float zigZagSpacing,float halfStep,Point2D a,Point2D b) {		
+	protected void convertLine(Turtle turtle,TransformedImage img,float zigZagSpacing,float halfStep,Point2D a,Point2D b) {		
 		Point2D dir = new Point2D(b.x-a.x,b.y-a.y);
 		double len = dir.length();
 		dir.scale(1/len);
@@ -80,8 +82,7 @@ protected void convertLine(TransformedImage img,float zigZagSpacing,float halfSt
 	 */
 	@Override
 	public void finish() {
-		Filter_BlackAndWhite bw = new Filter_BlackAndWhite(255);
-		TransformedImage img = bw.filter(sourceImage);
+		TransformedImage img = getGreyImage();
 		
 		double yBottom = machine.getMarginBottom();
 		double yTop    = machine.getMarginTop()   ;
@@ -96,44 +97,34 @@ public void finish() {
 
 		// from top to bottom of the image...
 		double x, y = 0;
-		int i=0;
-
-		Point2D a = new Point2D();
-		Point2D b = new Point2D();
 		
 		turtle = new Turtle();
 		
+		// where each line goes.  the rows are then drawn all at once.
+		List<Double> lines = new ArrayList<Double>();
 		if (direction == 0) {
 			// horizontal
-			for (y = yBottom; y < yTop; y += spaceBetweenLines) {
-				++i;
-
-				if ((i % 2) == 0) {
-					a.set(xLeft,y);
-					b.set(xRight,y);
-					convertLine(img,zigZagSpacing,halfStep,a,b);
-				} else {
-					a.set(xRight,y);
-					b.set(xLeft,y);
-					convertLine(img,zigZagSpacing,halfStep,a,b);
-				}
-			}
+			for (y = yBottom; y < yTop; y += spaceBetweenLines) lines.add(y);
 		} else {
 			// vertical
-			for (x = xLeft; x < xRight; x += spaceBetweenLines) {
-				++i;
+			for (x = xLeft; x < xRight; x += spaceBetweenLines) lines.add(x);
+		}
 
-				if ((i % 2) == 0) {
-					a.set(x,yBottom);
-					b.set(x,yTop);
-					convertLine(img,zigZagSpacing,halfStep,a,b);
-				} else {
-					a.set(x,yTop);
-					b.set(x,yBottom);
-					convertLine(img,zigZagSpacing,halfStep,a,b);
-				}
+		drawRowsInParallel(turtle, lines.size(), (t,i) -> {
+			double v = lines.get(i);
+			Point2D a = new Point2D();
+			Point2D b = new Point2D();
+			// every other line goes the other way
+			boolean forward = (i % 2) == 1;
+			if (direction == 0) {
+				a.set(forward ? xLeft : xRight, v);
+				b.set(forward ? xRight : xLeft, v);
+			} else {
+				a.set(v, forward ? yBottom : yTop);
+				b.set(v, forward ? yTop : yBottom);
 			}
-		}
+			convertLine(t,img,zigZagSpacing,halfStep,a,b);
+		});
 	}
 }
 
@@ -1,7 +1,6 @@
 package com.marginallyclever.artPipeline.converters;
 
 import com.marginallyclever.artPipeline.TransformedImage;
-import com.marginallyclever.artPipeline.imageFilters.Filter_BlackAndWhite;
 import com.marginallyclever.convenience.turtle.Turtle;
 import com.marginallyclever.makelangelo.Translator;
 
@@ -25,8 +24,7 @@ public ImageConverterPanel getPanel() {
 	
 	public void finish() {
 		// The picture might be in color.  Smash it to 255 shades of grey.
-		Filter_BlackAndWhite bw = new Filter_BlackAndWhite(255);
-		TransformedImage img = bw.filter(sourceImage);
+		TransformedImage img = getGreyImage();
 
 
 		float stepSize = machine.getPenDiameter()*5;
@@ -1,7 +1,6 @@
 package com.marginallyclever.artPipeline.converters;
 
-import com.marginallyclever.artPipeline.TransformedImage;
-import com.marginallyclever.artPipeline.imageFilters.Filter_BlackAndWhite;
+import com.marginallyclever.artPipeline.PolarImage;
 import com.marginallyclever.convenience.log.Log;
 import com.marginallyclever.convenience.turtle.Turtle;
 import com.marginallyclever.makelangelo.Translator;
@@ -37,9 +36,6 @@ public ImageConverterPanel getPanel() {
 	
 	@Override
 	public void finish() {
-		Filter_BlackAndWhite bw = new Filter_BlackAndWhite(255);
-		TransformedImage img = bw.filter(sourceImage);
-
 		// if the image were projected on the paper, where would the top left corner of the image be in paper space?
 		// image(0,0) is (-paperWidth/2,-paperHeight/2)*paperMargin
 
@@ -81,6 +77,9 @@ public void finish() {
 		double flipSum;
 		double pulseSize = rStep*0.5 - machine.getPenDiameter()/2;//r_step * 0.6 * scale_z;
 
+		// black and white, resampled around the chosen corner.
+		PolarImage img = getPolarImage("grey", this::getGreyImage, cx, cy, rMax);
+
 		turtle = new Turtle();
 		turtle.lock();
 		Log.message("Sandy started.");
@@ -110,7 +109,7 @@ public void finish() {
 					last_x=x;
 					last_y=y;
 					// read a block of the image and find the average intensity in this block
-					z = img.sample( x-pulseSize/2.0, y-pulseSize/2.0,x+pulseSize/2.0,y +pulseSize/2.0 );
+					z = img.sample( r, t_dir*t, pulseSize/2.0 );
 					// scale the intensity value
 					if(z<0) z=0;
 					if(z>255) z=255;
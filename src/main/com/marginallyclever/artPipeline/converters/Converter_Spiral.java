@@ -1,7 +1,6 @@
 package com.marginallyclever.artPipeline.converters;
 
-import com.marginallyclever.artPipeline.TransformedImage;
-import com.marginallyclever.artPipeline.imageFilters.Filter_BlackAndWhite;
+import com.marginallyclever.artPipeline.PolarImage;
 import com.marginallyclever.convenience.log.Log;
 import com.marginallyclever.convenience.turtle.Turtle;
 import com.marginallyclever.makelangelo.Translator;
@@ -38,10 +37,6 @@ public void setToCorners(boolean arg0) {
 	 */
 	@Override
 	public void finish() {
-		// black and white
-		Filter_BlackAndWhite bw = new Filter_BlackAndWhite(255);
-		TransformedImage img = bw.filter(sourceImage);
-
 		double toolDiameter = machine.getPenDiameter();
 
 		int i, j;
@@ -63,6 +58,9 @@ public void finish() {
 			maxr = (float)( h < w ? h : w );
 		}
 
+		// black and white, resampled around the center of the paper.
+		PolarImage img = getPolarImage("grey", this::getGreyImage, 0, 0, maxr);
+
 		turtle = new Turtle();
 		
 		double r = maxr, f;
@@ -83,11 +81,7 @@ public void finish() {
 				
 				boolean isInside = isInsidePaperMargins(fx, fy);
 				if(isInside) {
-					try {
-						z = img.sample3x3(fx, fy);
-					} catch(Exception e) {
-						e.printStackTrace();
-					}
+					z = img.sample(r, f);
 					
 					if(z<level) turtle.penDown();
 					else turtle.penUp();
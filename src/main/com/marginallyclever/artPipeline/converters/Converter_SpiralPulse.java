@@ -1,7 +1,6 @@
 package com.marginallyclever.artPipeline.converters;
 
-import com.marginallyclever.artPipeline.TransformedImage;
-import com.marginallyclever.artPipeline.imageFilters.Filter_BlackAndWhite;
+import com.marginallyclever.artPipeline.PolarImage;
 import com.marginallyclever.convenience.log.Log;
 import com.marginallyclever.convenience.turtle.Turtle;
 import com.marginallyclever.makelangelo.Translator;
@@ -34,10 +33,6 @@ public ImageConverterPanel getPanel() {
 	 */
 	@Override
 	public void finish() {
-		// black and white
-		Filter_BlackAndWhite bw = new Filter_BlackAndWhite(255);
-		TransformedImage img = bw.filter(sourceImage);
-
 		double toolDiameter = machine.getPenDiameter();
 
 		float maxr;
@@ -68,6 +63,9 @@ public void finish() {
 		int z = 0;
 		float r2,scale_z,pulse_size,nx,ny;
 
+		// black and white, resampled around the center of the paper.
+		PolarImage img = getPolarImage("grey", this::getGreyImage, 0, 0, maxr);
+
 		turtle = new Turtle();
 		
 		while (r > toolDiameter) {
@@ -85,7 +83,7 @@ public void finish() {
 				// clip to paper boundaries
 				if( isInsidePaperMargins(fx, fy) )
 				{
-					z = img.sample( fx - zigZagSpacing, fy - halfStep, fx + zigZagSpacing, fy + halfStep);
+					z = img.sample(r2, f, halfStep);
 					scale_z = (255.0f - z) / 255.0f;
 					pulse_size = halfStep * scale_z;
 					nx = (halfStep+pulse_size*n) * fx / r2;
@@ -1,7 +1,11 @@
 package com.marginallyclever.artPipeline.converters;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import com.marginallyclever.artPipeline.PolarImage;
 import com.marginallyclever.artPipeline.TransformedImage;
-import com.marginallyclever.artPipeline.imageFilters.Filter_CMYK;
 import com.marginallyclever.convenience.ColorRGB;
 import com.marginallyclever.convenience.log.Log;
 import com.marginallyclever.convenience.turtle.Turtle;
@@ -41,24 +45,24 @@ public void setToCorners(boolean arg0) {
 	 */
 	@Override
 	public void finish() {
-		Filter_CMYK cmyk = new Filter_CMYK();
-		cmyk.filter(sourceImage);
-
 		double separation; 
 		float h2 = (float)machine.getPaperHeight();
 		float w2 = (float)machine.getPaperWidth();
 		separation = (w2<h2) ? w2/4 : h2/4;
 
 		turtle = new Turtle();
-		
-		Log.message("Yellow...");		outputChannel(cmyk.getY(),new ColorRGB(255,255,  0),255.0*1.0,Math.cos(Math.toRadians(45    ))*separation,Math.sin(Math.toRadians(45    ))*separation);
-		Log.message("Cyan...");			outputChannel(cmyk.getC(),new ColorRGB(  0,255,255),255.0*1.0,Math.cos(Math.toRadians(45+ 90))*separation,Math.sin(Math.toRadians(45+ 90))*separation);
-		Log.message("Magenta...");		outputChannel(cmyk.getM(),new ColorRGB(255,  0,255),255.0*1.0,Math.cos(Math.toRadians(45+180))*separation,Math.sin(Math.toRadians(45+180))*separation);
-		Log.message("Black...");		outputChannel(cmyk.getK(),new ColorRGB(  0,  0,  0),255.0*1.0,Math.cos(Math.toRadians(45+270))*separation,Math.sin(Math.toRadians(45+270))*separation);
+
+		Log.message("Yellow, cyan, magenta, black...");
+		List<Consumer<Turtle>> channels = new ArrayList<Consumer<Turtle>>();
+		channels.add((t)->outputChannel(t,"cmyk-y",()->getCMYKChannels().getY(),new ColorRGB(255,255,  0),255.0*1.0,Math.cos(Math.toRadians(45    ))*separation,Math.sin(Math.toRadians(45    ))*separation));
+		channels.add((t)->outputChannel(t,"cmyk-c",()->getCMYKChannels().getC(),new ColorRGB(  0,255,255),255.0*1.0,Math.cos(Math.toRadians(45+ 90))*separation,Math.sin(Math.toRadians(45+ 90))*separation));
+		channels.add((t)->outputChannel(t,"cmyk-m",()->getCMYKChannels().getM(),new ColorRGB(255,  0,255),255.0*1.0,Math.cos(Math.toRadians(45+180))*separation,Math.sin(Math.toRadians(45+180))*separation));
+		channels.add((t)->outputChannel(t,"cmyk-k",()->getCMYKChannels().getK(),new ColorRGB(  0,  0,  0),255.0*1.0,Math.cos(Math.toRadians(45+270))*separation,Math.sin(Math.toRadians(45+270))*separation));
+		drawInParallel(channels);
 		Log.message("Finishing...");
 	}
 
-	protected void outputChannel(TransformedImage img,ColorRGB newColor,double cutoff,double cx,double cy) {
+	protected void outputChannel(Turtle turtle,String channel,Supplier<TransformedImage> channelImage,ColorRGB newColor,double cutoff,double cx,double cy) {
 		turtle.setColor(newColor);
 		
 		double toolDiameter = machine.getPenDiameter();
@@ -82,6 +86,7 @@ protected void outputChannel(TransformedImage img,ColorRGB newColor,double cutof
 			maxr = (float)( h < w ? h : w );
 		}
 
+		PolarImage img = getPolarImage(channel, channelImage, cx, cy, maxr);
 		
 		double r = maxr, f;
 		double fx, fy;
@@ -108,11 +113,7 @@ protected void outputChannel(TransformedImage img,ColorRGB newColor,double cutof
 				}
 				
 				if(isInside) {
-					try {
-						z = img.sample3x3(fx, fy);
-					} catch(Exception e) {
-						e.printStackTrace();
-					}
+					z = img.sample(r, f);
 					
 					if(z<level) {
 						turtle.penDown();
@@ -2,14 +2,12 @@
 
 import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.locks.ReentrantLock;
 
 import com.jogamp.opengl.GL2;
 import com.marginallyclever.artPipeline.TransformedImage;
-import com.marginallyclever.artPipeline.imageFilters.Filter_BlackAndWhite;
-import com.marginallyclever.convenience.Point2D;
 import com.marginallyclever.convenience.log.Log;
 import com.marginallyclever.convenience.turtle.Turtle;
 import com.marginallyclever.makelangelo.Translator;
@@ -28,7 +26,25 @@
  * @since 7.0.0?
  */
 public class Converter_VoronoiStippling extends ImageConverter implements MakelangeloRobotDecorator {
-	private ReentrantLock lock = new ReentrantLock();
+	/**
+	 * Everything render() draws, copied out of the working data.  Never changed once published, so render() reads
+	 * whichever one is current without locking and the converter never waits for render().
+	 */
+	private static class Snapshot {
+		// cell centers and darkness
+		final double[] x, y, weight;
+		// built fresh by every adjustCentroids() and not touched after.
+		final QuadGraph tree;
+
+		Snapshot(double[] x, double[] y, double[] weight, QuadGraph tree) {
+			this.x = x;
+			this.y = y;
+			this.weight = weight;
+			this.tree = tree;
+		}
+	}
+
+	private volatile Snapshot snapshot = null;
 
 	private VoronoiTesselator voronoiTesselator = new VoronoiTesselator();
 	private ArrayList<VoronoiCell> cells = new ArrayList<VoronoiCell>();
@@ -38,6 +54,9 @@ public class Converter_VoronoiStippling extends ImageConverter implements Makela
 	private static float maxDotSize = 5.0f;
 	private static float minDotSize = 1.0f;
 	private static float cutoff = 0;
+	// what the cells were made from.  if none of it changes the cells can be kept.
+	private TransformedImage cellsImage = null;
+	private double[] cellsMargins = null;
 	private double[] xValuesIn = null;
 	private double[] yValuesIn = null;
 	private double yMin, yMax;
@@ -176,9 +195,9 @@ public ImageConverterPanel getPanel() {
 
 	@Override
 	public void setImage(TransformedImage img) {
+		super.setImage(img);
 		// make black & white
-		Filter_BlackAndWhite bw = new Filter_BlackAndWhite(255);
-		sourceImage = bw.filter(img);
+		sourceImage = getGreyImage();
 		
 		yMin = machine.getMarginBottom();
 		yMax = machine.getMarginTop();
@@ -186,7 +205,24 @@ public void setImage(TransformedImage img) {
 		xMax = machine.getMarginRight();
 
 		keepIterating=true;
-		restart();
+		if(canKeepCells()) {
+			// only the dot sizes or cutoff changed.  keep the cells and pick up where we left off.
+			Log.message("Reusing cells");
+			synchronized(this) {
+				publishSnapshot();
+			}
+		} else {
+			restart();
+		}
+	}
+
+	/**
+	 * @return true if the cells were evolved from this same image, cell count, and margins.
+	 */
+	private boolean canKeepCells() {
+		return cellsImage == sourceImage
+				&& cells.size() == numCells
+				&& Arrays.equals(cellsMargins, new double[] { xMin, xMax, yMin, yMax });
 	}
 	
 	public boolean iterate() {
@@ -201,13 +237,20 @@ public void restart() {
 			loadAndSaveImage.reconvert();
 			return;
 		}
-		
-		while(lock.isLocked());
-		lock.lock();
-		iterations=0;
-		keepIterating=true;
-		initializeCells(0.5);
-		lock.unlock();
+		if(canKeepCells()) {
+			// only the dot sizes or cutoff changed.  keep evolving the same cells and show the new dots.
+			synchronized(this) {
+				publishSnapshot();
+			}
+			return;
+		}
+
+		synchronized(this) {
+			iterations=0;
+			keepIterating=true;
+			initializeCells(0.5);
+			publishSnapshot();
+		}
 	}
 
 	@Override
@@ -220,8 +263,8 @@ public void finish() {
 	public void render(GL2 gl2) {
 		super.render(gl2);
 		
-		while(lock.isLocked());
-		lock.lock();
+		Snapshot now = snapshot;
+		if(now==null) return;
 		
 		// draw cell edges
 		if(drawBorders) {/*
@@ -234,15 +277,31 @@ public void render(GL2 gl2) {
 				}
 				gl2.glEnd();
 			}*/
-			if(tree!=null) tree.render(gl2);
+			if(now.tree!=null) now.tree.render(gl2);
 		}
 
 		//enderPolygons(gl2);
 		//renderFirstCellBounds(gl2);  // bounds of first cell
-		renderDots(gl2);  // dots sized by darkness
-		//renderPoints(gl2);  // tiny points
-		
-		lock.unlock();
+		renderDots(gl2,now);  // dots sized by darkness
+		//renderPoints(gl2,now);  // tiny points
+	}
+
+	/**
+	 * Copy what render() needs into a new {@link Snapshot} and swap it in.  Call while holding the lock, so the
+	 * cells can't change part way through the copy.
+	 */
+	private void publishSnapshot() {
+		int size = cells.size();
+		double[] x = new double[size];
+		double[] y = new double[size];
+		double[] weight = new double[size];
+		for(int i=0;i<size;++i) {
+			VoronoiCell c = cells.get(i);
+			x[i] = c.centroid.x;
+			y[i] = c.centroid.y;
+			weight[i] = c.weight;
+		}
+		snapshot = new Snapshot(x,y,weight,tree);
 	}
 
 	protected void renderPolygons(GL2 gl2) {
@@ -278,27 +337,22 @@ protected void renderFirstCellBounds(GL2 gl2) {
 		gl2.glEnd();
 	}
 	
-	protected void renderPoints(GL2 gl2) {
+	private void renderPoints(GL2 gl2,Snapshot now) {
 		gl2.glColor3f(0, 0, 0);
 		gl2.glBegin(GL2.GL_POINTS);
-		Iterator<VoronoiCell> ci = cells.iterator();
-		while(ci.hasNext()) {
-			VoronoiCell c = ci.next();
-			Point2D p = c.centroid;
-			gl2.glVertex2d(p.x,p.y);
+		for(int i=0;i<now.x.length;++i) {
+			gl2.glVertex2d(now.x[i],now.y[i]);
 		}
 		gl2.glEnd();
 	}
 	
-	protected void renderDots(GL2 gl2) {
+	private void renderDots(GL2 gl2,Snapshot now) {
 		float scale = maxDotSize - minDotSize;
 		gl2.glColor3f(0, 0, 0);
-		Iterator<VoronoiCell> ci = cells.iterator();
-		while(ci.hasNext()) {
-			VoronoiCell c = ci.next();
-			double x = c.centroid.x;
-			double y = c.centroid.y;
-			double val = c.weight/255.0;
+		for(int i=0;i<now.x.length;++i) {
+			double x = now.x[i];
+			double y = now.y[i];
+			double val = now.weight[i]/255.0;
 			if(val>cutoff) {
 				double r = val * scale;
 				gl2.glBegin(GL2.GL_TRIANGLE_FAN);
@@ -340,6 +394,8 @@ protected void initializeCells(double minDistanceBetweenSites) {
 
 
 		voronoiTesselator.Init(minDistanceBetweenSites);
+		cellsImage = sourceImage;
+		cellsMargins = new double[] { xMin, xMax, yMin, yMax };
 	}
 
 
@@ -349,16 +405,13 @@ protected void initializeCells(double minDistanceBetweenSites) {
 	protected float evolveCells() {
 		float totalMagnitude=0;
 		try {
-			while(lock.isLocked());
-			lock.lock();
-			tessellateVoronoiDiagram();
-			totalMagnitude=adjustCentroids();
-			lock.unlock();
+			synchronized(this) {
+				tessellateVoronoiDiagram();
+				totalMagnitude=adjustCentroids();
+				publishSnapshot();
+			}
 		} catch (Exception e) {
 			e.printStackTrace();
-			if(lock.isHeldByCurrentThread() && lock.isLocked()) {
-				lock.unlock();
-			}
 		}
 		return totalMagnitude;
 	}
@@ -462,8 +515,10 @@ protected float adjustCentroids() {
 		double x, y;
 		float totalMagnitude=0;
 		
-		tree = new QuadGraph(xMin,yMin,xMax,yMax);
+		// a new tree every time.  render() only sees it once publishSnapshot() hands it over.
+		QuadGraph tree = new QuadGraph(xMin,yMin,xMax,yMax);
 		tree.split(4);
+		this.tree = tree;
 		
 		int fails=0;
 		Iterator<VoronoiCell> ci = cells.iterator();
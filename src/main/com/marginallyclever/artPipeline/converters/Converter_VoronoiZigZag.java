@@ -1,16 +1,15 @@
 package com.marginallyclever.artPipeline.converters;
 
 import java.awt.Rectangle;
+import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.locks.ReentrantLock;
 
 import com.jogamp.opengl.GL2;
 import com.marginallyclever.artPipeline.TransformedImage;
-import com.marginallyclever.artPipeline.imageFilters.Filter_BlackAndWhite;
 import com.marginallyclever.convenience.log.Log;
 import com.marginallyclever.convenience.turtle.Turtle;
-import com.marginallyclever.convenience.Point2D;
 import com.marginallyclever.convenience.StringHelper;
+import com.marginallyclever.convenience.TourOptimizer;
 import com.marginallyclever.makelangelo.Translator;
 import com.marginallyclever.makelangeloRobot.MakelangeloRobotDecorator;
 import com.marginallyclever.voronoi.VoronoiCell;
@@ -25,7 +24,27 @@
  * @since 7.0.0?
  */
 public class Converter_VoronoiZigZag extends ImageConverter implements MakelangeloRobotDecorator {
-	private ReentrantLock lock = new ReentrantLock();
+	/**
+	 * Everything render() draws, copied out of the working data.  Never changed once published, so render() reads
+	 * whichever one is current without locking and the converter never waits for render().
+	 */
+	private static class Snapshot {
+		// x1,y1,x2,y2 for every cell edge
+		final double[] edges;
+		// cell centers
+		final double[] x, y;
+		// indexes into x,y in the order visited.  null before there is a tour.
+		final int[] tour;
+
+		Snapshot(double[] edges, double[] x, double[] y, int[] tour) {
+			this.edges = edges;
+			this.x = x;
+			this.y = y;
+			this.tour = tour;
+		}
+	}
+
+	private volatile Snapshot snapshot = null;
 
 	private VoronoiTesselator voronoiTesselator = new VoronoiTesselator();
 	private VoronoiCell[] cells = new VoronoiCell[1];
@@ -33,6 +52,11 @@ public class Converter_VoronoiZigZag extends ImageConverter implements Makelange
 	private List<VoronoiGraphEdge> graphEdges = null;
 	private static int numCells = 3000;
 	private static float minDotSize = 1.0f;
+	// what the cells were made from.  if none of it changes the cells can be kept.
+	private TransformedImage cellsImage = null;
+	private double[] cellsMargins = null;
+	// the minDotSize used to pick the cells in the tour.
+	private float tourMinDotSize;
 	private double[] xValuesIn = null;
 	private double[] yValuesIn = null;
 	private int[] solution = null;
@@ -60,9 +84,9 @@ public ImageConverterPanel getPanel() {
 	
 	@Override
 	public void setImage(TransformedImage img) {
+		super.setImage(img);
 		// make black & white
-		Filter_BlackAndWhite bw = new Filter_BlackAndWhite(255);
-		sourceImage = bw.filter(img);
+		sourceImage = getGreyImage();
 		
 		yBottom = machine.getMarginBottom();
 		yTop    = machine.getMarginTop();
@@ -70,8 +94,24 @@ public void setImage(TransformedImage img) {
 		xRight  = machine.getMarginRight();
 		
 		keepIterating=true;
-		restart();
-		renderMode = 0;
+		if(canKeepCells()) {
+			// only the converter settings changed.  keep the cells and pick up where we left off.
+			// iterate() will redo the tour if minDotSize changed.
+			Log.message("Reusing cells");
+		} else {
+			restart();
+		}
+		renderMode = lowNoise ? 1 : 0;
+		publishSnapshot();
+	}
+
+	/**
+	 * @return true if the cells were evolved from this same image, cell count, and margins.
+	 */
+	private boolean canKeepCells() {
+		return cellsImage == sourceImage
+				&& cells.length == numCells
+				&& Arrays.equals(cellsMargins, new double[] { xLeft, xRight, yBottom, yTop });
 	}
 
 	public void restart() {
@@ -79,6 +119,7 @@ public void restart() {
 			loadAndSaveImage.reconvert();
 			return;
 		}
+		if(canKeepCells()) return;
 		lowNoise=false;
 		keepIterating=true;
 		initializeCells(0.5);
@@ -87,16 +128,21 @@ public void restart() {
 	@Override
 	public boolean iterate() {
 		if(lowNoise==true) {
+			if(tourMinDotSize!=minDotSize) {
+				// a different set of cells is dark enough to draw.
+				seedTour();
+			}
 			optimizeTour();
 		} else {
 			double noiseLevel = evolveCells();
 			if( noiseLevel < 2*numCells ) {
 				lowNoise=true;
-				greedyTour();
+				seedTour();
 				renderMode = 1;
 				Log.message("Running Lin/Kerighan optimization...");
 			}			
 		}
+		publishSnapshot();
 		return keepIterating;
 	}
 
@@ -110,43 +156,66 @@ public void finish() {
 	public void render(GL2 gl2) {
 		super.render(gl2);
 
-		while(lock.isLocked());
-		lock.lock();
+		Snapshot now = snapshot;
+		if (now == null) return;
 
 		int i;
 
-		if (graphEdges != null) {
+		if (now.edges != null) {
 			// draw cell edges
 			gl2.glColor3f(0.9f, 0.9f, 0.9f);
 			gl2.glBegin(GL2.GL_LINES);
-			for (VoronoiGraphEdge e : graphEdges) {
-				gl2.glVertex2d( e.x1, e.y1 );
-				gl2.glVertex2d( e.x2, e.y2 );
+			for (i = 0; i < now.edges.length; i += 4) {
+				gl2.glVertex2d( now.edges[i  ], now.edges[i+1] );
+				gl2.glVertex2d( now.edges[i+2], now.edges[i+3] );
 			}
 			gl2.glEnd();
 		}
-		if (renderMode == 0) {
+		if (now.tour == null) {
 			// draw cell centers
 			gl2.glPointSize(3);
 			gl2.glColor3f(0, 0, 0);
 			gl2.glBegin(GL2.GL_POINTS);
-			for (VoronoiCell c : cells) {
-				Point2D p = c.centroid;
-				gl2.glVertex2d(p.x,p.y);
+			for (i = 0; i < now.x.length; ++i) {
+				gl2.glVertex2d(now.x[i],now.y[i]);
 			}
 			gl2.glEnd();
-		}
-		if (renderMode == 1 && solution != null) {
+		} else {
 			// draw tour
 			gl2.glColor3f(0, 0, 0);
 			gl2.glBegin(GL2.GL_LINE_LOOP);
-			for (i = 0; i < solutionContains; ++i) {
-				VoronoiCell c = cells[solution[i]];
-				gl2.glVertex2d( c.centroid.x, c.centroid.y );
+			for (i = 0; i < now.tour.length; ++i) {
+				int c = now.tour[i];
+				gl2.glVertex2d( now.x[c], now.y[c] );
 			}
 			gl2.glEnd();
 		}
-		lock.unlock();
+	}
+
+	/**
+	 * Copy what render() needs into a new {@link Snapshot} and swap it in.
+	 */
+	private void publishSnapshot() {
+		double[] edges = null;
+		List<VoronoiGraphEdge> e = graphEdges;
+		if (e != null) {
+			edges = new double[e.size() * 4];
+			int i = 0;
+			for (VoronoiGraphEdge g : e) {
+				edges[i++] = g.x1;
+				edges[i++] = g.y1;
+				edges[i++] = g.x2;
+				edges[i++] = g.y2;
+			}
+		}
+		double[] x = new double[cells.length];
+		double[] y = new double[cells.length];
+		for (int i = 0; i < cells.length; ++i) {
+			x[i] = cells[i].centroid.x;
+			y[i] = cells[i].centroid.y;
+		}
+		int[] tour = (renderMode == 1 && solution != null) ? Arrays.copyOf(solution, solutionContains) : null;
+		snapshot = new Snapshot(edges, x, y, tour);
 	}
 
 	private void optimizeTour() {
@@ -232,9 +301,6 @@ public boolean flipTests() {
 					finish += solutionContains;
 				int half = (finish - begin) / 2;
 				int temp;
-				while (lock.isLocked());
-
-				lock.lock();
 				// Makelangelo.getSingleton().Log("<font color='red'>flipping
 				// "+(finish-begin));
 				for (j = 0; j < half; ++j) {
@@ -242,7 +308,6 @@ public boolean flipTests() {
 					solution[ti(begin + j)] = solution[ti(finish - 1 - j)];
 					solution[ti(finish - 1 - j)] = temp;
 				}
-				lock.unlock();
 				updateProgress(len, 1);
 			}
 		}
@@ -270,15 +335,13 @@ private double getTourLength(int[] list) {
 	}
 
 	/**
-	 * Starting with point 0, find the next nearest point and repeat until all
-	 * points have been "found".
+	 * Start a tour through every cell dark enough to draw.  Uses the shorter of a Hilbert curve walk and a greedy
+	 * nearest-neighbor walk.
 	 */
-	private void greedyTour() {
-		Log.message("Finding greedy tour solution...");
+	private void seedTour() {
+		Log.message("Finding initial tour solution...");
 
 		int i, j;
-		double w, bestw;
-		int besti;
 
 		solutionContains = 0;
 		for (i = 0; i < cells.length; ++i) {
@@ -288,41 +351,29 @@ private void greedyTour() {
 				solutionContains++;
 		}
 
-		try {
-			solution = new int[solutionContains];
-
-			// put all the points in the solution in no particular order.
-			j = 0;
-			for (i = 0; i < cells.length; ++i) {
-				VoronoiCell c = cells[i];
-				float v = 1.0f - (float) sourceImage.sample1x1( (int) c.centroid.x, (int) c.centroid.y) / 255.0f;
-				if (v * 5 > minDotSize) {
-					solution[j++] = i;
-				}
+		// collect the cells in the solution in no particular order.
+		int[] used = new int[solutionContains];
+		double[] x = new double[solutionContains];
+		double[] y = new double[solutionContains];
+		j = 0;
+		for (i = 0; i < cells.length; ++i) {
+			VoronoiCell c = cells[i];
+			float v = 1.0f - (float) sourceImage.sample1x1( (int) c.centroid.x, (int) c.centroid.y) / 255.0f;
+			if (v * 5 > minDotSize) {
+				used[j] = i;
+				x[j] = c.centroid.x;
+				y[j] = c.centroid.y;
+				++j;
 			}
+		}
 
-			int scount = 0;
-
-			do {
-				// Find the nearest point not already in the line.
-				// Any solution[n] where n>scount is not in the line.
-				bestw = calculateWeight(solution[scount], solution[scount + 1]);
-				besti = scount + 1;
-				for (i = scount + 2; i < solutionContains; ++i) {
-					w = calculateWeight(solution[scount], solution[i]);
-					if (w < bestw) {
-						bestw = w;
-						besti = i;
-					}
-				}
-				i = solution[scount + 1];
-				solution[scount + 1] = solution[besti];
-				solution[besti] = i;
-				scount++;
-			} while (scount < solutionContains - 2);
-		} catch (Exception e) {
-			e.printStackTrace();
+		int[] tour = new TourOptimizer(x, y).seedTour();
+		int[] newSolution = new int[solutionContains];
+		for (i = 0; i < solutionContains; ++i) {
+			newSolution[i] = used[tour[i]];
 		}
+		solution = newSolution;
+		tourMinDotSize = minDotSize;
 	}
 
 	protected double calculateWeight(int a, int b) {
@@ -365,6 +416,8 @@ protected void initializeCells(double minDistanceBetweenSites) {
 
 
 		voronoiTesselator.Init(minDistanceBetweenSites);
+		cellsImage = sourceImage;
+		cellsMargins = new double[] { xLeft, xRight, yBottom, yTop };
 	}
 
 	/**
@@ -373,16 +426,10 @@ protected void initializeCells(double minDistanceBetweenSites) {
 	protected double evolveCells() {
 		double totalWeight=0;
 		try {
-			while(lock.isLocked());
-			lock.lock();
 			tessellateVoronoiDiagram();
-			lock.unlock();
 			totalWeight = adjustCentroids();
 		} catch (Exception e) {
 			e.printStackTrace();
-			if(lock.isHeldByCurrentThread() && lock.isLocked()) {
-				lock.unlock();
-			}
 		}
 		return totalWeight;
 	}
@@ -1,11 +1,14 @@
 package com.marginallyclever.artPipeline.converters;
 
 
-import java.awt.geom.Point2D;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
 import com.marginallyclever.artPipeline.TransformedImage;
-import com.marginallyclever.artPipeline.imageFilters.Filter_BlackAndWhite;
 import com.marginallyclever.artPipeline.imageFilters.Filter_CMYK;
 import com.marginallyclever.convenience.ColorRGB;
 import com.marginallyclever.convenience.log.Log;
@@ -21,22 +24,6 @@ public class Converter_Wander extends ImageConverter {
 	static protected int numLines = 9000;
 	static protected boolean isCMYK = false;
 	
-	class Bucket {
-		public Point2D a,b;
-		public LinkedList<Point2D> unsortedPoints;
-		public LinkedList<Point2D> sortedPoints;
-		
-		public Bucket() {
-			a = new Point2D.Double();
-			b = new Point2D.Double();
-			unsortedPoints = new LinkedList<Point2D>();
-			sortedPoints = new LinkedList<Point2D>();
-		}
-	};
-
-	private LinkedList<Bucket> buckets;
-	
-	
 	@Override
 	public String getName() {
 		return Translator.get("ConverterWanderName");
@@ -49,6 +36,7 @@ public ImageConverterPanel getPanel() {
 
 	@Override
 	public void finish() {
+		turtle = new Turtle();
 		if(isCMYK) {
 			finishCMYK();
 		} else {
@@ -56,12 +44,20 @@ public void finish() {
 		}
 	}
 
-	protected int outputChannel(TransformedImage img,ColorRGB newColor,int numberOfLines,double cutoff) {
+	/**
+	 * Scatter points over the dark parts of img, darker areas getting more, then visit them nearest-first.
+	 * @param turtle where to draw
+	 * @param img the channel to draw
+	 * @param newColor pen color
+	 * @param numberOfLines how many points to scatter
+	 * @param cutoff no points where the image is lighter than this.  0...255.
+	 * @return the number of points drawn.
+	 */
+	protected int outputChannel(Turtle turtle,TransformedImage img,ColorRGB newColor,int numberOfLines,double cutoff) {
 		turtle.setColor(newColor);
 
 		float stepSize = machine.getPenDiameter()*5;
 		if (stepSize < 1) stepSize = 1;
-		float halfStep = stepSize/2;
 
 		// Color values are from 0...255 inclusive.  255 is white, 0 is black.
 		// Lift the pen any time the color value is > cutoff.
@@ -72,119 +68,158 @@ protected int outputChannel(TransformedImage img,ColorRGB newColor,int numberOfL
 		double xLeft   = machine.getMarginLeft()  ;
 		double xRight  = machine.getMarginRight() ;
 
-		// find numLines number of random points darker than the cutoff value
 		double height = yTop - yBottom-1;
 		double width = xRight - xLeft-1;
-		Point2D a = null;
-		
-		//Log.message("Creating buckets in a Z pattern...");
-		buckets = new LinkedList<Bucket>();
-		int actualPoints=0;
-		double wMod = width/5.0;
-		double hMod = height/10.0;
-		double by,bx;
-		for(by=0;by<height;by+=hMod) {
-			for(bx=0;bx<width;bx+=wMod) {
-				Bucket b = new Bucket();
-				b.a.setLocation(xLeft+bx     , yBottom+by     );
-				b.b.setLocation(xLeft+bx+wMod, yBottom+by+hMod);
-				buckets.push(b);
-			}
-			by+=hMod;
-			for(bx=width-wMod;bx>=-1;bx-=wMod) {
-				Bucket b = new Bucket();
-				b.a.setLocation(xLeft+bx     , yBottom+by     );
-				b.b.setLocation(xLeft+bx+wMod, yBottom+by+hMod);
-				buckets.push(b);
+
+		// sample the image once per stepSize square.  each square's chance of getting a point is its darkness.
+		final int cols = Math.max(1,(int)Math.ceil(width /stepSize));
+		final int rows = Math.max(1,(int)Math.ceil(height/stepSize));
+		final float step = stepSize;
+		double [] cumulative = new double[cols*rows];
+		IntStream.range(0,rows).parallel().forEach(row->{
+			double y0 = yBottom+0.5 + row*step;
+			for(int col=0;col<cols;++col) {
+				double x0 = xLeft+0.5 + col*step;
+				int v = img.sample(x0,y0,x0+step,y0+step);
+				cumulative[row*cols+col] = (v>cutoff) ? 0 : 256-v;
 			}
-		}
+		});
+		Arrays.parallelPrefix(cumulative,Double::sum);
+		double total = cumulative[cumulative.length-1];
+		if(total<=0) return 0;
 
-		//Log.message("Finding points...");
+		// find numLines random points darker than the cutoff value
+		Random random = new Random();
+		double [] px = new double[numberOfLines];
+		double [] py = new double[numberOfLines];
 		for(int i=0;i<numberOfLines;++i) {
-			int v, tries=0;
-			double endPX,endPY; 
-			do {
-				endPX = xLeft   + (Math.random() * width)+0.5; 
-				endPY = yBottom + (Math.random() * height)+0.5; 
-				v = img.sample(
-						endPX - halfStep, endPY - halfStep, 
-						endPX + halfStep, endPY + halfStep);
-				++tries;
-			} while(v>cutoff && tries<1000);
-			if(tries==1000) break;  // ran out of points to try?
-
-			int j;
-			for(j=0;j<buckets.size();++j) {
-				Bucket b = buckets.get(j);
-				if( b.a.getX()<=endPX && b.b.getX()>endPX && 
-				    b.a.getY()<=endPY && b.b.getY()>endPY ) {
-					b.unsortedPoints.addLast(new Point2D.Double(endPX,endPY));
-					++actualPoints;
-					break;
-				}
-			}
+			int cell = findCell(cumulative,random.nextDouble()*total);
+			px[i] = Math.min(xLeft  +0.5 + (cell % cols + random.nextDouble())*step, xLeft  +0.5+width );
+			py[i] = Math.min(yBottom+0.5 + (cell / cols + random.nextDouble())*step, yBottom+0.5+height);
 		}
 
 		// sort the points by nearest neighbor first.
-		Log.message("Sorting "+actualPoints+" points...");
-		for(int j=0;j<buckets.size();++j) {
-			//Log.message(j+" of "+buckets.size()+ " has "+buckets.get(j).unsortedPoints.size()+" points");
-
-			// assume we start at the center of the image, for those machines with no pen up option.
-			a = new Point2D.Double(0,0);
-			
-			Bucket b = buckets.get(j);
-			if(!b.unsortedPoints.isEmpty()) {
-				while(!b.unsortedPoints.isEmpty()) {
-					double bestLen = Double.MAX_VALUE;
-					int bestI=0;
-					for(int i=0;i<b.unsortedPoints.size();++i) {
-						double len = a.distanceSq(b.unsortedPoints.get(i));
-						if(bestLen > len) {
-							bestLen = len;
-							bestI = i;
+		Log.message("Sorting "+numberOfLines+" points...");
+		int [] order = chainNearest(px,py,xLeft,yBottom,width+1,height+1);
+
+		// draw the sorted list of points.
+		Log.message("Drawing points...");
+		for( int i : order ) {
+			turtle.moveTo(px[i],py[i]);
+			turtle.penDown();
+		}
+
+		return numberOfLines;
+	}
+
+	/**
+	 * @return the first index in cumulative with a value greater than u.
+	 */
+	private int findCell(double [] cumulative,double u) {
+		int lo=0, hi=cumulative.length-1;
+		while(lo<hi) {
+			int mid = (lo+hi)>>>1;
+			if(cumulative[mid]>u) hi=mid;
+			else lo=mid+1;
+		}
+		return lo;
+	}
+
+	/**
+	 * Start at the center of the paper, for those machines with no pen up option, and go to the nearest point
+	 * not yet visited until none are left.  The points are binned in a grid of about two per cell, so each
+	 * search only looks at the cells around the pen.
+	 * @return the order in which to visit the points
+	 */
+	private int [] chainNearest(double [] px,double [] py,double left,double bottom,double width,double height) {
+		final int n = px.length;
+		double cellSize = Math.max(1e-6,Math.sqrt(width*height*2.0/Math.max(1,n)));
+		final int cols = Math.max(1,(int)Math.ceil(width /cellSize));
+		final int rows = Math.max(1,(int)Math.ceil(height/cellSize));
+
+		// counting sort the points into cells.  the unvisited points of cell c are items[cellStart[c]...cellEnd[c]-1].
+		int [] cellOf = new int[n];
+		int [] cellStart = new int[cols*rows+1];
+		for(int i=0;i<n;++i) {
+			int cx = Math.min(cols-1,Math.max(0,(int)((px[i]-left  )/cellSize)));
+			int cy = Math.min(rows-1,Math.max(0,(int)((py[i]-bottom)/cellSize)));
+			cellOf[i] = cy*cols+cx;
+			cellStart[cellOf[i]+1]++;
+		}
+		for(int c=0;c<cols*rows;++c) cellStart[c+1] += cellStart[c];
+		int [] cellEnd = Arrays.copyOf(cellStart,cols*rows);
+		int [] items = new int[n];
+		int [] where = new int[n];
+		for(int i=0;i<n;++i) {
+			where[i] = cellEnd[cellOf[i]]++;
+			items[where[i]] = i;
+		}
+
+		int [] order = new int[n];
+		double ax=0, ay=0;
+		for(int k=0;k<n;++k) {
+			int gx = Math.min(cols-1,Math.max(0,(int)((ax-left  )/cellSize)));
+			int gy = Math.min(rows-1,Math.max(0,(int)((ay-bottom)/cellSize)));
+			int best=-1;
+			double bestD=Double.MAX_VALUE;
+			int maxRing = Math.max(Math.max(gx,cols-1-gx),Math.max(gy,rows-1-gy));
+			for(int ring=0;ring<=maxRing;++ring) {
+				// a point in ring r+1 or beyond is at least r cells away.
+				double reach = (ring-1)*cellSize;
+				if(best!=-1 && ring>0 && bestD <= reach*reach) break;
+				int y0 = Math.max(0,gy-ring), y1 = Math.min(rows-1,gy+ring);
+				int x0 = Math.max(0,gx-ring), x1 = Math.min(cols-1,gx+ring);
+				for(int y=y0;y<=y1;++y) {
+					// the inside of the ring was searched already.  only walk its edge.
+					boolean edge = (y==gy-ring || y==gy+ring);
+					int xStep = edge ? 1 : Math.max(1,2*ring);
+					for(int x=gx-ring;x<=gx+ring;x+=xStep) {
+						if(x<x0 || x>x1) continue;
+						int c = y*cols+x;
+						for(int j=cellStart[c];j<cellEnd[c];++j) {
+							int i = items[j];
+							double dx = px[i]-ax;
+							double dy = py[i]-ay;
+							double d = dx*dx+dy*dy;
+							if(d<bestD) {
+								bestD=d;
+								best=i;
+							}
 						}
 					}
-					a = b.unsortedPoints.remove(bestI);
-					b.sortedPoints.addLast(a);
 				}
 			}
+
+			order[k]=best;
+			ax=px[best];
+			ay=py[best];
+			// remove best from its cell by swapping it with the last unvisited point there.
+			int c = cellOf[best];
+			int last = items[--cellEnd[c]];
+			items[where[best]] = last;
+			where[last] = where[best];
 		}
-		
-		
-		// draw the sorted list of points.
-		Log.message("Drawing points...");
-		turtle = new Turtle();
-		
-		for(int j=0;j<buckets.size();++j) {
-			Bucket b = buckets.get(j);
-			while(!b.sortedPoints.isEmpty()) {
-				a = b.sortedPoints.pop();
-				turtle.moveTo(a.getX(),a.getY());
-				turtle.penDown();
-			}
-		}
-		
-		return actualPoints;
+		return order;
 	}
-	
+
 	protected void finishCMYK() {
-		Filter_CMYK cmyk = new Filter_CMYK();
-		cmyk.filter(sourceImage);
-		
-		Log.message("Yellow...");		outputChannel(cmyk.getY(),new ColorRGB(255,255,  0),numLines/4,255.0*3.0/4.0);
-		Log.message("Cyan...");		outputChannel(cmyk.getC(),new ColorRGB(  0,255,255),numLines/4,128.0);
-		Log.message("Magenta...");		outputChannel(cmyk.getM(),new ColorRGB(255,  0,255),numLines/4,128.0);
-		Log.message("Black...");		outputChannel(cmyk.getK(),new ColorRGB(  0,  0,  0),numLines/4,128.0);
+		Filter_CMYK cmyk = getCMYKChannels();
+
+		Log.message("Yellow, cyan, magenta, black...");
+		List<Consumer<Turtle>> channels = new ArrayList<Consumer<Turtle>>();
+		channels.add((t)->outputChannel(t,cmyk.getY(),new ColorRGB(255,255,  0),numLines/4,255.0*3.0/4.0));
+		channels.add((t)->outputChannel(t,cmyk.getC(),new ColorRGB(  0,255,255),numLines/4,128.0));
+		channels.add((t)->outputChannel(t,cmyk.getM(),new ColorRGB(255,  0,255),numLines/4,128.0));
+		channels.add((t)->outputChannel(t,cmyk.getK(),new ColorRGB(  0,  0,  0),numLines/4,128.0));
+		drawInParallel(channels);
 		Log.message("Finishing...");
 	}
 	
 	protected void finishBlackAndWhite() {
 		// The picture might be in color.  Smash it to 255 shades of grey.
-		Filter_BlackAndWhite bw = new Filter_BlackAndWhite(255);
-		TransformedImage img = bw.filter(sourceImage);
+		TransformedImage img = getGreyImage();
 		
-		outputChannel(img,new ColorRGB(0,0,0),numLines,255.0/4.0);
+		outputChannel(turtle,img,new ColorRGB(0,0,0),numLines,255.0/4.0);
 	}
 	
 
@@ -4,13 +4,13 @@
 import java.awt.Point;
 import java.io.IOException;
 import java.io.Writer;
-import java.util.concurrent.locks.ReentrantLock;
 
 import com.jogamp.opengl.GL2;
 import com.marginallyclever.artPipeline.TransformedImage;
 import com.marginallyclever.artPipeline.imageFilters.Filter_BlackAndWhite;
 import com.marginallyclever.artPipeline.imageFilters.Filter_DitherFloydSteinberg;
 import com.marginallyclever.convenience.StringHelper;
+import com.marginallyclever.convenience.TourOptimizer;
 import com.marginallyclever.convenience.log.Log;
 import com.marginallyclever.convenience.turtle.Turtle;
 import com.marginallyclever.makelangelo.Translator;
@@ -32,11 +32,8 @@ public class Converter_ZigZag extends ImageConverter implements MakelangeloRobot
 
 	int numPoints;
 	Point[] points = null;
-	int[] solution = null;
-	int scount;
-
-	
-	private ReentrantLock lock = new ReentrantLock();
+	// replaced, never changed in place, so render() can read it while the optimizer works.
+	volatile int[] solution = null;
 
 	
 	public String getName() {
@@ -74,70 +71,18 @@ public void updateProgress(double len, int color) {
 	}
 
 
-	// we have s1,s2...e-1,e
-	// check if s1,e-1,...s2,e is shorter
-	public int flipTests() {
-		int start, end, j, once = 0;
-
-		for (start = 0; start < numPoints - 2 && !swingWorker.isCancelled() && !pm.isCanceled(); ++start) {
-			float a = calculateWeight(solution[start], solution[start + 1]);
-			int best_end = -1;
-			double best_diff = 0;
-
-			for (end = start + 2; end <= numPoints && !swingWorker.isCancelled() && !pm.isCanceled(); ++end) {
-				// before
-				float b = calculateWeight(solution[end], solution[end - 1]);
-				// after
-				float c = calculateWeight(solution[start], solution[end - 1]);
-				float d = calculateWeight(solution[end], solution[start + 1]);
-
-				double temp_diff = (a + b) - (c + d);
-				if (best_diff < temp_diff) {
-					best_diff = temp_diff;
-					best_end = end;
-				}
-			}
-
-			if (best_end != -1 && !swingWorker.isCancelled() && !pm.isCanceled()) {
-				once = 1;
-				// do the flip
-				int begin = start + 1;
-				int finish = best_end;
-				int half = (finish - begin) / 2;
-				int temp;
-				while (lock.isLocked()) ;
-
-				lock.lock();
-				//Makelangelo.getSingleton().Log("<font color='red'>flipping "+(finish-begin)+"</font>\n");
-				for (j = 0; j < half; ++j) {
-					temp = solution[begin + j];
-					solution[begin + j] = solution[finish - 1 - j];
-					solution[finish - 1 - j] = temp;
-				}
-				lock.unlock();
-				updateProgress(len, 1);
-			}
-		}
-		return once;
-	}
-
-
 	public void render(GL2 gl2) {
-		if (points == null || solution == null) return;
-
-		while (lock.isLocked());
-		lock.lock();
+		Point[] points = this.points;
+		int[] tour = solution;
+		if (points == null || tour == null) return;
 
 		gl2.glColor3f(0, 0, 0);
 		gl2.glBegin(GL2.GL_LINE_STRIP);
-		for (int i = 0; i < points.length; ++i) {
-			if (points[solution[i]] == null) break;
-			gl2.glVertex2f((points[solution[i]].x) * 0.1f,
-					(points[solution[i]].y) * 0.1f);
+		for (int i = 0; i < tour.length; ++i) {
+			gl2.glVertex2f((points[tour[i]].x) * 0.1f,
+					(points[tour[i]].y) * 0.1f);
 		}
 		gl2.glEnd();
-
-		lock.unlock();
 	}
 
 
@@ -149,9 +94,20 @@ protected float calculateWeight(int a, int b) {
 
 
 	private void generateTSP(Writer out) throws IOException {
-		greedyTour();
+		if (numPoints < 2) return;
+
+		double[] x = new double[numPoints];
+		double[] y = new double[numPoints];
+		for (int i = 0; i < numPoints; ++i) {
+			x[i] = points[i].x;
+			y[i] = points[i].y;
+		}
+		TourOptimizer optimizer = new TourOptimizer(x, y);
+
+		Log.message("Finding initial tour...");
+		solution = optimizer.seedTour();
 
-		Log.message("Running Kernighan–Lin optimization...");
+		Log.message("Running 2-opt/Or-opt optimization...");
 
 		len = getTourLength(solution);
 		old_len = len;
@@ -161,17 +117,14 @@ private void generateTSP(Writer out) throws IOException {
 		progress = 0;
 		updateProgress(len, 2);
 
-		int once = 1;
-		while (once == 1 && t_elapsed < time_limit && !swingWorker.isCancelled()) {
-			once = 0;
-			//@TODO: make these optional for the very thorough people
-			//once|=transposeForwardTest();
-			//once|=transposeBackwardTest();
-
-			once |= flipTests();
-
-			updateProgress(len, 2);
-		}
+		optimizer.setCancelled(() -> swingWorker.isCancelled() || pm.isCanceled()
+				|| System.currentTimeMillis() - t_start > time_limit);
+		optimizer.setListener(tour -> {
+			solution = tour;
+			updateProgress(len, 1);
+		});
+		solution = optimizer.optimize(solution);
+		Log.message(formatTime(System.currentTimeMillis() - t_start) + ": " + StringHelper.formatDouble(getTourLength(solution)) + "mm");
 
 		convertAndSaveToGCode(out);
 	}
@@ -195,45 +148,6 @@ private double getTourLength(int[] list) {
 		return w;
 	}
 
-	/**
-	 * Starting with point 0, find the next nearest point and repeat until all points have been "found".
-	 */
-	private void greedyTour() {
-		Log.message("Finding greedy tour solution...");
-
-		int i;
-		float w, bestw;
-		int besti;
-
-		// put all the points in the solution in no particular order.
-		for (i = 0; i < numPoints; ++i) {
-			solution[i] = i;
-		}
-
-
-		int scount = 0;
-		solution[scount] = solution[0];
-
-		do {
-			// Find the nearest point not already in the line.
-			// Any solution[n] where n>scount is not in the line.
-			bestw = calculateWeight(solution[scount], solution[scount + 1]);
-			besti = scount + 1;
-			for (i = scount + 2; i < numPoints; ++i) {
-				w = calculateWeight(solution[scount], solution[i]);
-				if (w < bestw) {
-					bestw = w;
-					besti = i;
-				}
-			}
-			i = solution[scount + 1];
-			solution[scount + 1] = solution[besti];
-			solution[besti] = i;
-			scount++;
-		} while (scount < numPoints);
-	}
-
-
 	/**
 	 * Open a file and write out the edge list as a set of GCode commands.
 	 * Since all the points are connected in a single loop,
@@ -257,14 +171,15 @@ private void convertAndSaveToGCode(Writer out) throws IOException {
 
 		turtle = new Turtle();
 		// jump to first point
-		turtle.jumpTo(points[besti].x, points[besti].y);
+		Point first = points[solution[besti]];
+		turtle.jumpTo(first.x, first.y);
 		// move through entire list
 		for (i = 1; i < numPoints; ++i) {
 			int v = (besti + i) % numPoints;
-			turtle.moveTo(points[v].x, points[v].y);
+			turtle.moveTo(points[solution[v]].x, points[solution[v]].y);
 		}
 		// close the loop
-		turtle.moveTo(points[besti].x, points[besti].y);
+		turtle.moveTo(first.x, first.y);
 
 		turtle.penUp();
 	}
@@ -291,8 +206,8 @@ protected void connectTheDots(TransformedImage img) {
 		}
 
 		Log.message(numPoints + " points.");
-		points = new Point[numPoints + 1];
-		solution = new int[numPoints + 1];
+		points = new Point[numPoints];
+		solution = new int[numPoints];
 
 		// collect the point data
 		numPoints = 0;
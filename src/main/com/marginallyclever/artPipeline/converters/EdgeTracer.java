@@ -0,0 +1,172 @@
+package com.marginallyclever.artPipeline.converters;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Follows 8-connected edge pixels, such as the output of {@link CannyEdgeDetector}, into polylines.
+ * <p>
+ * Open curves are traced from their ends first so that each becomes a single polyline.  Whatever is left - closed
+ * loops and the far sides of junctions - is traced from any remaining pixel in both directions.  A polyline that
+ * stops next to a pixel already drawn by another polyline reaches over to it, so junctions don't leave gaps.
+ */
+public class EdgeTracer {
+	// 4-connected neighbors first, so a path doesn't cut a corner and strand the pixel it skipped.
+	private static final int[] DX = { 1, 0, -1, 0, 1, -1, -1, 1 };
+	private static final int[] DY = { 0, 1, 0, -1, 1, 1, -1, -1 };
+	// how close two points of one polyline can be in the walk and still be plain neighbors.
+	private static final int NEAR = 3;
+
+	private final int width, height;
+	private final boolean[] edge;
+	// which polyline took each pixel, -1 for none.
+	private final int[] owner;
+	// where in its polyline each pixel is.  negative for points found walking backwards from the start.
+	private final int[] position;
+
+	/**
+	 * @param edges edge pixels are any color but black.
+	 */
+	public EdgeTracer(BufferedImage edges) {
+		width = edges.getWidth();
+		height = edges.getHeight();
+		int[] pixels = edges.getRGB(0, 0, width, height, null, 0, width);
+		edge = new boolean[pixels.length];
+		for (int i = 0; i < pixels.length; ++i) edge[i] = (pixels[i] & 0xffffff) != 0;
+		owner = new int[pixels.length];
+		position = new int[pixels.length];
+	}
+
+	/**
+	 * @return every polyline as a list of pixel indexes (y*width+x).  Lone pixels are left out.
+	 */
+	public List<int[]> trace() {
+		Arrays.fill(owner, -1);
+		List<int[]> lines = new ArrayList<int[]>();
+
+		// ends first, then whatever is left.
+		for (int pass = 0; pass < 2; ++pass) {
+			for (int i = 0; i < edge.length; ++i) {
+				if (!edge[i] || owner[i] != -1) continue;
+				if (pass == 0 && countNeighbors(i) != 1) continue;
+				int[] line = traceFrom(i, lines.size());
+				if (line.length > 1) lines.add(line);
+				else owner[i] = Integer.MAX_VALUE;  // a lone pixel.  don't let anyone reach for it.
+			}
+		}
+		return lines;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	private int[] traceFrom(int start, int id) {
+		owner[start] = id;
+		position[start] = 0;
+		IntList forward = new IntList();
+		forward.add(start);
+		walk(forward, id, 1);
+
+		IntList backward = new IntList();
+		backward.add(start);
+		walk(backward, id, -1);
+
+		// backward runs from start, so reverse it and skip the start it shares with forward.
+		int[] line = new int[backward.size - 1 + forward.size];
+		int j = 0;
+		for (int i = backward.size - 1; i > 0; --i) line[j++] = backward.data[i];
+		for (int i = 0; i < forward.size; ++i) line[j++] = forward.data[i];
+		return line;
+	}
+
+	private void walk(IntList path, int id, int step) {
+		int p = path.data[path.size - 1];
+		int pos = 0;
+		while (true) {
+			int next = findNeighbor(p, id, pos, false, false);
+			if (next == -1) {
+				// stuck.  reach over to a pixel drawn earlier, if there is one.  walking backward only reaches for
+				// other polylines, else a loop closed by the forward walk would be closed twice.
+				int join = findNeighbor(p, id, pos, true, step > 0);
+				if (join != -1) path.add(join);
+				return;
+			}
+			pos += step;
+			owner[next] = id;
+			position[next] = pos;
+			path.add(next);
+			p = next;
+		}
+	}
+
+	/**
+	 * @param taken false to look for an untraced edge pixel, true to look for one already in a polyline.
+	 * @param self when taken, may it be an earlier part of polyline id?
+	 * @return the first matching neighbor of p, or -1.
+	 */
+	private int findNeighbor(int p, int id, int pos, boolean taken, boolean self) {
+		int px = p % width;
+		int py = p / width;
+		for (int k = 0; k < 8; ++k) {
+			int nx = px + DX[k];
+			int ny = py + DY[k];
+			if (nx < 0 || nx >= width || ny < 0 || ny >= height) continue;
+			int q = ny * width + nx;
+			if (!edge[q]) continue;
+			if (!taken) {
+				if (owner[q] == -1) return q;
+			} else if (owner[q] != -1 && owner[q] != Integer.MAX_VALUE) {
+				if (owner[q] != id) return q;
+				if (self && Math.abs(position[q] - pos) > NEAR) return q;
+			}
+		}
+		return -1;
+	}
+
+	private int countNeighbors(int p) {
+		int px = p % width;
+		int py = p / width;
+		int count = 0;
+		for (int k = 0; k < 8; ++k) {
+			int nx = px + DX[k];
+			int ny = py + DY[k];
+			if (nx < 0 || nx >= width || ny < 0 || ny >= height) continue;
+			if (edge[ny * width + nx]) ++count;
+		}
+		return count;
+	}
+
+	private static class IntList {
+		int[] data = new int[16];
+		int size = 0;
+
+		void add(int v) {
+			if (size == data.length) data = Arrays.copyOf(data, size * 2);
+			data[size++] = v;
+		}
+	}
+}
+
+/**
+ * This file is part of Makelangelo.
+ * <p>
+ * Makelangelo is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * Makelangelo is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with Makelangelo.  If not, see <http://www.gnu.org/licenses/>.
+ */
@@ -1,13 +1,27 @@
 package com.marginallyclever.artPipeline.converters;
 
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
 import com.jogamp.opengl.GL2;
 import com.jogamp.opengl.util.texture.Texture;
 import com.jogamp.opengl.util.texture.awt.AWTTextureIO;
 import com.marginallyclever.artPipeline.ImageManipulator;
+import com.marginallyclever.artPipeline.PolarImage;
 import com.marginallyclever.artPipeline.TransformedImage;
+import com.marginallyclever.artPipeline.imageFilters.Filter_BlackAndWhite;
+import com.marginallyclever.artPipeline.imageFilters.Filter_CMYK;
 import com.marginallyclever.artPipeline.loadAndSave.LoadAndSaveImage;
 import com.marginallyclever.convenience.Clipper2D;
+import com.marginallyclever.convenience.ColorRGB;
 import com.marginallyclever.convenience.Point2D;
+import com.marginallyclever.convenience.turtle.Turtle;
 import com.marginallyclever.makelangeloRobot.MakelangeloRobotDecorator;
 
 /**
@@ -26,6 +40,15 @@ public abstract class ImageConverter extends ImageManipulator implements Makelan
 	protected TransformedImage sourceImage;
 	protected boolean keepIterating=false;
 	protected Texture texture = null;
+	// the image given to setImage(), before any converter replaces sourceImage with a filtered copy.
+	private TransformedImage originalImage = null;
+	// things made from originalImage, see getCached()
+	private Map<String,CacheEntry> cache = new ConcurrentHashMap<String,CacheEntry>();
+	private BufferedImage cacheOf = null;
+
+	private static class CacheEntry {
+		Object value;
+	}
 
 	public static LoadAndSaveImage loadAndSaveImage;
 
@@ -44,6 +67,7 @@ public void restart() {
 	 */
 	public void setImage(TransformedImage img) {
 		sourceImage=img;
+		originalImage=img;
 		texture = null;
 	}
 	
@@ -83,8 +107,13 @@ public void render(GL2 gl2) {
 			}
 		}
 		if(texture!=null) {
-			double w = sourceImage.getSourceImage().getWidth() * sourceImage.getScaleX();
-			double h = sourceImage.getSourceImage().getHeight() * sourceImage.getScaleY();
+			// paper space corners of the source image
+			double sx = sourceImage.getScaleX();
+			double sy = sourceImage.getScaleY();
+			double x0 = sourceImage.getTranslateX() * sx;
+			double y0 = sourceImage.getTranslateY() * sy;
+			double x1 = (sourceImage.getSourceImage().getWidth()  + sourceImage.getTranslateX()) * sx;
+			double y1 = (sourceImage.getSourceImage().getHeight() + sourceImage.getTranslateY()) * sy;
 			gl2.glEnable(GL2.GL_TEXTURE_2D);
 			gl2.glEnable(GL2.GL_BLEND);
 			gl2.glBlendFunc(GL2.GL_SRC_ALPHA, GL2.GL_ONE_MINUS_SRC_ALPHA);
@@ -93,10 +122,10 @@ public void render(GL2 gl2) {
 			gl2.glTexEnvf(GL2.GL_TEXTURE_ENV, GL2.GL_TEXTURE_ENV_MODE, GL2.GL_MODULATE);
 			texture.bind(gl2);
 			gl2.glBegin(GL2.GL_TRIANGLE_FAN);
-			gl2.glTexCoord2d(0, 0);	gl2.glVertex2d(-w/2, -h/2 );
-			gl2.glTexCoord2d(1, 0);	gl2.glVertex2d( w/2, -h/2 );
-			gl2.glTexCoord2d(1, 1);	gl2.glVertex2d( w/2, h/2);
-			gl2.glTexCoord2d(0, 1);	gl2.glVertex2d(-w/2, h/2);
+			gl2.glTexCoord2d(0, 0);	gl2.glVertex2d(x0, y0);
+			gl2.glTexCoord2d(1, 0);	gl2.glVertex2d(x1, y0);
+			gl2.glTexCoord2d(1, 1);	gl2.glVertex2d(x1, y1);
+			gl2.glTexCoord2d(0, 1);	gl2.glVertex2d(x0, y1);
 			gl2.glEnd();
 			gl2.glDisable(GL2.GL_TEXTURE_2D);
 			gl2.glDisable(GL2.GL_BLEND);
@@ -118,6 +147,14 @@ public void render(GL2 gl2) {
 	 * @param img the image to sample while converting along the line.
 	 */
 	protected void convertAlongLine(double x0,double y0,double x1,double y1,double stepSize,double channelCutoff,TransformedImage img) {
+		convertAlongLine(turtle,x0,y0,x1,y1,stepSize,channelCutoff,img);
+	}
+
+	/**
+	 * Same as {@link #convertAlongLine(double, double, double, double, double, double, TransformedImage)} but draws into 
+	 * the given turtle, so that several lines can be converted at once.
+	 */
+	protected void convertAlongLine(Turtle turtle,double x0,double y0,double x1,double y1,double stepSize,double channelCutoff,TransformedImage img) {
 		Point2D P0 = new Point2D(x0,y0);
 		Point2D P1 = new Point2D(x1,y1);
 
@@ -163,6 +200,14 @@ protected void convertAlongLine(double x0,double y0,double x1,double y1,double s
 	 * @param img the image to sample while converting along the line.
 	 */
 	protected void convertAlongLineErrorTerms(double x0,double y0,double x1,double y1,double stepSize,double channelCutoff,double [] error0,double [] error1,TransformedImage img) {
+		convertAlongLineErrorTerms(turtle,x0,y0,x1,y1,stepSize,channelCutoff,error0,error1,img);
+	}
+
+	/**
+	 * Same as {@link #convertAlongLineErrorTerms(double, double, double, double, double, double, double[], double[], TransformedImage)}
+	 * but draws into the given turtle, so that several lines can be converted at once.
+	 */
+	protected void convertAlongLineErrorTerms(Turtle turtle,double x0,double y0,double x1,double y1,double stepSize,double channelCutoff,double [] error0,double [] error1,TransformedImage img) {
 		double b;
 		double dx=x1-x0;
 		double dy=y1-y0;
@@ -206,4 +251,107 @@ protected void convertAlongLineErrorTerms(double x0,double y0,double x1,double y
 		}
 		turtle.penUp();
 	}
+
+	/**
+	 * Run independent drawing jobs at the same time, such as one job per ink channel or palette color.  No job may
+	 * read what another draws.  Each job draws into a fresh {@link Turtle}.  When all are done the results are
+	 * appended to {@link #turtle} in the order of the list, so the output is the same as drawing them one after the
+	 * other and does not depend on which job finished first.
+	 * @param jobs the drawing jobs, in output order.
+	 */
+	protected void drawInParallel(List<Consumer<Turtle>> jobs) {
+		drawRowsInParallel(turtle, jobs.size(), (t,i) -> jobs.get(i).accept(t));
+	}
+
+	/**
+	 * Draw rows that don't depend on each other - scanlines, hatch lines, rows of boxes - on the common
+	 * {@link java.util.concurrent.ForkJoinPool}.  Each row draws into its own {@link Turtle} and the rows are
+	 * appended to target in row order, so the result is the same as drawing them one after the other.
+	 * A row must not rely on where the row before it left the pen: start with a jump or a pen up.  Alternate the
+	 * direction of travel from the row index, not from a flag carried between rows.
+	 * @param target receives every row.  its color carries into the rows.
+	 * @param rows how many rows.
+	 * @param row draws row i into the turtle it is given.
+	 */
+	protected void drawRowsInParallel(Turtle target,int rows,ObjIntConsumer<Turtle> row) {
+		ColorRGB color = target.getColor();
+		Turtle [] results = new Turtle[rows];
+		IntStream.range(0, rows).parallel().forEach(i -> {
+			Turtle t = new Turtle();
+			t.setColor(color);
+			row.accept(t,i);
+			results[i] = t;
+		});
+		for( Turtle t : results ) {
+			target.add(t);
+		}
+	}
+
+	/**
+	 * Something made from the image given to {@link #setImage(TransformedImage)}, such as a filtered copy, kept
+	 * until the picture changes or moves.  Changing a converter setting re-runs the whole conversion, and this lets
+	 * the stages that don't depend on that setting skip their work.
+	 * @param key names what make builds, so different things don't collide.
+	 * @param make builds the thing.  only called when nothing is cached.  may itself call getCached() for other keys.
+	 * @return the cached thing.  safe to call from several threads at once; make runs at most once per key.
+	 */
+	@SuppressWarnings("unchecked")
+	protected <T> T getCached(String key,Supplier<T> make) {
+		TransformedImage img = originalImage;
+		synchronized(cache) {
+			if(cacheOf!=img.getSourceImage()) {
+				cache.clear();
+				cacheOf=img.getSourceImage();
+			}
+		}
+		// moving or scaling the image changes what lands where on the paper.
+		String fullKey = key
+				+"/"+img.getScaleX()+","+img.getScaleY()
+				+"/"+img.getTranslateX()+","+img.getTranslateY();
+		CacheEntry entry = cache.computeIfAbsent(fullKey, k -> new CacheEntry());
+		synchronized(entry) {
+			if(entry.value==null) entry.value = make.get();
+			return (T)entry.value;
+		}
+	}
+
+	/**
+	 * @return the image given to {@link #setImage(TransformedImage)} in 255 shades of grey.  cached.
+	 */
+	protected TransformedImage getGreyImage() {
+		TransformedImage img = originalImage;
+		return getCached("grey",()->new Filter_BlackAndWhite(255).filter(img));
+	}
+
+	/**
+	 * @return the image given to {@link #setImage(TransformedImage)} separated into cyan, magenta, yellow, and black.  cached.
+	 */
+	protected Filter_CMYK getCMYKChannels() {
+		TransformedImage img = originalImage;
+		return getCached("cmyk",()->{
+			Filter_CMYK cmyk = new Filter_CMYK();
+			cmyk.filter(img);
+			return cmyk;
+		});
+	}
+
+	/**
+	 * Rings and spokes of one channel of the image, kept until the image changes.  Converting again with
+	 * new settings but the same image and center skips both the filter and the resampling.
+	 * @param channel names the channel image, so different channels don't collide.
+	 * @param channelImage makes or fetches the channel image.  only called when nothing is cached.
+	 * @param cx center of the rings in paper space
+	 * @param cy center of the rings in paper space
+	 * @param rMax radius of the outermost ring
+	 * @return the resampled channel, only where it crosses the paper margins.  safe to call from several threads at once.
+	 */
+	protected PolarImage getPolarImage(String channel,Supplier<TransformedImage> channelImage,double cx,double cy,double rMax) {
+		double left   = machine.getMarginLeft();
+		double bottom = machine.getMarginBottom();
+		double right  = machine.getMarginRight();
+		double top    = machine.getMarginTop();
+		return getCached("polar "+channel+"@"+cx+","+cy+","+rMax+" in "+left+","+bottom+","+right+","+top,
+				()->new PolarImage(channelImage.get(),cx,cy,rMax,left,bottom,right,top));
+	}
 }
+
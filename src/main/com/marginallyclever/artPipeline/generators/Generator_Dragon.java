@@ -1,9 +1,5 @@
 package com.marginallyclever.artPipeline.generators;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-
 import com.marginallyclever.convenience.turtle.Turtle;
 import com.marginallyclever.makelangelo.Translator;
 
@@ -14,8 +10,6 @@
 public class Generator_Dragon extends ImageGenerator {
 	private static int order = 12; // controls complexity of curve
 
-	private List<Integer> sequence;
-
 	@Override
 	public String getName() {
 		return Translator.get("DragonName");
@@ -38,25 +32,20 @@ public ImageGeneratorPanel getPanel() {
 	public boolean generate() {
 		turtle = new Turtle();
 
-		// create the sequence of moves
-        sequence = new ArrayList<Integer>();
-        for (int i = 0; i < order; i++) {
-            List<Integer> copy = new ArrayList<Integer>(sequence);
-            Collections.reverse(copy);
-            sequence.add(1);
-            for (Integer turn : copy) {
-                sequence.add(-turn);
-            }
-        }
-        
 		// move to starting position
         turtle.penDown();
 		// draw the fractal
-        for (Integer turn : sequence) {
-            turtle.turn(turn * 90);
-            turtle.forward(1);
-        }  
+		dragon().draw(order, 1, turtle, LSystem.DEFAULT_CHUNK_SIZE, this::addChunk);
 	    
 	    return true;
 	}
+
+	// each order is the last one, a left turn, then the last one backwards with every turn flipped.
+	// X is the curve so far and Y is that curve backwards and flipped.
+	private static LSystem dragon() {
+		LSystem system = new LSystem("X",90);
+		system.addRule('X', "X+FY");
+		system.addRule('Y', "X-FY");
+		return system;
+	}
 }
@@ -41,14 +41,13 @@ public boolean generate() {
 		
 		turtleStep = 10;
 		
-		xMax = 0;
-		xMin = 0;
-		yMax = 0;
-		yMin = 0;
-		
-		gosperA(order);
-
-		turtle = new Turtle();
+		// measure it first
+		LSystem system = gosper();
+		double [] bounds = system.getBounds(order, turtleStep);
+		xMin = bounds[0];
+		yMin = bounds[1];
+		xMax = bounds[2];
+		yMax = bounds[3];
 
 		// scale the image to fit on the paper
 		double w = xMax-xMin;
@@ -79,65 +78,18 @@ public boolean generate() {
 		turtle.moveTo(x,y);
 		turtle.penDown();
 		// do the curve
-		gosperA(order);
+		system.draw(order, turtleStep, turtle, LSystem.DEFAULT_CHUNK_SIZE, this::addChunk);
 	    
 	    return true;
 	}
 
 
-	// Gosper curve A = A-B--B+A++AA+B-
-	private void gosperA(int n) {
-		if (n == 0) {
-			gosperForward();
-			return;
-		}
-		gosperA(n-1);
-		turtle.turn(-60);
-		gosperB(n-1);
-		turtle.turn(-60);
-		turtle.turn(-60);
-		gosperB(n-1);
-		turtle.turn(60);
-		gosperA(n-1);
-		turtle.turn(60);
-		turtle.turn(60);
-		gosperA(n-1);
-		gosperA(n-1);
-		turtle.turn(60);
-		gosperB(n-1);
-		turtle.turn(-60);
-	}
-
-
-	// Gosper curve B = +A-BB--B-A++A+B
-	public void gosperB(int n) {
-		if (n == 0) {
-			gosperForward();
-			return;
-		}
-		turtle.turn(60);
-		gosperA(n-1);
-		turtle.turn(-60);
-		gosperB(n-1);
-		gosperB(n-1);
-		turtle.turn(-60);
-		turtle.turn(-60);
-		gosperB(n-1);
-		turtle.turn(-60);
-		gosperA(n-1);
-		turtle.turn(60);
-		turtle.turn(60);
-		gosperA(n-1);
-		turtle.turn(60);
-		gosperB(n-1);
-	}
-
-
-	public void gosperForward() {
-		turtle.forward(turtleStep);
-		if(xMax<turtle.getX()) xMax=turtle.getX();
-		if(xMin>turtle.getX()) xMin=turtle.getX();
-		if(yMax<turtle.getY()) yMax=turtle.getY();
-		if(yMin>turtle.getY()) yMin=turtle.getY();
+	// Gosper curve A = A-B--B+A++AA+B-, B = +A-BB--B-A++A+B
+	private static LSystem gosper() {
+		LSystem system = new LSystem("A",60);
+		system.addRule('A', "A-B--B+A++AA+B-");
+		system.addRule('B', "+A-BB--B-A++A+B");
+		system.setDrawSymbols("AB");
+		return system;
 	}
 }
@@ -47,42 +47,17 @@ public boolean generate() {
 				-xMax + turtleStep / 2,
 				-yMax + turtleStep / 2);
 		turtle.penDown();
-		hilbert(order);
+		hilbert().draw(order, turtleStep, turtle, LSystem.DEFAULT_CHUNK_SIZE, this::addChunk);
 	    
 	    return true;
 	}
 
 
-	// Hilbert curve
-	private void hilbert(int n) {
-		if (n == 0) return;
-		turtle.turn(90);
-		treblih( n - 1);
-		turtle.forward(turtleStep);
-		turtle.turn(-90);
-		hilbert( n - 1);
-		turtle.forward(turtleStep);
-		hilbert( n - 1);
-		turtle.turn(-90);
-		turtle.forward(turtleStep);
-		treblih( n - 1);
-		turtle.turn(90);
-	}
-
-
-	// evruc trebliH
-	public void treblih(int n) {
-		if (n == 0) return;
-		turtle.turn(-90);
-		hilbert( n - 1);
-		turtle.forward(turtleStep);
-		turtle.turn(90);
-		treblih( n - 1);
-		turtle.forward(turtleStep);
-		treblih( n - 1);
-		turtle.turn(90);
-		turtle.forward(turtleStep);
-		hilbert( n - 1);
-		turtle.turn(-90);
+	// Hilbert curve A = +BF-AFA-FB+, and its mirror image B = -AF+BFB+FA-
+	private static LSystem hilbert() {
+		LSystem system = new LSystem("A",90);
+		system.addRule('A', "+BF-AFA-FB+");
+		system.addRule('B', "-AF+BFB+FA-");
+		return system;
 	}
 }
@@ -57,28 +57,17 @@ public boolean generate() {
 		}
 		
 		turtle.penDown();
-		drawTriangle(order, maxSize);
+		// order 1 is a straight line.  each order after that puts a bump in the middle third of every line.
+		koch().draw(order-1, maxSize/Math.pow(3,order-1), turtle, LSystem.DEFAULT_CHUNK_SIZE, this::addChunk);
 	    
 	    return true;
 	}
 
 
-	// L System tree
-	private void drawTriangle(int n, double distance) {
-		if (n == 0) {
-			turtle.forward(distance);
-			return;
-		}
-		drawTriangle(n-1,distance/3.0f);
-		if(n>1) {
-			turtle.turn(-60);
-			drawTriangle(n-1,distance/3.0f);
-			turtle.turn(120);
-			drawTriangle(n-1,distance/3.0f);
-			turtle.turn(-60);
-		} else {
-			turtle.forward(distance/3.0f);
-		}
-		drawTriangle(n-1,distance/3.0f);
+	// Koch curve F = F-F++F-F
+	private static LSystem koch() {
+		LSystem system = new LSystem("F",60);
+		system.addRule('F', "F-F++F-F");
+		return system;
 	}
 }
@@ -1,6 +1,10 @@
 package com.marginallyclever.artPipeline.generators;
 
-import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
 import com.marginallyclever.convenience.turtle.Turtle;
 import com.marginallyclever.makelangelo.Translator;
@@ -15,7 +19,7 @@ public class Generator_LSystemTree extends ImageGenerator {
 	private static int numBranches = 3;
 	private static int noise = 0;
 	private static double orderScale = 0.76f;
-	private SecureRandom random;
+	private Random random;
 	float maxSize;
 	
 
@@ -33,8 +37,7 @@ public ImageGeneratorPanel getPanel() {
 	public boolean generate() {
 		turtle = new Turtle();
 
-		random = new SecureRandom();
-		random.setSeed(0xDEADBEEF);
+		random = new Random(0xDEADBEEF);
 		
 		// move to starting position
 		turtle.moveTo(0,-machine.getMarginHeight()/2);
@@ -47,28 +50,137 @@ public boolean generate() {
 	}
 
 
-	// recursive L System tree fractal
-	private void lSystemTree(int n, double distance) {
-		if (n == 0) return;
+	// L System tree fractal.  Big subtrees are split into their branches, which are drawn on every core at once and
+	// handed over in order.  The rest are walked with an explicit stack so no order is too deep.
+	private void lSystemTree(int order, double distance) {
+		if(order<=0) return;
 
-		turtle.forward(distance);
-		if(n>1) {
-			double angleStep = angleSpan / (float)(numBranches-1);
+		subtree(order,distance,turtle.getX(),turtle.getY(),turtle.getAngle(),random.nextLong(),this::addChunk);
+	}
+
+	/**
+	 * Draw one branch of length d and everything that grows from it, ending back where it started.
+	 * @param seed for the noise in this subtree, so it comes out the same no matter which core draws it.
+	 */
+	private void subtree(int n,double d,double x,double y,double a,long seed,Consumer<Turtle> sink) {
+		if(n<=1 || countMoves(n)<=LSystem.DEFAULT_CHUNK_SIZE) {
+			walk(n,d,x,y,a,new Random(seed),sink);
+			return;
+		}
+
+		double tipX = x + Math.cos(Math.toRadians(a))*d;
+		double tipY = y + Math.sin(Math.toRadians(a))*d;
+		Turtle chunk = newChunk();
+		chunk.moveTo(tipX,tipY);
+		sink.accept(chunk);
+
+		// where each branch starts depends only on this one, so they can all be found before any are drawn.
+		Random branchRandom = new Random(seed);
+		double [] length = new double[numBranches];
+		double [] angle = new double[numBranches];
+		long [] seeds = new long[numBranches];
+		double angleStep = angleSpan / (float)(numBranches-1);
+		double b = a - angleSpan/2.0f;
+		for(int i=0;i<numBranches;++i) {
+			double len = d*orderScale;
+			length[i] = len - len*branchRandom.nextDouble()*(noise/100.0f);
+			angle[i] = b;
+			seeds[i] = branchRandom.nextLong();
+			if(noise>0) {
+				b += angleStep + (branchRandom.nextDouble()-0.5)*(noise/100.0f)*angleStep;
+			} else {
+				b += angleStep;
+			}
+		}
+		IntStream.range(0, numBranches).parallel().mapToObj(i -> {
+			List<Turtle> parts = new ArrayList<Turtle>();
+			subtree(n-1,length[i],tipX,tipY,angle[i],seeds[i],parts::add);
+			return parts;
+		}).forEachOrdered(parts -> parts.forEach(sink));
+
+		chunk = newChunk();
+		chunk.moveTo(x,y);
+		chunk.setAngle(a);
+		sink.accept(chunk);
+	}
 
-			double oldAngle = turtle.getAngle();
-			double len = distance*orderScale;
-			turtle.turn(-(angleSpan/2.0f));
-			for(int i=0;i<numBranches;++i) {
-				lSystemTree(n-1,len - len*random.nextDouble()*(noise/100.0f) );
-				if(noise>0) {
-					turtle.turn(angleStep + (random.nextDouble()-0.5)*(noise/100.0f)*angleStep);
+	/**
+	 * @return how many moves it takes to draw a subtree of order n: there and back along every branch.
+	 */
+	private double countMoves(int n) {
+		double moves = 2;
+		for(int i=1;i<n;++i) moves = 2+numBranches*moves;
+		return moves;
+	}
+
+	/**
+	 * Draw a subtree on this thread, walking it with an explicit stack.
+	 */
+	private void walk(int order,double distance,double x,double y,double a,Random random,Consumer<Turtle> sink) {
+		Turtle chunk = newChunk();
+		
+		// for each depth: the length of the branch, the angle it started at, and how far through its children it is.
+		// children count twice, once to draw the child and once to turn to the next one.
+		double [] length = new double[order];
+		double [] oldAngle = new double[order];
+		int [] next = new int[order];
+		double angleStep = angleSpan / (float)(numBranches-1);
+		
+		int top=0;
+		length[0] = distance;
+		next[0] = -1;
+		while(top>=0) {
+			int n = order-top;
+			double d = length[top];
+			if(next[top]==-1) {
+				// arrive at this branch
+				x += Math.cos(Math.toRadians(a))*d;
+				y += Math.sin(Math.toRadians(a))*d;
+				chunk.moveTo(x,y);
+				next[top]=0;
+				if(n>1) {
+					oldAngle[top] = a;
+					a -= angleSpan/2.0f;
+				}
+			} else if(n>1 && next[top] < numBranches*2) {
+				if((next[top]&1)==0) {
+					double len = d*orderScale;
+					++next[top];
+					++top;
+					length[top] = len - len*random.nextDouble()*(noise/100.0f);
+					next[top] = -1;
 				} else {
-					turtle.turn(angleStep);
+					if(noise>0) {
+						a += angleStep + (random.nextDouble()-0.5)*(noise/100.0f)*angleStep;
+					} else {
+						a += angleStep;
+					}
+					++next[top];
 				}
+			} else {
+				// back down to where this branch started
+				if(n>1) a = oldAngle[top];
+				x -= Math.cos(Math.toRadians(a))*d;
+				y -= Math.sin(Math.toRadians(a))*d;
+				chunk.moveTo(x,y);
+				--top;
+			}
+			
+			if(chunk.history.size()>=LSystem.DEFAULT_CHUNK_SIZE) {
+				chunk.setAngle(a);
+				sink.accept(chunk);
+				chunk = newChunk();
 			}
-			turtle.setAngle(oldAngle);
 		}
-		turtle.forward(-distance);
+		chunk.setAngle(a);
+		sink.accept(chunk);
+	}
+	
+	private Turtle newChunk() {
+		Turtle chunk = new Turtle();
+		chunk.setColor(turtle.getColor());
+		chunk.penDown();
+		return chunk;
 	}
 
 
@@ -1,31 +1,30 @@
 package com.marginallyclever.artPipeline.generators;
 
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
 import com.marginallyclever.convenience.turtle.Turtle;
 import com.marginallyclever.makelangelo.Translator;
 
 /**
  * Makes a "well formed" maze.
+ * <p>
+ * Cells and walls are bits, so a maze of millions of cells fits in a few megabytes.  The maze is carved by a recursive
+ * backtracker with an explicit stack, then every line of walls is drawn as few long strokes as it can be, back and
+ * forth across the paper, so even giant mazes lift the pen as little as possible.
  * See also https://en.wikipedia.org/wiki/Maze_generation_algorithm#Recursive_backtracker
  * @author Dan Royer
  */
 public class Generator_Maze extends ImageGenerator {
-	// MazeCells are the rooms separted by MazeWalls
-	protected class MazeCell {
-		int x, y;
-		boolean visited;
-		boolean onStack;
-	}
-
-	// MazeWalls separate MazeCells
-	protected class MazeWall {
-		int cellA, cellB;
-		boolean removed;
-	}
-
 	protected static int rows = 5, columns = 5;
 	protected float xMax, xMin, yMax, yMin;
-	protected MazeCell[] cells;
-	protected MazeWall[] walls;
+	// cells are numbered y*columns+x.
+	protected BitSet visited;
+	// set if the wall between cell i and the cell to its right has been removed.
+	protected BitSet openRight;
+	// set if the wall between cell i and the cell below it has been removed.
+	protected BitSet openDown;
 	
 	@Override
 	public String getName() {
@@ -53,86 +52,51 @@ public ImageGeneratorPanel getPanel() {
 	}
 
 	/**
-	 * build a list of walls in the maze, cells in the maze, and how they connect to each other.
+	 * carve the maze, then draw it.
 	 */
 	@Override
 	public boolean generate() {
-		// build the cells
-		cells = new MazeCell[rows * columns];
-
-		int x, y, i = 0;
-		for (y = 0; y < rows; ++y) {
-			for (x = 0; x < columns; ++x) {
-				cells[i] = new MazeCell();
-				cells[i].visited = false;
-				cells[i].onStack = false;
-				cells[i].x = x;
-				cells[i].y = y;
-				++i;
-			}
-		}
-
-		// build the graph
-		walls = new MazeWall[((rows - 1) * columns) + ((columns - 1) * rows)];
-		i = 0;
-		for (y = 0; y < rows; ++y) {
-			for (x = 0; x < columns; ++x) {
-				if (x < columns - 1) {
-					// vertical wall between horizontal cells
-					walls[i] = new MazeWall();
-					walls[i].removed = false;
-					walls[i].cellA = y * columns + x;
-					walls[i].cellB = y * columns + x + 1;
-					++i;
-				}
-				if (y < rows - 1) {
-					// horizontal wall between vertical cells
-					walls[i] = new MazeWall();
-					walls[i].removed = false;
-					walls[i].cellA = y * columns + x;
-					walls[i].cellB = y * columns + x + columns;
-					++i;
-				}
-			}
-		}
-
-		int unvisitedCells = cells.length; // -1 for initial cell.
-		int cellsOnStack = 0;
+		final int count = rows * columns;
+		visited = new BitSet(count);
+		openRight = new BitSet(count);
+		openDown = new BitSet(count);
+		Random random = new Random();
 
 		// Make the initial cell the current cell and mark it as visited
-		int currentCell = 0;
-		cells[currentCell].visited = true;
-		--unvisitedCells;
+		int [] stack = new int[64];
+		int top = 0;
+		stack[top++] = 0;
+		visited.set(0);
+		int [] candidates = new int[4];
+
+		while (top > 0) {
+			int currentCell = stack[top-1];
+			int x = currentCell % columns;
+			int y = currentCell / columns;
 
-		// While there are unvisited cells
-		while (unvisitedCells > 0) {
 			// If the current cell has any neighbours which have not been visited
-			// Choose randomly one of the unvisited neighbours
-			int nextCell = chooseUnvisitedNeighbor(currentCell);
-			if (nextCell != -1) {
-				// Push the current cell to the stack
-				cells[currentCell].onStack = true;
-				++cellsOnStack;
-				// Remove the wall between the current cell and the chosen cell
-				int wallIndex = findWallBetween(currentCell, nextCell);
-				assert (wallIndex != -1);
-				walls[wallIndex].removed = true;
-				// Make the chosen cell the current cell and mark it as visited
-				currentCell = nextCell;
-				cells[currentCell].visited = true;
-				--unvisitedCells;
-			} else if (cellsOnStack > 0) {
-				// else if stack is not empty pop a cell from the stack
-				for (i = 0; i < cells.length; ++i) {
-					if (cells[i].onStack) {
-						// Make it the current cell
-						currentCell = i;
-						cells[i].onStack = false;
-						--cellsOnStack;
-						break;
-					}
-				}
+			int found = 0;
+			if (x > 0 && !visited.get(currentCell - 1)) candidates[found++] = currentCell - 1;
+			if (x < columns - 1 && !visited.get(currentCell + 1)) candidates[found++] = currentCell + 1;
+			if (y > 0 && !visited.get(currentCell - columns)) candidates[found++] = currentCell - columns;
+			if (y < rows - 1 && !visited.get(currentCell + columns)) candidates[found++] = currentCell + columns;
+			if (found == 0) {
+				// else pop a cell from the stack and make it the current cell
+				--top;
+				continue;
 			}
+
+			// Choose randomly one of the unvisited neighbours and remove the wall between it and the current cell
+			int nextCell = candidates[random.nextInt(found)];
+			int low = Math.min(currentCell, nextCell);
+			// with one column the cells above and below are also 1 apart, so test for a vertical step first.
+			if (Math.abs(nextCell - currentCell) == columns) openDown.set(low);
+			else openRight.set(low);
+
+			// Push the chosen cell to the stack and mark it as visited
+			visited.set(nextCell);
+			if (top == stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+			stack[top++] = nextCell;
 		}
 
 		// draw the maze
@@ -162,76 +126,53 @@ private void drawMaze() {
 		// top-left gap for entrance is left here
 		turtle.moveTo(xMin, yMax - h);
 
-		int i;
-		for (i = 0; i < walls.length; ++i) {
-			if (walls[i].removed)
-				continue;
-			int a = walls[i].cellA;
-			int b = walls[i].cellB;
-			int ax = cells[a].x;
-			int ay = cells[a].y;
-			int bx = cells[b].x;
-			int by = cells[b].y;
-			if (ay == by) {
-				// vertical wall
-				float x = xMin + (ax + 1) * w;
-				float y0 = yMin + (ay + 0) * h;
-				float y1 = yMin + (ay + 1) * h;
-				turtle.jumpTo(x, y0);
-				turtle.moveTo(x, y1);
-			} else if (ax == bx) {
-				// horizontal wall
-				float x0 = xMin + (ax + 0) * w;
-				float x1 = xMin + (ax + 1) * w;
-				float y = yMin + (ay + 1) * h;
-				turtle.jumpTo(x0, y);
-				turtle.moveTo(x1, y);
+		// horizontal walls, one line at a time.  every other line runs backwards so the pen doesn't fly back across.
+		for (int y = 0; y < rows - 1; ++y) {
+			float ly = yMin + (y + 1) * h;
+			boolean forward = (y % 2) == 0;
+			int start = -1;
+			for (int j = 0; j <= columns; ++j) {
+				int x = forward ? j : columns - 1 - j;
+				boolean wall = j < columns && !openDown.get(y * columns + x);
+				if (wall && start == -1) {
+					start = x;
+				} else if (!wall && start != -1) {
+					// the run is start..previous x, inclusive.
+					int end = forward ? x - 1 : x + 1;
+					float x0 = xMin + (forward ? start : start + 1) * w;
+					float x1 = xMin + (forward ? end + 1 : end) * w;
+					line(x0, ly, x1, ly);
+					start = -1;
+				}
 			}
 		}
-	}
 
-	private int chooseUnvisitedNeighbor(int currentCell) {
-		int x = cells[currentCell].x;
-		int y = cells[currentCell].y;
-
-		int[] candidates = new int[4];
-		int found = 0;
-
-		// left
-		if (x > 0 && cells[currentCell - 1].visited == false) {
-			candidates[found++] = currentCell - 1;
-		}
-		// right
-		if (x < columns - 1 && !cells[currentCell + 1].visited) {
-			candidates[found++] = currentCell + 1;
-		}
-		// up
-		if (y > 0 && !cells[currentCell - columns].visited) {
-			candidates[found++] = currentCell - columns;
-		}
-		// down
-		if (y < rows - 1 && !cells[currentCell + columns].visited) {
-			candidates[found++] = currentCell + columns;
+		// vertical walls, one line at a time.
+		for (int x = 0; x < columns - 1; ++x) {
+			float lx = xMin + (x + 1) * w;
+			boolean forward = (x % 2) == 0;
+			int start = -1;
+			for (int j = 0; j <= rows; ++j) {
+				int y = forward ? j : rows - 1 - j;
+				boolean wall = j < rows && !openRight.get(y * columns + x);
+				if (wall && start == -1) {
+					start = y;
+				} else if (!wall && start != -1) {
+					int end = forward ? y - 1 : y + 1;
+					float y0 = yMin + (forward ? start : start + 1) * h;
+					float y1 = yMin + (forward ? end + 1 : end) * h;
+					line(lx, y0, lx, y1);
+					start = -1;
+				}
+			}
 		}
-
-		if (found == 0)
-			return -1;
-
-		// choose a random candidate
-		int choice = (int) (Math.random() * found);
-		assert (choice >= 0 && choice < found);
-
-		return candidates[choice];
 	}
 
-	private int findWallBetween(int currentCell, int nextCell) {
-		int i;
-		for (i = 0; i < walls.length; ++i) {
-			if (walls[i].cellA == currentCell || walls[i].cellA == nextCell) {
-				if (walls[i].cellB == currentCell || walls[i].cellB == nextCell)
-					return i;
-			}
+	// draw a wall, without lifting the pen if it starts where the last one ended.
+	private void line(float x0, float y0, float x1, float y1) {
+		if (turtle.isUp() || turtle.getX() != x0 || turtle.getY() != y0) {
+			turtle.jumpTo(x0, y0);
 		}
-		return -1;
+		turtle.moveTo(x1, y1);
 	}
 }
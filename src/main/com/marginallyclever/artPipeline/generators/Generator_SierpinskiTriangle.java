@@ -55,27 +55,21 @@ public boolean generate() {
 		}
 		turtle.penDown();
 		// do the curve
-		if( (order&1) == 0 ) {
-			drawCurve(order, maxSize,-60);
-		} else {
+		if( (order&1) != 0 ) {
 			turtle.turn(60);
-			drawCurve(order, maxSize,-60);
 		}
+		arrowhead().draw(order, maxSize/Math.pow(2,order), turtle, LSystem.DEFAULT_CHUNK_SIZE, this::addChunk);
 
 		return true;
 	}
 
 
-	private void drawCurve(int n, double distance,double angle) {
-		if (n == 0) {
-			turtle.forward(distance);
-			return;
-		}
-		
-		drawCurve(n-1,distance/2.0f,-angle);
-		turtle.turn(angle);
-		drawCurve(n-1,distance/2.0f,angle);
-		turtle.turn(angle);
-		drawCurve(n-1,distance/2.0f,-angle);
+	// Sierpinski arrowhead curve A = B-A-B, B = A+B+A
+	private static LSystem arrowhead() {
+		LSystem system = new LSystem("A",60);
+		system.addRule('A', "B-A-B");
+		system.addRule('B', "A+B+A");
+		system.setDrawSymbols("AB");
+		return system;
 	}
 }
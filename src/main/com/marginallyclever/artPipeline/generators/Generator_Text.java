@@ -5,19 +5,29 @@
 import java.awt.Rectangle;
 import java.awt.Shape;
 import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
 import java.awt.font.TextLayout;
 import java.awt.geom.PathIterator;
+import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.text.Bidi;
+import java.util.ArrayList;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
 
+import com.marginallyclever.convenience.CurveFlattener;
 import com.marginallyclever.convenience.log.Log;
 import com.marginallyclever.convenience.turtle.Turtle;
+import com.marginallyclever.convenience.turtle.TurtleMove;
+import com.marginallyclever.convenience.turtle.TurtleMoveType;
 import com.marginallyclever.makelangelo.Translator;
 
 /**
@@ -54,6 +64,10 @@ public enum Align {LEFT, CENTER, RIGHT}
 	private static Font [] fontList;
 	private static String [] fontNames;
 	
+	// flattened glyph outlines, shared by every message in every font.
+	private static final Map<GlyphKey,float[][]> glyphCache = new ConcurrentHashMap<GlyphKey,float[][]>();
+	private static final int MAX_CACHED_GLYPHS = 4096;
+	
 	public Generator_Text() {		
 		// build list of fonts
 		GraphicsEnvironment ge = GraphicsEnvironment.getLocalGraphicsEnvironment();
@@ -210,87 +224,115 @@ private void writeBeautifulMessage(String fontName,int fontSize, String message)
 		}
 	}
 	
+	/**
+	 * Lay the text out in runs of one direction, in the order they are read on screen, like {@link TextLayout} does.
+	 * Right to left runs are shaped right to left.  Each glyph is then drawn from the cache.
+	 */
 	private void writeBeautifulString(Font font, FontRenderContext frc,String text,float dx, float dy) { 
-		TextLayout textLayout = new TextLayout(text,font,frc);
-		Shape s = textLayout.getOutline(null);		
-		PathIterator pi = s.getPathIterator(null);
-		
-		float [] coords = new float[6];
-		float [] coords2 = new float[6];
-		float [] start = new float[6];
-		float n,i;
-		n = 5;
-		
-		while(pi.isDone() == false ) {
-			int type = pi.currentSegment(coords);
-			switch(type) {
-			case PathIterator.SEG_CLOSE:
-				//Log.message("CLOSE");
-				turtle.moveTo(start[0]-dx, -start[1]-dy);
-				turtle.penUp();
-				coords2[0] = coords[0];
-				coords2[1] = coords[1];
-				break;
-			case PathIterator.SEG_LINETO:
-				//Log.message("LINE");
-				turtle.moveTo(coords[0]-dx, -coords[1]-dy);
-				coords2[0] = coords[0];
-				coords2[1] = coords[1];
-				break;
-			case PathIterator.SEG_MOVETO:
-				//Log.message("MOVE");
-				// move without drawing
-				start[0] = coords2[0] = coords[0];
-				start[1] = coords2[1] = coords[1];
-				turtle.jumpTo(start[0]-dx, -start[1]-dy);
-				break;
-			case PathIterator.SEG_CUBICTO:
-				//P(t) = B(3,0)*CP + B(3,1)*P1 + B(3,2)*P2 + B(3,3)*P3
-				//0 <= t <= 1
-				//B(n,m) = mth coefficient of nth degree Bernstein polynomial
-	            //   = C(n,m) * t^(m) * (1 - t)^(n-m)
-				//C(n,m) = Combinations of n things, taken m at a time
-	            //   = n! / (m! * (n-m)!)
-				
-				// B(3,0) = (1 - t)^3
-				// B(3,1) = 3 * t * (1 - t)^2
-				// B(3,2) = 3 * t^2 * (1 - t)
-				// B(3,3) = t^3
-				//Log.message("CUBIC");
-				for(i=0;i<n;++i) {
-					float t = i/n;
-					float t1 = (1.0f-t);
-					float a = t1*t1*t1;
-					float b = 3*t*t1*t1;
-					float c = 3*t*t*t1;
-					float d = t*t*t;
-					float x = coords2[0]*a + coords[0]*b + coords[2]*c + coords[4]*d;
-					float y = coords2[1]*a + coords[1]*b + coords[3]*c + coords[5]*d;
-					turtle.moveTo(x-dx,-y-dy);
+		char [] chars = text.toCharArray();
+		float tolerance = (float)CurveFlattener.getTolerance(machine.getPenDiameter());
+
+		Bidi bidi = new Bidi(chars, 0, null, 0, chars.length, Bidi.DIRECTION_DEFAULT_LEFT_TO_RIGHT);
+		int runCount = bidi.getRunCount();
+		byte [] levels = new byte[runCount];
+		Integer [] runs = new Integer[runCount];
+		for(int r=0;r<runCount;++r) {
+			levels[r] = (byte)bidi.getRunLevel(r);
+			runs[r] = r;
+		}
+		Bidi.reorderVisually(levels, 0, runs, 0, runCount);
+
+		float x = -dx;
+		for(Integer r : runs) {
+			int flags = (bidi.getRunLevel(r) & 1)==1 ? Font.LAYOUT_RIGHT_TO_LEFT : Font.LAYOUT_LEFT_TO_RIGHT;
+			GlyphVector gv = font.layoutGlyphVector(frc, chars, bidi.getRunStart(r), bidi.getRunLimit(r), flags);
+			for(int g=0;g<gv.getNumGlyphs();++g) {
+				Point2D pos = gv.getGlyphPosition(g);
+				float gx = (float)pos.getX()+x;
+				float gy = (float)pos.getY()+dy;
+				for(float [] line : getGlyph(font,gv.getGlyphCode(g),frc,tolerance)) {
+					turtle.jumpTo(line[0]+gx, -line[1]-gy);
+					for(int j=2;j<line.length;j+=2) {
+						turtle.moveTo(line[j]+gx, -line[j+1]-gy);
+					}
+					turtle.penUp();
 				}
-				turtle.moveTo(coords[4]-dx,-coords[5]-dy);
-				coords2[0] = coords[4];
-				coords2[1] = coords[5];
-				break;
-			case PathIterator.SEG_QUADTO:
-				//Log.message("QUAD");
-				for(i=0;i<n;++i) {
-					float t = i/n;
-					//(1-t)²*P0 + 2t*(1-t)*P1 + t²*P2
-					float u = (1.0f-t);
-					float tt=u*u;
-					float ttt=2.0f*t*u;
-					float tttt=t*t;
-					float x = coords2[0]*tt + (coords[0]*ttt) + (coords[2]*tttt);
-					float y = coords2[1]*tt + (coords[1]*ttt) + (coords[3]*tttt);
-					turtle.moveTo(x-dx,-y-dy);
+			}
+			// the position after the last glyph is where the next run starts.
+			x += (float)gv.getGlyphPosition(gv.getNumGlyphs()).getX();
+		}
+	}
+	
+	/**
+	 * @return the outline of one glyph, relative to its origin, as polylines of x,y pairs.  Flattened once per font,
+	 * render context, glyph, and tolerance, then reused.
+	 */
+	private static float [][] getGlyph(Font font,int glyphCode,FontRenderContext frc,float tolerance) {
+		GlyphKey key = new GlyphKey(font,glyphCode,frc,tolerance);
+		float [][] lines = glyphCache.get(key);
+		if(lines==null) {
+			if(glyphCache.size()>=MAX_CACHED_GLYPHS) glyphCache.clear();
+			Shape s = font.createGlyphVector(frc, new int[] { glyphCode }).getGlyphOutline(0);
+			lines = flatten(s.getPathIterator(null),tolerance);
+			glyphCache.put(key, lines);
+		}
+		return lines;
+	}
+	
+	/**
+	 * @return every subpath as x,y pairs.  closed subpaths end back at their start.
+	 */
+	private static float [][] flatten(PathIterator pi,float tolerance) {
+		Turtle t = new Turtle();
+		CurveFlattener.flatten(t,pi,tolerance);
+		
+		ArrayList<float[]> lines = new ArrayList<float[]>();
+		// a new turtle starts with a tool change.  skip it.
+		int first=1;
+		for(int i=2;i<=t.history.size();++i) {
+			if(i==t.history.size() || t.history.get(i).type==TurtleMoveType.TRAVEL) {
+				if(i-first>1) {
+					float [] line = new float[(i-first)*2];
+					for(int j=first;j<i;++j) {
+						TurtleMove m = t.history.get(j);
+						line[(j-first)*2  ] = (float)m.x;
+						line[(j-first)*2+1] = (float)m.y;
+					}
+					lines.add(line);
 				}
-				turtle.moveTo(coords[2]-dx,-coords[3]-dy);
-				coords2[0] = coords[2];
-				coords2[1] = coords[3];
-				break;
+				first=i;
 			}
-			pi.next();
+		}
+		return lines.toArray(new float[lines.size()][]);
+	}
+	
+	/**
+	 * Everything a glyph outline depends on.  Font.equals() covers the name, style, size, and transform.  The render
+	 * context decides hinting and fractional metrics.
+	 */
+	private static class GlyphKey {
+		final Font font;
+		final FontRenderContext frc;
+		final int glyphCode;
+		final float tolerance;
+		
+		GlyphKey(Font font,int glyphCode,FontRenderContext frc,float tolerance) {
+			this.font = font;
+			this.frc = frc;
+			this.glyphCode = glyphCode;
+			this.tolerance = tolerance;
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			if(!(o instanceof GlyphKey)) return false;
+			GlyphKey k = (GlyphKey)o;
+			return glyphCode==k.glyphCode && tolerance==k.tolerance && font.equals(k.font) && frc.equals(k.frc);
+		}
+		
+		@Override
+		public int hashCode() {
+			return Objects.hash(font,frc,glyphCode,tolerance);
 		}
 	}
 
@@ -2,6 +2,8 @@
 
 import com.jogamp.opengl.GL2;
 import com.marginallyclever.artPipeline.ImageManipulator;
+import com.marginallyclever.convenience.turtle.DefaultTurtleRenderer;
+import com.marginallyclever.convenience.turtle.Turtle;
 import com.marginallyclever.makelangeloRobot.MakelangeloRobotDecorator;
 
 /**
@@ -17,6 +19,8 @@
  *
  */
 public abstract class ImageGenerator extends ImageManipulator implements MakelangeloRobotDecorator {
+	private DefaultTurtleRenderer previewRenderer;
+	
 	/**
 	 * @return true if generate succeeded.
 	 */
@@ -31,9 +35,27 @@ public ImageGeneratorPanel getPanel() {
 		return null;
 	}
 	
+	/**
+	 * Append a finished piece of the drawing to turtle.  Generators that make very long drawings hand them over a
+	 * piece at a time so the preview can show the part that is done.
+	 * @param chunk moves that carry on from where turtle left off.
+	 */
+	protected void addChunk(Turtle chunk) {
+		turtle.lock();
+		try {
+			turtle.add(chunk);
+		} finally {
+			turtle.unlock();
+		}
+	}
+	
 	/**
 	 * live preview as the system is generating.
 	 * draw the results as the calculation is being performed.
 	 */
-	public void render(GL2 gl2) {}
+	public void render(GL2 gl2) {
+		if(previewRenderer==null) previewRenderer = new DefaultTurtleRenderer(gl2);
+		// skips the frame if a chunk is being added.
+		turtle.render(previewRenderer);
+	}
 }
@@ -0,0 +1,381 @@
+package com.marginallyclever.artPipeline.generators;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import com.marginallyclever.convenience.ColorRGB;
+import com.marginallyclever.convenience.turtle.Turtle;
+import com.marginallyclever.convenience.turtle.TurtleMove;
+import com.marginallyclever.convenience.turtle.TurtleMoveType;
+
+/**
+ * A Lindenmayer system: an axiom, rules that rewrite symbols into strings of symbols, and a turtle that draws the
+ * result.
+ * <p>
+ * The rewritten string is never built.  Rules are expanded depth first with an explicit stack, one symbol at a time,
+ * so memory grows with the order instead of the length of the curve and no order is too deep for the call stack.
+ * Moves are handed out in chunks as they are made, so the caller can show the curve while it grows.  Every forward
+ * move draws.
+ * <p>
+ * Long drawings are cut into pieces - one symbol at some depth, each about a chunk long - and the pieces are drawn on
+ * every core at once.  A summary of every symbol at every depth (see {@link Summary}) says where each piece starts
+ * without drawing the pieces before it.  That needs every [ in a rule to be closed by a ] in the same rule; if not,
+ * the whole drawing is made on one core.
+ * <p>
+ * Symbols set with {@link #setDrawSymbols(String)} move forward one step with the pen down.  + turns
+ * counter-clockwise by the angle, - turns clockwise.  [ saves the turtle and ] jumps back to it.  Anything else only
+ * matters for rewriting.
+ *
+ * See <a href="https://en.wikipedia.org/wiki/L-system">https://en.wikipedia.org/wiki/L-system</a>
+ */
+public class LSystem {
+	// moves per chunk, unless the caller asks for something else.
+	public static final int DEFAULT_CHUNK_SIZE = 10000;
+	private static final long MAX_MOVES = Long.MAX_VALUE/4;
+
+	private final char [] axiom;
+	// rules[symbol] is what the symbol becomes, or null if it never changes.
+	private final char [][] rules = new char[128][];
+	private final boolean [] draws = new boolean[128];
+	private final double angle;
+	// true while every rule closes each [ it opens.  otherwise a piece of the drawing can't be drawn on its own.
+	private boolean balanced = true;
+
+	/**
+	 * @param axiom the string at order 0
+	 * @param angle how far + and - turn, in degrees
+	 */
+	public LSystem(String axiom,double angle) {
+		this.axiom = check(axiom);
+		this.angle = angle;
+		draws['F'] = true;
+	}
+
+	/**
+	 * Replace every symbol with a string of symbols, once per order.
+	 */
+	public void addRule(char symbol,String replacement) {
+		check(String.valueOf(symbol));
+		rules[symbol] = check(replacement);
+		balanced = true;
+		for(char [] rule : rules) {
+			if(rule!=null && !isBalanced(rule)) balanced = false;
+		}
+	}
+
+	private static boolean isBalanced(char [] rule) {
+		int open = 0;
+		for(char c : rule) {
+			if(c=='[') ++open;
+			if(c==']' && --open<0) return false;
+		}
+		return open==0;
+	}
+
+	/**
+	 * @param symbols every symbol that moves forward with the pen down.  F by default.
+	 */
+	public void setDrawSymbols(String symbols) {
+		Arrays.fill(draws, false);
+		for(char c : check(symbols)) draws[c] = true;
+	}
+
+	private static char [] check(String s) {
+		for(int i=0;i<s.length();++i) {
+			if(s.charAt(i)>=128) throw new IllegalArgumentException("L-system symbols must be ASCII: "+s);
+		}
+		return s.toCharArray();
+	}
+
+	/**
+	 * Measure a drawing without keeping it.
+	 * @param order how many times to apply the rules
+	 * @param step how far each forward move goes
+	 * @return {xMin,yMin,xMax,yMax} of every point visited, starting from the origin facing +x.
+	 */
+	public double [] getBounds(int order,double step) {
+		final double [] bounds = { 0,0,0,0 };
+		draw(order,step,new Turtle(),DEFAULT_CHUNK_SIZE,(chunk)->{
+			for( TurtleMove m : chunk.history ) {
+				if(m.type==TurtleMoveType.TOOL_CHANGE) continue;
+				if(bounds[0]>m.x) bounds[0]=m.x;
+				if(bounds[1]>m.y) bounds[1]=m.y;
+				if(bounds[2]<m.x) bounds[2]=m.x;
+				if(bounds[3]<m.y) bounds[3]=m.y;
+			}
+		});
+		return bounds;
+	}
+
+	/**
+	 * Draw the system.
+	 * @param order how many times to apply the rules
+	 * @param step how far each forward move goes
+	 * @param start where to begin: its position, angle and color.  it is not changed.
+	 * @param chunkSize the most moves in one chunk
+	 * @param sink receives each chunk in order.  The chunk belongs to the sink.  Chunks hold no moves to get to the
+	 *             start, so appending them all to start with {@link Turtle#add(Turtle)} gives the whole drawing.
+	 */
+	public void draw(int order,double step,Turtle start,int chunkSize,Consumer<Turtle> sink) {
+		ColorRGB color = start.getColor();
+		if(!balanced) {
+			expand(axiom,order,step,start.getX(),start.getY(),start.getAngle(),color,chunkSize,sink);
+			return;
+		}
+
+		Summary summary = new Summary(order,step);
+		List<int[]> pieces = split(order,chunkSize,summary);
+		if(pieces.size()<2) {
+			expand(axiom,order,step,start.getX(),start.getY(),start.getAngle(),color,chunkSize,sink);
+			return;
+		}
+
+		// where each piece starts.  the summaries say where every piece ends without drawing it.
+		final int n = pieces.size();
+		final double [] state = new double[(n+1)*3];
+		state[0] = start.getX();
+		state[1] = start.getY();
+		state[2] = start.getAngle();
+		double [] saved = new double[3*16];
+		int savedCount = 0;
+		for(int i=0;i<n;++i) {
+			char c = (char)pieces.get(i)[0];
+			int d = pieces.get(i)[1];
+			System.arraycopy(state, i*3, state, i*3+3, 3);
+			if(c=='[') {
+				if(savedCount*3==saved.length) saved = Arrays.copyOf(saved, saved.length*2);
+				System.arraycopy(state, i*3, saved, savedCount*3, 3);
+				++savedCount;
+			} else if(c==']') {
+				if(savedCount>0) {
+					--savedCount;
+					System.arraycopy(saved, savedCount*3, state, i*3+3, 3);
+				}
+			} else {
+				summary.apply(d,c,state,i*3+3);
+			}
+		}
+
+		// draw the pieces on every core.  hand them over in order, a chunk at a time, as they finish.
+		final Turtle [] pending = { newChunk(color) };
+		IntStream.range(0, n).parallel().mapToObj(i -> {
+			char c = (char)pieces.get(i)[0];
+			int d = pieces.get(i)[1];
+			List<Turtle> parts = new ArrayList<Turtle>();
+			if(c==']') {
+				Turtle t = newChunk(color);
+				t.jumpTo(state[i*3+3],state[i*3+4]);
+				t.setAngle(state[i*3+5]);
+				parts.add(t);
+			} else if(summary.moves[d][c]>0) {
+				expand(new char[] { c },d,step,state[i*3],state[i*3+1],state[i*3+2],color,chunkSize,parts::add);
+			}
+			return parts;
+		}).forEachOrdered(parts -> {
+			for( Turtle t : parts ) {
+				pending[0].add(t);
+				if(pending[0].history.size()>=chunkSize) {
+					sink.accept(pending[0]);
+					pending[0] = newChunk(color);
+				}
+			}
+		});
+		sink.accept(pending[0]);
+	}
+
+	/**
+	 * Cut the drawing into pieces of about target moves each.  A piece is one symbol at some depth.
+	 * @return {symbol,depth} for every piece, in drawing order.
+	 */
+	private List<int[]> split(int order,int target,Summary summary) {
+		List<int[]> pieces = new ArrayList<int[]>();
+		char [][] text = new char[order+1][];
+		int [] pos = new int[order+1];
+		int top = 0;
+		text[0] = axiom;
+		while(top>=0) {
+			if(pos[top]==text[top].length) {
+				--top;
+				continue;
+			}
+			char c = text[top][pos[top]++];
+			int depth = order-top;
+			if(depth>0 && rules[c]!=null && summary.moves[depth][c]>target) {
+				++top;
+				text[top] = rules[c];
+				pos[top] = 0;
+			} else {
+				pieces.add(new int[] { c, depth });
+			}
+		}
+		return pieces;
+	}
+
+	/**
+	 * Draw one symbol string without splitting it up.
+	 */
+	private void expand(char [] start,int order,double step,double x,double y,double a,ColorRGB color,int chunkSize,Consumer<Turtle> sink) {
+		Turtle chunk = newChunk(color);
+
+		// the string being read at each depth and how far into it.  frame i is at order-i.
+		char [][] text = new char[order+1][];
+		int [] pos = new int[order+1];
+		int top = 0;
+		text[0] = start;
+		// x,y,angle for every [ that has not been closed.
+		double [] saved = new double[3*16];
+		int savedCount = 0;
+
+		while(top>=0) {
+			if(pos[top]==text[top].length) {
+				--top;
+				continue;
+			}
+			char c = text[top][pos[top]++];
+			if(top<order && rules[c]!=null) {
+				++top;
+				text[top] = rules[c];
+				pos[top] = 0;
+				continue;
+			}
+
+			switch(c) {
+			case '+':  a += angle;  break;
+			case '-':  a -= angle;  break;
+			case '[':
+				if(savedCount*3==saved.length) saved = Arrays.copyOf(saved, saved.length*2);
+				saved[savedCount*3  ] = x;
+				saved[savedCount*3+1] = y;
+				saved[savedCount*3+2] = a;
+				++savedCount;
+				break;
+			case ']':
+				if(savedCount==0) break;
+				--savedCount;
+				x = saved[savedCount*3  ];
+				y = saved[savedCount*3+1];
+				a = saved[savedCount*3+2];
+				chunk.jumpTo(x,y);
+				break;
+			default:
+				if(draws[c]) {
+					double radians = Math.toRadians(a);
+					x += Math.cos(radians)*step;
+					y += Math.sin(radians)*step;
+					chunk.moveTo(x,y);
+				}
+				break;
+			}
+
+			if(chunk.history.size()>=chunkSize) {
+				chunk.setAngle(a);
+				sink.accept(chunk);
+				chunk = newChunk(color);
+			}
+		}
+		chunk.setAngle(a);
+		sink.accept(chunk);
+	}
+
+	private Turtle newChunk(ColorRGB color) {
+		Turtle chunk = new Turtle();
+		chunk.setColor(color);
+		chunk.penDown();
+		return chunk;
+	}
+
+	/**
+	 * The grammar as a DAG: every symbol at every depth, drawn once from the origin facing +x, boiled down to where
+	 * it ends up, how far it turns, and how many moves it makes.  Each is built from the ones a level below, so the
+	 * whole table costs about (order * total length of the rules) no matter how long the drawing is.
+	 */
+	private class Summary {
+		final double [][] dx, dy, da;
+		final long [][] moves;
+
+		Summary(int order,double step) {
+			dx = new double[order+1][128];
+			dy = new double[order+1][128];
+			da = new double[order+1][128];
+			moves = new long[order+1][128];
+			for(int c=0;c<128;++c) {
+				if(draws[c]) {
+					dx[0][c] = step;
+					moves[0][c] = 1;
+				}
+				if(c=='+') da[0][c] = angle;
+				if(c=='-') da[0][c] = -angle;
+				// a ] on its own is a jump.  inside a rule the brackets are matched and its effect comes from [.
+				if(c==']') moves[0][c] = 1;
+			}
+			double [] state = new double[3];
+			double [] saved = new double[3*16];
+			for(int d=1;d<=order;++d) {
+				for(int c=0;c<128;++c) {
+					if(rules[c]==null) {
+						dx[d][c] = dx[0][c];
+						dy[d][c] = dy[0][c];
+						da[d][c] = da[0][c];
+						moves[d][c] = moves[0][c];
+						continue;
+					}
+					state[0]=state[1]=state[2]=0;
+					int savedCount = 0;
+					long m = 0;
+					for(char s : rules[c]) {
+						if(s=='[') {
+							if(savedCount*3==saved.length) saved = Arrays.copyOf(saved, saved.length*2);
+							System.arraycopy(state, 0, saved, savedCount*3, 3);
+							++savedCount;
+						} else if(s==']') {
+							--savedCount;
+							System.arraycopy(saved, savedCount*3, state, 0, 3);
+							++m;
+						} else {
+							apply(d-1,s,state,0);
+							m += moves[d-1][s];
+						}
+						// far more than could ever be drawn.  stop counting before it overflows.
+						if(m>MAX_MOVES) m=MAX_MOVES;
+					}
+					dx[d][c] = state[0];
+					dy[d][c] = state[1];
+					da[d][c] = state[2];
+					moves[d][c] = m;
+				}
+			}
+		}
+
+		/**
+		 * Move state[offset...offset+2] = x,y,angle by symbol c drawn at depth d.
+		 */
+		void apply(int d,char c,double [] state,int offset) {
+			double radians = Math.toRadians(state[offset+2]);
+			double cos = Math.cos(radians);
+			double sin = Math.sin(radians);
+			state[offset  ] += dx[d][c]*cos - dy[d][c]*sin;
+			state[offset+1] += dx[d][c]*sin + dy[d][c]*cos;
+			state[offset+2] += da[d][c];
+		}
+	}
+}
+
+/**
+ * This file is part of Makelangelo.
+ * <p>
+ * Makelangelo is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * Makelangelo is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with Makelangelo.  If not, see <http://www.gnu.org/licenses/>.
+ */
@@ -3,6 +3,7 @@
 import java.awt.image.BufferedImage;
 
 import com.marginallyclever.artPipeline.TransformedImage;
+import com.marginallyclever.convenience.Histogram;
 import com.marginallyclever.convenience.log.Log;
 
 /**
@@ -131,22 +132,15 @@ public TransformedImage filterSimple(TransformedImage img) {
 	 */
 	@Deprecated
 	public TransformedImage processViaHistogram(TransformedImage img) {
-		int h = img.getSourceImage().getHeight();
-		int w = img.getSourceImage().getWidth();
+		int i;
 
-		int x, y, i;
+		Histogram hist = new Histogram();
+		hist.getGreyHistogramOf(img.getSourceImage());
 
 		double[] histogram = new double[256];
 
 		for (i = 0; i < 256; ++i) {
-			histogram[i] = 0;
-		}
-
-		for (y = 0; y < h; ++y) {
-			for (x = 0; x < w; ++x) {
-				i = decode32bit(img.getSourceImage().getRGB(x, y));
-				++histogram[i];
-			}
+			histogram[i] = hist.red[i];
 		}
 
 		double histogram_area = 0;
@@ -160,22 +154,21 @@ public TransformedImage processViaHistogram(TransformedImage img) {
 		// Log.message("histogram zone: "+histogram_zone);
 
 		double histogram_sum = 0;
-		x = 0;
-		y = 0;
+		int level = 0;
 		for (i = 1; i < 255; ++i) {
 			histogram_sum += histogram[i];
-			// Log.message("mapping "+i+" to "+x);
+			// Log.message("mapping "+i+" to "+level);
 			if (histogram_sum > histogram_zone) {
 				// Log.message("level up at "+i+" "+histogram_sum+" vs "+histogram_zone);
 				histogram_sum -= histogram_zone;
-				x += (int) (256.0 / (double) levels);
-				++y;
+				level += (int) (256.0 / (double) levels);
 			}
-			histogram[i] = x;
+			histogram[i] = level;
 		}
 
-		// Log.message("y="+y+" x="+x);
-		int pixel, b;
+		int h = img.getSourceImage().getHeight();
+		int w = img.getSourceImage().getWidth();
+		int x, y, pixel, b;
 
 		for (y = 0; y < h; ++y) {
 			for (x = 0; x < w; ++x) {
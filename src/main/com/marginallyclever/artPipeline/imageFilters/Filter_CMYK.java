@@ -1,24 +1,41 @@
 package com.marginallyclever.artPipeline.imageFilters;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.util.stream.IntStream;
 
 import com.marginallyclever.artPipeline.TransformedImage;
+import com.marginallyclever.convenience.Histogram;
 import com.marginallyclever.convenience.log.Log;
 
 
 /**
- * Converts an image to N shades of grey.
+ * Separates an image into cyan, magenta, yellow, and black channels.
+ * <p>
+ * All four channels are written in a single pass over the source, one band of rows per worker.  Each channel is a
+ * plain byte plane (255 is white, 0 is full ink) wrapped in a grey palette image without copying.
  *
  * @author Dan
  */
 public class Filter_CMYK extends ImageFilter {
   protected static double levels = 2;
-    
+  // rows per band handed to each worker.
+  private static final int ROWS_PER_BAND = 64;
+  private static IndexColorModel greyPalette;
+
   protected TransformedImage channelCyan;
   protected TransformedImage channelMagenta;
   protected TransformedImage channelYellow;
   protected TransformedImage channelBlack;
 
+  protected byte[] planeCyan;
+  protected byte[] planeMagenta;
+  protected byte[] planeYellow;
+  protected byte[] planeBlack;
+
 
   public Filter_CMYK() {}
 
@@ -27,55 +44,86 @@ public Filter_CMYK() {}
   public TransformedImage getM() {  return channelMagenta;  }
   public TransformedImage getY() {  return channelYellow;  }
   public TransformedImage getK() {  return channelBlack;  }
-  
-  
+
+  /**
+   * @return the raw planes, in the order c,m,y,k.  Each is width*height bytes, row major.
+   */
+  public byte[][] getPlanes() {
+    return new byte[][] { planeCyan, planeMagenta, planeYellow, planeBlack };
+  }
+
+
   // http://www.rapidtables.com/convert/color/rgb-to-cmyk.htm
   public TransformedImage filter(TransformedImage img) {
-    int h = img.getSourceImage().getHeight();
-    int w = img.getSourceImage().getWidth();
-    int px, py;
-
-    BufferedImage bi = img.getSourceImage();
-    channelCyan = new TransformedImage(img);
-    channelMagenta = new TransformedImage(img);
-    channelYellow = new TransformedImage(img);
-    channelBlack = new TransformedImage(img);
-    
-    BufferedImage cc = channelCyan.getSourceImage();
-    BufferedImage cm = channelMagenta.getSourceImage();
-    BufferedImage cy = channelYellow.getSourceImage();
-    BufferedImage ck = channelBlack.getSourceImage();
-    double r,g,b,k,ik,c,m,y;
-    int pixel;
-    
-    for (py = 0; py < h; ++py) {
-      for (px = 0; px < w; ++px) {
-    	pixel = bi.getRGB(px,py);
-    	//double a = 255-((pixel>>24) & 0xff);
-		r = 1.0-(double)((pixel >> 16) & 0xff) / 255.0;
-		g = 1.0-(double)((pixel >>  8) & 0xff) / 255.0;
-		b = 1.0-(double)((pixel      ) & 0xff) / 255.0;
-		// now convert to cmyk
-		k = Math.min(Math.min(r,g),b);   // should be Math.max(Math.max(r,g),b) but colors are inverted.
-		ik = 1.0 - k;
-		
-//		if(ik<1.0/255.0) {
-//			c1=m1=y1=0;
-//		} else {
-			c = (r-k) / ik;
-			m = (g-k) / ik;
-			y = (b-k) / ik;
-		//}
-        cc.setRGB(px, py, ImageFilter.encode32bit(255-(int)(c*255.0)));
-        cm.setRGB(px, py, ImageFilter.encode32bit(255-(int)(m*255.0)));
-        cy.setRGB(px, py, ImageFilter.encode32bit(255-(int)(y*255.0)));
-        ck.setRGB(px, py, ImageFilter.encode32bit(255-(int)(k*255.0)));
-      }
-    }
+    final BufferedImage bi = img.getSourceImage();
+    final int h = bi.getHeight();
+    final int w = bi.getWidth();
+
+    planeCyan = new byte[w * h];
+    planeMagenta = new byte[w * h];
+    planeYellow = new byte[w * h];
+    planeBlack = new byte[w * h];
+
+    final int bands = (h + ROWS_PER_BAND - 1) / ROWS_PER_BAND;
+    IntStream.range(0, bands).parallel().forEach(band -> {
+      int y0 = band * ROWS_PER_BAND;
+      int rows = Math.min(ROWS_PER_BAND, h - y0);
+      int[] pixels = bi.getRGB(0, y0, w, rows, null, 0, w);
+      separate(pixels, y0 * w, planeCyan, planeMagenta, planeYellow, planeBlack);
+    });
+
+    channelCyan = wrapPlane(img, planeCyan, w, h);
+    channelMagenta = wrapPlane(img, planeMagenta, w, h);
+    channelYellow = wrapPlane(img, planeYellow, w, h);
+    channelBlack = wrapPlane(img, planeBlack, w, h);
 
     return img;
   }
 
+  /**
+   * Branch free on purpose so that the JIT can vectorize it.
+   * @param pixels packed ARGB source pixels
+   * @param offset index of pixels[0] in the planes
+   */
+  protected static void separate(int[] pixels, int offset, byte[] cc, byte[] cm, byte[] cy, byte[] ck) {
+    for (int i = 0; i < pixels.length; ++i) {
+      int pixel = pixels[i];
+      double r = 1.0 - (double) ((pixel >> 16) & 0xff) / 255.0;
+      double g = 1.0 - (double) ((pixel >>  8) & 0xff) / 255.0;
+      double b = 1.0 - (double) ((pixel      ) & 0xff) / 255.0;
+      // now convert to cmyk
+      double k = Math.min(Math.min(r, g), b);   // should be Math.max(Math.max(r,g),b) but colors are inverted.
+      double ik = 1.0 - k;
+      // when ik is 0 these are NaN, which casts to 0 and leaves the channel white.
+      double c = (r - k) / ik;
+      double m = (g - k) / ik;
+      double y = (b - k) / ik;
+      cc[offset + i] = (byte) (255 - (int) (c * 255.0));
+      cm[offset + i] = (byte) (255 - (int) (m * 255.0));
+      cy[offset + i] = (byte) (255 - (int) (y * 255.0));
+      ck[offset + i] = (byte) (255 - (int) (k * 255.0));
+    }
+  }
+
+  private TransformedImage wrapPlane(TransformedImage img, byte[] plane, int w, int h) {
+    WritableRaster raster = Raster.createInterleavedRaster(new DataBufferByte(plane, plane.length), w, h, w, 1, new int[] { 0 }, null);
+    TransformedImage channel = new TransformedImage(new BufferedImage(getGreyPalette(), raster, false, null));
+    channel.copySettingsFrom(img);
+    return channel;
+  }
+
+  /**
+   * TYPE_BYTE_GRAY would gamma correct every sample on the way out, a palette returns the bytes as they are.
+   */
+  private static synchronized IndexColorModel getGreyPalette() {
+    if (greyPalette == null) {
+      byte[] ramp = new byte[256];
+      for (int i = 0; i < 256; ++i) ramp[i] = (byte) i;
+      greyPalette = new IndexColorModel(8, 256, ramp, ramp, ramp);
+    }
+    return greyPalette;
+  }
+
   /**
    * An experimental black &#38; white converter that doesn't just greyscale to 4 levels, it also tries to divide by histogram frequency.
    * Didn't look good so I left it for the lulz.
@@ -85,22 +133,15 @@ public TransformedImage filter(TransformedImage img) {
    */
   @Deprecated
   public TransformedImage processViaHistogram(TransformedImage img) {
-    int h = img.getSourceImage().getHeight();
-    int w = img.getSourceImage().getWidth();
+    int i;
 
-    int x, y, i;
+    Histogram hist = new Histogram();
+    hist.getGreyHistogramOf(img.getSourceImage());
 
     double[] histogram = new double[256];
 
     for (i = 0; i < 256; ++i) {
-      histogram[i] = 0;
-    }
-
-    for (y = 0; y < h; ++y) {
-      for (x = 0; x < w; ++x) {
-        i = decode32bit(img.getSourceImage().getRGB(x, y));
-        ++histogram[i];
-      }
+      histogram[i] = hist.red[i];
     }
 
     double histogram_area = 0;
@@ -114,22 +155,21 @@ public TransformedImage processViaHistogram(TransformedImage img) {
     //Log.message("histogram zone: "+histogram_zone);
 
     double histogram_sum = 0;
-    x = 0;
-    y = 0;
+    int level = 0;
     for (i = 1; i < 255; ++i) {
       histogram_sum += histogram[i];
-      //Log.message("mapping "+i+" to "+x);
+      //Log.message("mapping "+i+" to "+level);
       if (histogram_sum > histogram_zone) {
         //Log.message("level up at "+i+" "+histogram_sum+" vs "+histogram_zone);
         histogram_sum -= histogram_zone;
-        x += (int) (256.0 / (double) levels);
-        ++y;
+        level += (int) (256.0 / (double) levels);
       }
-      histogram[i] = x;
+      histogram[i] = level;
     }
 
-    //Log.message("y="+y+" x="+x);
-    int pixel, b;
+    int h = img.getSourceImage().getHeight();
+    int w = img.getSourceImage().getWidth();
+    int x, y, pixel, b;
 
     for (y = 0; y < h; ++y) {
       for (x = 0; x < w; ++x) {
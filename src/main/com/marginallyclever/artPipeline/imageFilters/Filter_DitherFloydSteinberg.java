@@ -1,17 +1,42 @@
 package com.marginallyclever.artPipeline.imageFilters;
 
 import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
 
 import com.marginallyclever.artPipeline.TransformedImage;
 
 /**
  * Floyd/Steinberg dithering
+ * <p>
+ * The default pass is serpentine and strictly sequential.  The wavefront mode scans every row left to right so
+ * that row y+1 can start as soon as row y is two pixels ahead, one row per worker thread.  It works on a primitive
+ * error buffer and its output does not depend on the number of threads.
  *
  * @author Dan
  * See <a href="http://en.literateprograms.org/Floyd-Steinberg_dithering_%28C%29">http://en.literateprograms.org/Floyd-Steinberg_dithering_%28C%29</a> and <a href="http://www.home.unix-ag.org/simon/gimp/fsdither.c">http://www.home.unix-ag.org/simon/gimp/fsdither.c</a>
  */
 public class Filter_DitherFloydSteinberg extends ImageFilter {
   private long tone;
+  private boolean wavefront;
+
+
+  public Filter_DitherFloydSteinberg() {
+    this(false);
+  }
+
+
+  /**
+   * @param wavefront true to scan left to right on all available cores, false for the classic serpentine scan.
+   */
+  public Filter_DitherFloydSteinberg(boolean wavefront) {
+    this.wavefront = wavefront;
+  }
 
 
   private int quantizeColor(int original) {
@@ -62,7 +87,11 @@ private void ditherDirection(TransformedImage img, BufferedImage after, int y, i
 
   
   public TransformedImage filter(TransformedImage img) {
-    int y, x;
+    if (wavefront) {
+      return filterWavefront(img, Runtime.getRuntime().availableProcessors());
+    }
+
+    int y;
     int h = img.getSourceImage().getHeight();
     int w = img.getSourceImage().getWidth();
     int direction = 1;
@@ -73,14 +102,7 @@ public TransformedImage filter(TransformedImage img) {
       error[y] = nexterror[y] = 0;
     }
 
-    // find the average color of the system
-    for (y = 0; y < h; ++y) {
-      for (x = 0; x < w; ++x) {
-        tone += decode32bit(img.getSourceImage().getRGB(x, y));
-      }
-    }
-
-    tone /= (w * h);
+    findAverageTone(img.getSourceImage());
 
 
     TransformedImage after = new TransformedImage(img);
@@ -98,6 +120,117 @@ public TransformedImage filter(TransformedImage img) {
 
     return after;
   }
+
+
+  // find the average color of the system
+  private void findAverageTone(BufferedImage src) {
+    final int h = src.getHeight();
+    final int w = src.getWidth();
+    long sum = IntStream.range(0, h).parallel().mapToLong(y -> {
+      int[] row = src.getRGB(0, y, w, 1, null, 0, w);
+      long rowSum = 0;
+      for (int x = 0; x < w; ++x) rowSum += decode32bit(row[x]);
+      return rowSum;
+    }).sum();
+    tone = sum / (w * h);
+  }
+
+
+  /**
+   * Left-to-right Floyd/Steinberg on a ring of error rows.  Row y may process pixel x once row y-1 has finished
+   * pixel x+2, the last pixel that adds error to (x+1,y).  Each error cell then receives its additions in exactly
+   * the order of a single threaded left-to-right scan, so the result is identical for any number of threads.
+   *
+   * @param img the source material.
+   * @param threads number of rows to process at once.
+   * @return the dithered image
+   */
+  public TransformedImage filterWavefront(TransformedImage img, int threads) {
+    final BufferedImage src = img.getSourceImage();
+    final int h = src.getHeight();
+    final int w = src.getWidth();
+    final int workers = Math.max(1, Math.min(threads, h));
+
+    findAverageTone(src);
+
+    TransformedImage after = new TransformedImage(img);
+    final BufferedImage afterBI = after.getSourceImage();
+
+    // one error row per row in flight, plus the row each of them writes into.
+    final int ringSize = workers + 2;
+    final float[][] error = new float[ringSize][w];
+    // number of finished pixels in each row.
+    final AtomicIntegerArray progress = new AtomicIntegerArray(h);
+    final AtomicInteger nextRow = new AtomicInteger(0);
+
+    Runnable worker = () -> {
+      int[] row = new int[w];
+      int y;
+      while ((y = nextRow.getAndIncrement()) < h) {
+        // row y writes into the slot last used by row y+1-ringSize.  wait until that row is done with it.
+        int previousUser = y + 1 - ringSize;
+        if (previousUser >= 0) {
+          waitForProgress(progress, previousUser, w);
+        }
+        float[] err = error[y % ringSize];
+        float[] nextErr = error[(y + 1) % ringSize];
+        Arrays.fill(nextErr, 0);
+
+        src.getRGB(0, y, w, 1, row, 0, w);
+        int above = 0;
+        for (int x = 0; x < w; ++x) {
+          if (y > 0) {
+            int needed = Math.min(x + 3, w);
+            if (above < needed) above = waitForProgress(progress, y - 1, needed);
+          }
+          // same truncation as the int error terms of the serial pass.
+          int oldPixel = decode32bit(row[x]) + (int) err[x];
+          int newPixel = quantizeColor(oldPixel);
+          row[x] = ImageFilter.encode32bit(newPixel);
+          int quant_error = oldPixel - newPixel;
+
+          nextErr[x] = (int) (nextErr[x] + 5f / 16f * quant_error);
+          if (x + 1 < w) {
+            err[x + 1] = (int) (err[x + 1] + 7f / 16f * quant_error);
+            nextErr[x + 1] = (int) (nextErr[x + 1] + 1f / 16f * quant_error);
+          }
+          if (x - 1 >= 0) {
+            nextErr[x - 1] = (int) (nextErr[x - 1] + 3f / 16f * quant_error);
+          }
+          progress.set(y, x + 1);
+        }
+        afterBI.setRGB(0, y, w, 1, row, 0, w);
+      }
+    };
+
+    ExecutorService pool = Executors.newFixedThreadPool(workers);
+    try {
+      Future<?>[] jobs = new Future<?>[workers];
+      for (int i = 0; i < workers; ++i) jobs[i] = pool.submit(worker);
+      for (Future<?> job : jobs) job.get();
+    } catch (Exception e) {
+      throw new RuntimeException("Wavefront dither failed", e);
+    } finally {
+      pool.shutdown();
+    }
+
+    return after;
+  }
+
+
+  /**
+   * Rows are only ever a few pixels apart, so spin briefly before giving the core away.
+   * @return the progress of the row once it reaches needed.
+   */
+  private static int waitForProgress(AtomicIntegerArray progress, int row, int needed) {
+    int spins = 0;
+    int done;
+    while ((done = progress.get(row)) < needed) {
+      if (++spins < 100) Thread.onSpinWait();
+      else Thread.yield();
+    }
+    return done;
+  }
 }
 
 
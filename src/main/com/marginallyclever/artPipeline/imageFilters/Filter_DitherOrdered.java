@@ -0,0 +1,244 @@
+package com.marginallyclever.artPipeline.imageFilters;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import com.marginallyclever.artPipeline.TransformedImage;
+
+/**
+ * Ordered (threshold map) dithering.  Every pixel is compared against a tiled threshold matrix, so unlike
+ * {@link Filter_DitherFloydSteinberg} no pixel depends on its neighbors.  The image is processed one tile at a time
+ * and the tiles are spread across all available cores.
+ *
+ * See <a href="https://en.wikipedia.org/wiki/Ordered_dithering">https://en.wikipedia.org/wiki/Ordered_dithering</a>
+ * and <a href="http://cv.ulichney.com/papers/1993-void-cluster.pdf">http://cv.ulichney.com/papers/1993-void-cluster.pdf</a>
+ */
+public class Filter_DitherOrdered extends ImageFilter {
+	public enum Pattern {
+		// classic 8x8 Bayer matrix.  fast, regular cross-hatch texture.
+		BAYER,
+		// 64x64 void-and-cluster blue noise.  no visible texture.
+		BLUE_NOISE
+	}
+
+	// size of the square tiles handed to each worker, in pixels.
+	public static final int TILE_SIZE = 256;
+
+	private static final int BAYER_SIZE = 8;
+	private static final int BLUE_NOISE_SIZE = 64;
+	// fixed seed so every run (and every machine) gets the same blue noise map.
+	private static final long BLUE_NOISE_SEED = 0xB10E5EEDL;
+
+	private static float [] bayerMap;
+	private static float [] blueNoiseMap;
+
+	private Pattern pattern;
+
+
+	public Filter_DitherOrdered() {
+		this(Pattern.BAYER);
+	}
+
+	public Filter_DitherOrdered(Pattern pattern) {
+		this.pattern = pattern;
+	}
+
+	public Pattern getPattern() {
+		return pattern;
+	}
+
+	public TransformedImage filter(TransformedImage img) {
+		final BufferedImage src = img.getSourceImage();
+		final int w = src.getWidth();
+		final int h = src.getHeight();
+
+		final int mapSize = (pattern == Pattern.BLUE_NOISE) ? BLUE_NOISE_SIZE : BAYER_SIZE;
+		final float [] map = (pattern == Pattern.BLUE_NOISE) ? getBlueNoiseMap() : getBayerMap();
+
+		TransformedImage after = new TransformedImage(img);
+		final BufferedImage afterBI = after.getSourceImage();
+
+		final int tilesX = (w + TILE_SIZE - 1) / TILE_SIZE;
+		final int tilesY = (h + TILE_SIZE - 1) / TILE_SIZE;
+
+		IntStream.range(0, tilesX * tilesY).parallel().forEach(tile -> {
+			int x0 = (tile % tilesX) * TILE_SIZE;
+			int y0 = (tile / tilesX) * TILE_SIZE;
+			int tw = Math.min(TILE_SIZE, w - x0);
+			int th = Math.min(TILE_SIZE, h - y0);
+
+			int [] pixels = src.getRGB(x0, y0, tw, th, null, 0, tw);
+			for (int y = 0; y < th; ++y) {
+				int row = ((y0 + y) % mapSize) * mapSize;
+				for (int x = 0; x < tw; ++x) {
+					int i = y * tw + x;
+					float threshold = map[row + (x0 + x) % mapSize];
+					int v = decode32bit(pixels[i]);
+					pixels[i] = encode32bit(v > threshold ? 255 : 0);
+				}
+			}
+			afterBI.setRGB(x0, y0, tw, th, pixels, 0, tw);
+		});
+
+		return after;
+	}
+
+	/**
+	 * @return the 8x8 Bayer threshold map, scaled to the range 0...255.
+	 */
+	protected static synchronized float [] getBayerMap() {
+		if (bayerMap == null) {
+			// grow the index matrix by doubling: M(2n) = [ 4M 4M+2 ; 4M+3 4M+1 ]
+			int [] m = new int[] { 0 };
+			for (int n = 1; n < BAYER_SIZE; n *= 2) {
+				int n2 = n * 2;
+				int [] next = new int[n2 * n2];
+				for (int y = 0; y < n; ++y) {
+					for (int x = 0; x < n; ++x) {
+						int v = m[y * n + x] * 4;
+						next[ y      * n2 + x    ] = v;
+						next[ y      * n2 + x + n] = v + 2;
+						next[(y + n) * n2 + x    ] = v + 3;
+						next[(y + n) * n2 + x + n] = v + 1;
+					}
+				}
+				m = next;
+			}
+			bayerMap = rankToThreshold(m);
+		}
+		return bayerMap;
+	}
+
+	/**
+	 * @return the 64x64 blue noise threshold map, scaled to the range 0...255.  Built once with the
+	 * void-and-cluster method and then reused.
+	 */
+	protected static synchronized float [] getBlueNoiseMap() {
+		if (blueNoiseMap == null) {
+			blueNoiseMap = rankToThreshold(buildVoidAndCluster(BLUE_NOISE_SIZE, BLUE_NOISE_SEED));
+		}
+		return blueNoiseMap;
+	}
+
+	private static float [] rankToThreshold(int [] rank) {
+		float [] map = new float[rank.length];
+		for (int i = 0; i < rank.length; ++i) {
+			map[i] = (rank[i] + 0.5f) * 255.0f / rank.length;
+		}
+		return map;
+	}
+
+	/**
+	 * Ulichney's void-and-cluster algorithm on a size*size torus.
+	 * @param size width and height of the map
+	 * @param seed for the initial random pattern
+	 * @return the rank of every cell, 0...size*size-1
+	 */
+	private static int [] buildVoidAndCluster(int size, long seed) {
+		final int n = size * size;
+
+		// toroidal gaussian energy kernel, indexed by offset.
+		final double sigma = 1.5;
+		float [] kernel = new float[n];
+		for (int y = 0; y < size; ++y) {
+			int dy = Math.min(y, size - y);
+			for (int x = 0; x < size; ++x) {
+				int dx = Math.min(x, size - x);
+				kernel[y * size + x] = (float)Math.exp(-(dx * dx + dy * dy) / (2 * sigma * sigma));
+			}
+		}
+
+		// initial binary pattern: ~10% of cells set at random.
+		boolean [] initial = new boolean[n];
+		float [] energy = new float[n];
+		Random random = new Random(seed);
+		int ones = 0;
+		while (ones < n / 10) {
+			int p = random.nextInt(n);
+			if (!initial[p]) {
+				initial[p] = true;
+				addEnergy(energy, kernel, size, p, 1);
+				++ones;
+			}
+		}
+
+		// spread the initial pattern out until moving the tightest cluster into the largest void changes nothing.
+		while (true) {
+			int cluster = findTightestCluster(initial, energy);
+			initial[cluster] = false;
+			addEnergy(energy, kernel, size, cluster, -1);
+			int gap = findLargestVoid(initial, energy);
+			initial[gap] = true;
+			addEnergy(energy, kernel, size, gap, 1);
+			if (gap == cluster) break;
+		}
+
+		int [] rank = new int[n];
+
+		// phase 1: remove the tightest clusters from a copy of the initial pattern.
+		boolean [] pattern = initial.clone();
+		float [] patternEnergy = energy.clone();
+		for (int r = ones - 1; r >= 0; --r) {
+			int cluster = findTightestCluster(pattern, patternEnergy);
+			pattern[cluster] = false;
+			addEnergy(patternEnergy, kernel, size, cluster, -1);
+			rank[cluster] = r;
+		}
+
+		// phases 2 and 3: fill the largest voids until the map is full.  On a torus the tightest cluster of
+		// empty cells is the largest void of full cells, so one loop covers both phases.
+		for (int r = ones; r < n; ++r) {
+			int gap = findLargestVoid(initial, energy);
+			initial[gap] = true;
+			addEnergy(energy, kernel, size, gap, 1);
+			rank[gap] = r;
+		}
+
+		return rank;
+	}
+
+	private static void addEnergy(float [] energy, float [] kernel, int size, int p, int sign) {
+		int px = p % size;
+		int py = p / size;
+		for (int y = 0; y < size; ++y) {
+			int ky = ((y - py + size) % size) * size;
+			for (int x = 0; x < size; ++x) {
+				energy[y * size + x] += sign * kernel[ky + (x - px + size) % size];
+			}
+		}
+	}
+
+	private static int findTightestCluster(boolean [] pattern, float [] energy) {
+		int best = -1;
+		for (int i = 0; i < pattern.length; ++i) {
+			if (pattern[i] && (best == -1 || energy[i] > energy[best])) best = i;
+		}
+		return best;
+	}
+
+	private static int findLargestVoid(boolean [] pattern, float [] energy) {
+		int best = -1;
+		for (int i = 0; i < pattern.length; ++i) {
+			if (!pattern[i] && (best == -1 || energy[i] < energy[best])) best = i;
+		}
+		return best;
+	}
+}
+
+/**
+ * This file is part of Makelangelo.
+ * <p>
+ * Makelangelo is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * Makelangelo is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with Makelangelo.  If not, see <http://www.gnu.org/licenses/>.
+ */
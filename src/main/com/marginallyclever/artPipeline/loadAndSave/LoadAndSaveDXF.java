@@ -13,9 +13,11 @@
 import javax.swing.filechooser.FileNameExtensionFilter;
 
 import org.kabeja.dxf.Bounds;
+import org.kabeja.dxf.DXFArc;
 import org.kabeja.dxf.DXFCircle;
 import org.kabeja.dxf.DXFConstants;
 import org.kabeja.dxf.DXFDocument;
+import org.kabeja.dxf.DXFEllipse;
 import org.kabeja.dxf.DXFEntity;
 import org.kabeja.dxf.DXFLWPolyline;
 import org.kabeja.dxf.DXFLayer;
@@ -25,6 +27,7 @@
 import org.kabeja.dxf.DXFVertex;
 import org.kabeja.dxf.helpers.DXFSplineConverter;
 import org.kabeja.dxf.helpers.Point;
+import org.kabeja.dxf.helpers.Vector;
 import org.kabeja.parser.DXFParser;
 import org.kabeja.parser.ParseException;
 import org.kabeja.parser.Parser;
@@ -32,6 +35,7 @@
 
 import com.marginallyclever.artPipeline.ImageManipulator;
 import com.marginallyclever.convenience.ColorRGB;
+import com.marginallyclever.convenience.CurveFlattener;
 import com.marginallyclever.convenience.MathHelper;
 import com.marginallyclever.convenience.log.Log;
 import com.marginallyclever.convenience.turtle.Turtle;
@@ -49,6 +53,8 @@ public class LoadAndSaveDXF extends ImageManipulator implements LoadAndSaveFileT
 	private static FileNameExtensionFilter filter = new FileNameExtensionFilter(Translator.get("FileTypeDXF"), "dxf");
 	private double previousX,previousY;
 	private double imageCenterX,imageCenterY;
+	// how far flattened curves may stray from the original, in mm.
+	private double tolerance = CurveFlattener.MIN_TOLERANCE;
 	
 	@Override
 	public String getName() { return "DXF"; }
@@ -118,25 +124,22 @@ protected void sortEntitiesIntoBucketsAndGroups(DXFDocument doc,DXFLayer layer,D
 					continue;
 				}
 				if(e.getType().equals(DXFConstants.ENTITY_TYPE_CIRCLE)) {
-					DXFCircle circle = (DXFCircle)e;
-					double r = circle.getRadius();
-					Point center = circle.getCenterPoint();
-					double cx = center.getX();
-					double cy = center.getY();
-
-					Point a = new Point(cx+r,cy,0);
-					Point b = new Point();
-					for(double i=1;i<=40;++i) {  // hard coded 40?  gross!
-						double v = (Math.PI*2.0) * (i/40.0);
-						double s=r*Math.sin(v);
-						double c=r*Math.cos(v);
-						b.setX(cx+c);
-						b.setY(cy+s);
-						grid.addEntity(be, a);
-						grid.addEntity(be, b);
-						a.setX(b.getX());
-						a.setY(b.getY());
-					}
+					// closed, so both ends are the same point.
+					Point a = ((DXFCircle)e).getPointAt(0);
+					grid.addEntity(be, a);
+					grid.addEntity(be, a);
+					continue;
+				}
+				if(e.getType().equals(DXFConstants.ENTITY_TYPE_ARC)) {
+					DXFArc arc = (DXFArc)e;
+					grid.addEntity(be, arc.getStartPoint());
+					grid.addEntity(be, arc.getEndPoint());
+					continue;
+				}
+				if(e.getType().equals(DXFConstants.ENTITY_TYPE_ELLIPSE)) {
+					DXFEllipse ellipse = (DXFEllipse)e;
+					grid.addEntity(be, ellipse.getPointAt(ellipse.getStartParameter()));
+					grid.addEntity(be, ellipse.getPointAt(ellipse.getEndParameter()));
 					continue;
 				}
 				if(e.getType().equals(DXFConstants.ENTITY_TYPE_SPLINE)) {
@@ -166,8 +169,6 @@ protected void sortEntitiesIntoBucketsAndGroups(DXFDocument doc,DXFLayer layer,D
 					}
 					continue;
 				}
-				//if(e.getType().equals(DXFConstants.ENTITY_TYPE_ARC)) {}
-				//if(e.getType().equals(DXFConstants.ENTITY_TYPE_CIRCLE)) {}
 				// I don't know this entity type.
 				Log.error("Unknown DXF type "+e.getType());
 			}
@@ -203,6 +204,7 @@ public boolean load(InputStream in,MakelangeloRobot robot) {
 
 		// prepare for exporting
 		machine = robot.getSettings();
+		tolerance = CurveFlattener.getTolerance(machine.getPenDiameter());
 		turtle = new Turtle();
 
 		previousX = machine.getHomeX();
@@ -270,8 +272,65 @@ protected void parseEntity(DXFEntity e) {
 		} else if (e.getType().equals(DXFConstants.ENTITY_TYPE_POLYLINE)
 				|| e.getType().equals(DXFConstants.ENTITY_TYPE_LWPOLYLINE)) {
 			parseDXFPolyline((DXFPolyline)e);
+		} else if (e.getType().equals(DXFConstants.ENTITY_TYPE_CIRCLE)) {
+			DXFCircle circle = (DXFCircle)e;
+			Point c = circle.getCenterPoint();
+			double r = circle.getRadius();
+			parseDXFEllipse(c.getX(),c.getY(),r,r,0,0,Math.PI*2.0);
+		} else if (e.getType().equals(DXFConstants.ENTITY_TYPE_ARC)) {
+			DXFArc arc = (DXFArc)e;
+			Point c = arc.getCenterPoint();
+			double r = arc.getRadius();
+			double a0 = Math.toRadians(arc.getStartAngle());
+			parseDXFEllipse(c.getX(),c.getY(),r,r,0,a0,a0+Math.toRadians(arc.getTotalAngle()));
+		} else if (e.getType().equals(DXFConstants.ENTITY_TYPE_ELLIPSE)) {
+			DXFEllipse ellipse = (DXFEllipse)e;
+			Point c = ellipse.getCenterPoint();
+			Vector major = ellipse.getMajorAxisDirection();
+			double rx = ellipse.getHalfMajorAxisLength();
+			double a0 = ellipse.getStartParameter();
+			double a1 = ellipse.getEndParameter();
+			if(a1<=a0) a1 += Math.PI*2.0;
+			parseDXFEllipse(c.getX(),c.getY(),rx,rx*ellipse.getRatio(),Math.atan2(major.getY(),major.getX()),a0,a1);
 		}
 	}
+
+	/**
+	 * Draw part of an ellipse, starting from whichever end is closer to the previous point.
+	 * @param cx center, in DXF space
+	 * @param cy center, in DXF space
+	 * @param rx radius along the major axis
+	 * @param ry radius along the minor axis
+	 * @param rotation of the major axis, in radians
+	 * @param a0 start angle, in radians
+	 * @param a1 end angle, in radians, counter-clockwise from a0.
+	 */
+	protected void parseDXFEllipse(double cx,double cy,double rx,double ry,double rotation,double a0,double a1) {
+		cx = TX(cx);
+		cy = TY(cy);
+		double c = Math.cos(rotation);
+		double s = Math.sin(rotation);
+		double x0 = cx + rx*Math.cos(a0)*c - ry*Math.sin(a0)*s;
+		double y0 = cy + rx*Math.cos(a0)*s + ry*Math.sin(a0)*c;
+		double x1 = cx + rx*Math.cos(a1)*c - ry*Math.sin(a1)*s;
+		double y1 = cy + rx*Math.cos(a1)*s + ry*Math.sin(a1)*c;
+		if(distanceSquared(x1,y1) < distanceSquared(x0,y0)) {
+			// the far end is closer, go backwards.
+			double t = a0;  a0 = a1;  a1 = t;
+			x0 = x1;
+			y0 = y1;
+		}
+		turtle.jumpTo(x0,y0);
+		CurveFlattener.ellipseTo(turtle, cx, cy, rx, ry, rotation, a0, a1, tolerance);
+		previousX = turtle.getX();
+		previousY = turtle.getY();
+	}
+
+	private double distanceSquared(double x,double y) {
+		double dx = x - previousX;
+		double dy = y - previousY;
+		return dx*dx+dy*dy;
+	}
 	
 	protected double distanceFromPrevious(Point p) {
 		double dx = previousX - p.getX();
@@ -415,7 +474,9 @@ protected void parseDXFPolylineForward(DXFPolyline entity) {
 			v = entity.getVertex(j % c);
 			x = TX(v.getX());
 			y = TY(v.getY());
-			parsePolylineShared(x,y,first,j<count-1);
+			// the bulge of a vertex bends the segment that leaves it.
+			double bulge = first ? 0 : entity.getVertex((j-1) % c).getBulge();
+			parsePolylineShared(x,y,first,j<count-1,bulge);
 			first = false;
 		}
 	}
@@ -430,22 +491,53 @@ protected void parseDXFPolylineBackward(DXFPolyline entity) {
 			v = entity.getVertex((c*2-1-j) % c);
 			x = TX(v.getX());
 			y = TY(v.getY());
-			parsePolylineShared(x,y,first,j<count-1);
+			// walking backwards, so this vertex's segment is the one arriving here, and it bends the other way.
+			double bulge = first ? 0 : -v.getBulge();
+			parsePolylineShared(x,y,first,j<count-1,bulge);
 			first = false;
 		}
 	}
 	
-	protected void parsePolylineShared(double x,double y,boolean first,boolean notLast) {
+	/**
+	 * @param bulge of the segment from the previous point to (x,y).  tan(1/4 of the arc angle), 0 for straight.
+	 * positive is counter-clockwise.
+	 */
+	protected void parsePolylineShared(double x,double y,boolean first,boolean notLast,double bulge) {
 		if (first == true) {
 			turtle.jumpTo(x,y);
 		} else {
 			turtle.penDown();
-			turtle.moveTo(x,y);
+			if(bulge==0) {
+				turtle.moveTo(x,y);
+			} else {
+				parseBulge(previousX,previousY,x,y,bulge);
+			}
 		}
 		previousX = x;
 		previousY = y;
 	}
 	
+	/**
+	 * Draw the arc from (x0,y0) to (x1,y1) described by a polyline bulge.
+	 */
+	protected void parseBulge(double x0,double y0,double x1,double y1,double bulge) {
+		double theta = 4.0*Math.atan(bulge);
+		double dx = x1-x0;
+		double dy = y1-y0;
+		double d = Math.sqrt(dx*dx+dy*dy);
+		if(d==0) return;
+		// the center is on the perpendicular through the middle of the chord, left of it for counter-clockwise arcs.
+		double h = d/2.0;
+		double offset = h/Math.tan(theta/2.0);
+		double cx = (x0+x1)/2.0 - dy/d*offset;
+		double cy = (y0+y1)/2.0 + dx/d*offset;
+		double r = h/Math.abs(Math.sin(theta/2.0));
+		double a0 = Math.atan2(y0-cy,x0-cx);
+		CurveFlattener.ellipseTo(turtle, cx, cy, r, r, 0, a0, a0+theta, tolerance);
+		// land exactly on the vertex.
+		turtle.moveTo(x1,y1);
+	}
+	
 	@Override
 	/**
 	 * see http://paulbourke.net/dataformats/dxf/min3d.html for details
@@ -8,10 +8,13 @@
 
 import javax.swing.filechooser.FileNameExtensionFilter;
 
+import com.marginallyclever.convenience.ArcFitter;
 import com.marginallyclever.convenience.ColorRGB;
+import com.marginallyclever.convenience.CurveFlattener;
 import com.marginallyclever.convenience.log.Log;
 import com.marginallyclever.convenience.turtle.Turtle;
 import com.marginallyclever.convenience.turtle.TurtleMove;
+import com.marginallyclever.convenience.turtle.TurtleMoveType;
 import com.marginallyclever.makelangelo.Translator;
 import com.marginallyclever.makelangeloRobot.MakelangeloRobot;
 import com.marginallyclever.makelangeloRobot.settings.MakelangeloRobotSettings;
@@ -204,6 +207,9 @@ public boolean save(OutputStream outputStream,MakelangeloRobot robot) {
 			machine.writeAbsoluteMode(out);
 			machine.writePenUp(out);
 			boolean isUp=true;
+			// send curves as arcs if the firmware understands them.
+			boolean canArc = machine.getHardwareProperties().canArc();
+			double tolerance = CurveFlattener.getTolerance(machine.getPenDiameter());
 			
 			TurtleMove previousMovement=null;
 			for(int i=0;i<turtle.history.size();++i) {
@@ -232,6 +238,27 @@ public boolean save(OutputStream outputStream,MakelangeloRobot robot) {
 						isUp=false;
 						zMoved=true;
 					}
+					if(canArc) {
+						// fit arcs to the whole pen-down run, from where the pen went down.
+						int end=i;
+						while(end+1<turtle.history.size() && turtle.history.get(end+1).type==TurtleMoveType.DRAW) ++end;
+						double [] x = new double[end-i+2];
+						double [] y = new double[end-i+2];
+						x[0] = previousMovement!=null ? previousMovement.x : m.x;
+						y[0] = previousMovement!=null ? previousMovement.y : m.y;
+						for(int k=i;k<=end;++k) {
+							x[k-i+1] = turtle.history.get(k).x;
+							y[k-i+1] = turtle.history.get(k).y;
+						}
+						for( ArcFitter.Piece p : ArcFitter.fit(x, y, tolerance) ) {
+							if(p.isArc) machine.writeArcTo(out, x[p.end], y[p.end], p.cx, p.cy, p.clockwise, zMoved);
+							else machine.writeMoveTo(out, x[p.end], y[p.end], false, zMoved);
+							zMoved=false;
+						}
+						i=end;
+						previousMovement=turtle.history.get(end);
+						break;
+					}
 					machine.writeMoveTo(out,m.x, m.y,false,zMoved);
 					previousMovement=m;
 					break;
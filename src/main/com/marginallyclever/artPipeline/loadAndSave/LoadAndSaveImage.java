@@ -6,8 +6,10 @@
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
+import java.awt.Rectangle;
 import java.awt.event.ItemEvent;
 import java.awt.event.ItemListener;
+import java.awt.image.BufferedImage;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.io.IOException;
@@ -22,6 +24,9 @@
 import java.util.prefs.Preferences;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 import javax.swing.JComboBox;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
@@ -48,6 +53,8 @@
  *
  */
 public class LoadAndSaveImage extends ImageManipulator implements LoadAndSaveFileType {
+	// decoded pixels per pen diameter.  more than one so that area sampling still has something to average.
+	private static final double PIXELS_PER_PEN = 2.0;
 	
 	@SuppressWarnings("deprecation")
 	private Preferences prefs = PreferencesHelper
@@ -56,6 +63,8 @@ public class LoadAndSaveImage extends ImageManipulator implements LoadAndSaveFil
 	private ServiceLoader<ImageConverter> converters;
 	private ImageConverter chosenConverter;
 	private TransformedImage img;
+	// size of the whole source image in decoded pixels, even if only part of it was read.
+	private double imageWidth, imageHeight;
 	private MakelangeloRobot chosenRobot;
 	private JPanel conversionPanel;
 	private static JComboBox<String> styleNames;
@@ -252,11 +261,15 @@ private ImageConverter getConverter(int arg0) throws IndexOutOfBoundsException {
 	@Override
 	public boolean load(InputStream in,MakelangeloRobot robot) {
 		try {
-			img = new TransformedImage( ImageIO.read(in) );
+			img = readForPaper(in,robot.getSettings());
 		} catch (IOException e1) {
 			e1.printStackTrace();
 			return false;
 		}
+		if(img==null) {
+			Log.error("No image reader for this file.");
+			return false;
+		}
 		
 		chosenRobot = robot;
 
@@ -271,6 +284,67 @@ public boolean load(InputStream in,MakelangeloRobot robot) {
 		return true;
 	}
 
+	/**
+	 * Decode only what the plot can use.  The source is subsampled down to {@link #PIXELS_PER_PEN} pixels per pen
+	 * diameter at the largest scale either fill style can pick, and rows and columns that can't land inside the
+	 * margins at the smallest scale are never read.  Memory and load time then follow the size of the drawing, not the
+	 * size of the file.
+	 * @param in the image file
+	 * @param s the paper, margins, and pen to plan for
+	 * @return the image placed as if it had been read whole, or null if no reader understands the file.
+	 * @throws IOException
+	 */
+	protected TransformedImage readForPaper(InputStream in,MakelangeloRobotSettings s) throws IOException {
+		try(ImageInputStream iis = ImageIO.createImageInputStream(in)) {
+			if(iis==null) return null;
+			Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+			if(!readers.hasNext()) return null;
+			ImageReader reader = readers.next();
+			try {
+				reader.setInput(iis,true,true);
+				int w = reader.getWidth(0);
+				int h = reader.getHeight(0);
+
+				int step = 1;
+				int x0 = 0, y0 = 0, x1 = w, y1 = h;
+				// mm per source pixel.  scaleToFillPaper() picks the largest, so it needs the most pixels per pen.
+				double mmPerPixelFill = Math.max(s.getMarginWidth()/w, s.getMarginHeight()/h);
+				// scaleToFitPaper() picks the smallest, so it shows the most of the image.
+				double mmPerPixel = Math.min(s.getMarginWidth()/w, s.getMarginHeight()/h);
+				if(mmPerPixel>0 && s.getPenDiameter()>0) {
+					step = (int)Math.max(1, Math.floor(s.getPenDiameter() / PIXELS_PER_PEN / mmPerPixelFill));
+					// the image is centered on the origin.  at any coarser scale less of it is visible.
+					x0 = Math.max(0,  (int)Math.floor(w/2.0 + s.getMarginLeft()  /mmPerPixel));
+					x1 = Math.min(w,  (int)Math.ceil (w/2.0 + s.getMarginRight() /mmPerPixel));
+					y0 = Math.max(0,  (int)Math.floor(h/2.0 - s.getMarginTop()   /mmPerPixel));
+					y1 = Math.min(h,  (int)Math.ceil (h/2.0 - s.getMarginBottom()/mmPerPixel));
+					if(x1<=x0 || y1<=y0) {
+						x0 = y0 = 0;
+						x1 = w;
+						y1 = h;
+					}
+				}
+
+				ImageReadParam param = reader.getDefaultReadParam();
+				param.setSourceRegion(new Rectangle(x0,y0,x1-x0,y1-y0));
+				param.setSourceSubsampling(step,step,0,0);
+				BufferedImage bi = reader.read(0,param);
+				Log.message("Image "+w+"x"+h+" read as "+bi.getWidth()+"x"+bi.getHeight()+" (1/"+step+" scale).");
+
+				imageWidth = (double)w/(double)step;
+				imageHeight = (double)h/(double)step;
+				TransformedImage t = new TransformedImage(bi);
+				// keep the center of the whole image on the origin, not the center of the part that was read.
+				t.setTranslation(
+						(float)(-(w/2.0 - x0)/step),
+						(float)(-(h/2.0 - y0)/step));
+				return t;
+			} finally {
+				reader.dispose();
+			}
+		}
+	}
+
 	// adjust image to fill the paper
 	public void scaleToFillPaper() {
 		MakelangeloRobotSettings s = chosenRobot.getSettings();
@@ -280,9 +354,9 @@ public void scaleToFillPaper() {
 
 		float f;
 		if( s.getPaperWidth() > s.getPaperHeight() ) {
-			f = (float)( width / (double)img.getSourceImage().getWidth() );
+			f = (float)( width / imageWidth );
 		} else {
-			f = (float)( height / (double)img.getSourceImage().getHeight() );
+			f = (float)( height / imageHeight );
 		}
 		img.setScale(f,-f);
 	}
@@ -295,9 +369,9 @@ public void scaleToFitPaper() {
 		
 		float f;
 		if( s.getPaperWidth() < s.getPaperHeight() ) {
-			f = (float)( width / (double)img.getSourceImage().getWidth() );
+			f = (float)( width / imageWidth );
 		} else {
-			f = (float)( height / (double)img.getSourceImage().getHeight() );
+			f = (float)( height / imageHeight );
 		}
 		img.setScale(f,-f);
 	}
@@ -4,7 +4,6 @@
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
-import java.util.ArrayList;
 
 import javax.swing.filechooser.FileNameExtensionFilter;
 
@@ -33,8 +32,8 @@
 import org.w3c.dom.svg.SVGPointList;
 
 import com.marginallyclever.artPipeline.ImageManipulator;
-import com.marginallyclever.convenience.Bezier;
 import com.marginallyclever.convenience.ColorRGB;
+import com.marginallyclever.convenience.CurveFlattener;
 import com.marginallyclever.convenience.Point2D;
 import com.marginallyclever.convenience.StringHelper;
 import com.marginallyclever.convenience.log.Log;
@@ -55,6 +54,8 @@ public class LoadAndSaveSVG extends ImageManipulator implements LoadAndSaveFileT
 	
 	protected double scale,imageCenterX,imageCenterY;
 	protected double toolMinimumStepSize = 1; //mm
+	// how far flattened curves may stray from the original, in mm.
+	protected double tolerance = CurveFlattener.MIN_TOLERANCE;
 	
 	@Override
 	public String getName() { return "SVG"; }
@@ -85,6 +86,7 @@ public boolean load(InputStream in,MakelangeloRobot robot) {
 
 		// prepare for importing
 		machine = robot.getSettings();
+		tolerance = CurveFlattener.getTolerance(machine.getPenDiameter());
 		imageCenterX=imageCenterY=0;
 		scale=1;
 		
@@ -306,9 +308,13 @@ protected boolean parseRectElements(NodeList node) {
 				//double y3=y+h;
 
 				turtle.jumpTo(TX(x1),TY(y0));
+				turtle.moveTo(TX(x2),TY(y0));
 				arcTurtle(turtle, x2,y1, rx,ry, Math.PI * -0.5,Math.PI *  0.0); 
+				turtle.moveTo(TX(x2+rx),TY(y2));
 				arcTurtle(turtle, x2,y2, rx,ry, Math.PI *  0.0,Math.PI *  0.5);
+				turtle.moveTo(TX(x1),TY(y2+ry));
 				arcTurtle(turtle, x1,y2, rx,ry, Math.PI * -1.5,Math.PI * -1.0);
+				turtle.moveTo(TX(x1-rx),TY(y1));
 				arcTurtle(turtle, x1,y1, rx,ry, Math.PI * -1.0,Math.PI * -0.5);
 		    }
 		} catch(Exception e) {
@@ -318,7 +324,7 @@ protected boolean parseRectElements(NodeList node) {
 	}
 
 	/**
-	 * 
+	 * Draw part of an ellipse.  The turtle should already be at the start.
 	 * @param turtle 
 	 * @param cx center position
 	 * @param cy center position
@@ -328,20 +334,8 @@ protected boolean parseRectElements(NodeList node) {
 	 * @param p1 radian end angle.
 	 */
 	protected void arcTurtle(Turtle turtle,double cx,double cy,double rx,double ry,double p0,double p1) {
-		double steps=1;
-		if(rx>0 && ry>0) {
-			double r = rx>ry?rx:ry;
-			double circ = Math.PI*r*2.0;  // radius to circumference 
-			steps = Math.ceil(circ/4.0);  // 1/4 circumference
-			steps = Math.max(steps,1);
-		}
-		steps = steps/4;
-		for(double p = 0;p<=steps;++p) {
-			double pFraction = ((p1-p0)*(p/steps) + p0);
-			double c = Math.cos(pFraction) * rx;
-			double s = Math.sin(pFraction) * ry;
-			turtle.moveTo(TX(cx+c), TY(cy+s));
-		}
+		// TY flips y, so angles run the other way.
+		CurveFlattener.ellipseTo(turtle, TX(cx), TY(cy), rx*scale, ry*scale, 0, -p0, -p1, tolerance);
 	}
 	
 	protected boolean parseCircleElements(NodeList node) {
@@ -356,14 +350,7 @@ protected boolean parseCircleElements(NodeList node) {
 				if(element.hasAttribute("cy")) cy = Double.parseDouble(element.getAttribute("cy"));
 				if(element.hasAttribute("r" )) r  = Double.parseDouble(element.getAttribute("r"));
 				turtle.jumpTo(TX(cx+r),TY(cy));
-				double circ = Math.min(3,Math.floor(Math.PI * r*r)); 
-				for(double i=1;i<circ;++i) {
-					double v = (Math.PI*2.0) * (i/circ);
-					double s=r*Math.sin(v);
-					double c=r*Math.cos(v);
-					turtle.moveTo(TX(cx+c),TY(cy+s));
-				}
-				turtle.moveTo(TX(cx+r),TY(cy));
+				arcTurtle(turtle, cx,cy, r,r, 0,Math.PI*2.0);
 		    }
 		} catch(Exception e) {
 			return false;
@@ -384,14 +371,7 @@ protected boolean parseEllipseElements(NodeList node) {
 				if(element.hasAttribute("rx")) rx = Double.parseDouble(element.getAttribute("rx"));
 				if(element.hasAttribute("ry")) ry = Double.parseDouble(element.getAttribute("ry"));
 				turtle.jumpTo(TX(cx+rx),TY(cy));
-				double circ = Math.min(3,Math.floor(Math.PI * ry*rx)); 
-				for(double i=1;i<circ;++i) {
-					double v = (Math.PI*2.0) * (i/circ);
-					double s=ry*Math.sin(v);
-					double c=rx*Math.cos(v);
-					turtle.moveTo(TX(cx+c),TY(cy+s));
-				}
-				turtle.moveTo(TX(cx+rx),TY(cy));
+				arcTurtle(turtle, cx,cy, rx,ry, 0,Math.PI*2.0);
 		    }
 		} catch(Exception e) {
 			return false;
@@ -433,6 +413,8 @@ protected boolean parsePathElements(NodeList paths) {
 					{
 						//System.out.println("Close path");
 						turtle.moveTo(firstX,firstY);
+						x = firstX;
+						y = firstY;
 					}
 					break;
 				case SVGPathSeg.PATHSEG_MOVETO_ABS:  // m
@@ -488,13 +470,9 @@ protected boolean parsePathElements(NodeList paths) {
 						// x3,y3 is the fourth control point
 						double x3=TX(path.getX());
 						double y3=TY(path.getY());
-						Bezier b = new Bezier(x0,y0,x1,y1,x2,y2,x3,y3);
-						ArrayList<Point2D> points = b.generateCurvePoints(0.05);
-						for(Point2D p : points) {
-							turtle.moveTo(p.x, p.y);
-							x = p.x;
-							y = p.y;
-						}
+						CurveFlattener.cubicTo(turtle,x0,y0,x1,y1,x2,y2,x3,y3,tolerance);
+						x = x3;
+						y = y3;
 					}
 					break; 
 				default:
@@ -22,6 +22,9 @@ public interface NetworkConnection {
 
 	public void sendMessage(String msg) throws Exception;
 
+	// send raw bytes, such as a binary frame, in turn with the messages.
+	public void sendBytes(byte [] data) throws Exception;
+
 	public void addListener(NetworkConnectionListener listener);
 
 	public void removeListener(NetworkConnectionListener listener);
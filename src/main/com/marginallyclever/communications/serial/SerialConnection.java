@@ -37,7 +37,8 @@ public final class SerialConnection implements SerialPortEventListener, NetworkC
 
 	// parsing input from Makelangelo
 	private String inputBuffer = "";
-	ArrayList<String> commandQueue = new ArrayList<String>();
+	// each command as it will be sent.  text commands already end with a newline.
+	ArrayList<byte[]> commandQueue = new ArrayList<byte[]>();
 
 	// Listeners which should be notified of a change to the percentage.
 	private ArrayList<NetworkConnectionListener> listeners = new ArrayList<NetworkConnectionListener>();
@@ -49,7 +50,24 @@ public SerialConnection(SerialTransportLayer layer) {
 
 	@Override
 	public void sendMessage(String msg) throws Exception {
-		commandQueue.add(msg);
+		if(msg==null || msg.length()==0) return;
+		/*
+		// remove any comments in the gcode
+		// TODO don't put this in serialConnection, it's the wrong level of abstraction.
+		if(msg.contains(COMMENT_START)) {
+			msg = msg.substring(0,line.indexOf(COMMENT_START));
+		}*/
+		// make sure there is a newline
+		// TODO don't put this in serialConnection, it's the wrong level of abstraction.
+		if(msg.endsWith("\n") == false) {
+			msg+=NEWLINE;
+		}
+		sendBytes(msg.getBytes());
+	}
+
+	@Override
+	public void sendBytes(byte [] data) throws Exception {
+		commandQueue.add(data);
 		sendQueuedCommand();
 	}
 
@@ -189,23 +207,11 @@ protected void sendQueuedCommand() {
 			return;
 		}
 
-		String command;
+		byte [] command;
 		try {
 			command=commandQueue.remove(0);
-			if(command==null || command.length()==0) return;
-			/*
-			// remove any comments in the gcode
-			// TODO don't put this in serialConnection, it's the wrong level of abstraction.
-			if(command.contains(COMMENT_START)) {
-				command = command.substring(0,line.indexOf(COMMENT_START));
-			}*/
-			// make sure there is a newline
-			// TODO don't put this in serialConnection, it's the wrong level of abstraction.
-			if(command.endsWith("\n") == false) {
-				command+=NEWLINE;
-			}
 			// send it
-			serialPort.writeBytes(command.getBytes());
+			serialPort.writeBytes(command);
 			waitingForCue=true;
 		}
 		catch(IndexOutOfBoundsException e1) {}
@@ -40,7 +40,8 @@ public final class TCPConnection implements Runnable, NetworkConnection {
 	
 	// parsing input from Makelangelo
 	private String inputBuffer = "";
-	ArrayList<String> commandQueue = new ArrayList<String>();
+	// each command as it will be sent.  text commands already end with a newline.
+	ArrayList<byte[]> commandQueue = new ArrayList<byte[]>();
 
 	// Listeners which should be notified of a change to the percentage.
 	private ArrayList<NetworkConnectionListener> listeners = new ArrayList<NetworkConnectionListener>();
@@ -52,7 +53,16 @@ public TCPConnection(TransportLayer layer) {
 
 	@Override
 	public void sendMessage(String msg) throws Exception {
-		commandQueue.add(msg);
+		String line = msg;
+		if(line.endsWith("\n") == false) {
+			line+=NEWLINE;
+		}
+		sendBytes(line.getBytes());
+	}
+
+	@Override
+	public void sendBytes(byte [] data) throws Exception {
+		commandQueue.add(data);
 		sendQueuedCommand();
 	}
 
@@ -211,18 +221,8 @@ protected void sendQueuedCommand() {
 			return;
 		}
 
-		String command;
 		try {
-			command=commandQueue.remove(0);
-			String line = command;
-			if(line.contains(COMMENT_START)) {
-				String [] lines = line.split(COMMENT_START);
-				command = lines[0];
-			}
-			if(line.endsWith("\n") == false) {
-				line+=NEWLINE;
-			}
-			byte[] lineBytes = line.getBytes();
+			byte[] lineBytes = commandQueue.remove(0);
 			ByteBuffer buf = ByteBuffer.allocate(lineBytes.length);
 			buf.clear();
 			buf.put(lineBytes);
@@ -0,0 +1,158 @@
+package com.marginallyclever.convenience;
+
+import java.util.ArrayList;
+
+/**
+ * Finds runs of points in a polyline that lie on a circular arc, so they can be sent as one G2/G3 instead of many
+ * short lines.
+ * <p>
+ * Arcs are grown greedily from each point for as long as every point, and the middle of every segment, stays within
+ * a tolerance of the circle through the first, middle and last points.  An arc always turns one way and never sweeps
+ * more than half a circle, so its end is never mistaken for its start.  Each arc doubles in length until it fails,
+ * then a binary search finds where it ends, so an arc of n points takes O(n log n) work instead of O(n^2).
+ */
+public class ArcFitter {
+	// fewer segments than this are cheaper to send as lines.
+	private static final int MIN_SEGMENTS = 3;
+	// anything flatter than this is a line, in mm.
+	private static final double MAX_RADIUS = 10000;
+	private static final double MAX_SWEEP = Math.PI;
+
+	/**
+	 * One piece of a fitted polyline: a line or an arc from the end of the piece before it to point end.
+	 */
+	public static class Piece {
+		public final int end;
+		public final boolean isArc;
+		// center of the arc
+		public final double cx, cy;
+		public final boolean clockwise;
+
+		Piece(int end) {
+			this.end = end;
+			isArc = false;
+			cx = cy = 0;
+			clockwise = false;
+		}
+
+		Piece(int end,double cx,double cy,boolean clockwise) {
+			this.end = end;
+			isArc = true;
+			this.cx = cx;
+			this.cy = cy;
+			this.clockwise = clockwise;
+		}
+	}
+
+	/**
+	 * @param x the x coordinate of every point
+	 * @param y the y coordinate of every point.  must be the same length as x.
+	 * @param tolerance the furthest an arc may stray from the polyline.
+	 * @return the pieces that draw point 0 to the last point, in order.
+	 */
+	public static ArrayList<Piece> fit(double [] x,double [] y,double tolerance) {
+		ArrayList<Piece> pieces = new ArrayList<Piece>();
+		final int last = x.length-1;
+		int i = 0;
+		double [] circle = new double[3];
+		while(i<last) {
+			int good = i+MIN_SEGMENTS;
+			if(good>last || fitArc(x,y,i,good,tolerance,circle)==0) {
+				pieces.add(new Piece(i+1));
+				++i;
+				continue;
+			}
+			// double the arc until it fails or reaches the end...
+			int bad = last+1;
+			while(good<last) {
+				int j = Math.min(last, i+(good-i)*2);
+				if(fitArc(x,y,i,j,tolerance,circle)==0) {
+					bad = j;
+					break;
+				}
+				good = j;
+			}
+			// ...then halve the gap between the longest that fit and the shortest that didn't.
+			while(bad-good>1) {
+				int j = (good+bad)/2;
+				if(fitArc(x,y,i,j,tolerance,circle)==0) bad = j;
+				else good = j;
+			}
+			int dir = fitArc(x,y,i,good,tolerance,circle);
+			pieces.add(new Piece(good,circle[0],circle[1],dir<0));
+			i = good;
+		}
+		return pieces;
+	}
+
+	/**
+	 * Try to fit one arc to points first...last.
+	 * @param circle receives {cx,cy,radius} of the arc.
+	 * @return 1 for counter-clockwise, -1 for clockwise, 0 if the points are not an arc.
+	 */
+	private static int fitArc(double [] x,double [] y,int first,int last,double tolerance,double [] circle) {
+		int mid = (first+last)/2;
+		if(!circumcircle(x[first],y[first],x[mid],y[mid],x[last],y[last],circle)) return 0;
+		double cx = circle[0], cy = circle[1], r = circle[2];
+		if(r>MAX_RADIUS) return 0;
+
+		int dir = 0;
+		double sweep = 0;
+		double a0 = Math.atan2(y[first]-cy, x[first]-cx);
+		for(int k=first+1;k<=last;++k) {
+			double d = Math.hypot(x[k]-cx, y[k]-cy);
+			if(Math.abs(d-r)>tolerance) return 0;
+			// the arc bulges away from the chord between two points by about L^2/(8r).
+			double lx = x[k]-x[k-1];
+			double ly = y[k]-y[k-1];
+			if((lx*lx+ly*ly)/(8*r)>tolerance) return 0;
+
+			double a1 = Math.atan2(y[k]-cy, x[k]-cx);
+			double step = a1-a0;
+			if(step> Math.PI) step -= 2*Math.PI;
+			if(step<-Math.PI) step += 2*Math.PI;
+			int s = (int)Math.signum(step);
+			if(s==0 || (dir!=0 && s!=dir)) return 0;
+			dir = s;
+			sweep += Math.abs(step);
+			if(sweep>MAX_SWEEP) return 0;
+			a0 = a1;
+		}
+		return dir;
+	}
+
+	/**
+	 * @param circle receives {cx,cy,radius} of the circle through three points.
+	 * @return false if the points are in a line.
+	 */
+	private static boolean circumcircle(double ax,double ay,double bx,double by,double cx,double cy,double [] circle) {
+		double d = 2*(ax*(by-cy) + bx*(cy-ay) + cx*(ay-by));
+		if(d==0) return false;
+		double a2 = ax*ax+ay*ay;
+		double b2 = bx*bx+by*by;
+		double c2 = cx*cx+cy*cy;
+		double ux = (a2*(by-cy) + b2*(cy-ay) + c2*(ay-by))/d;
+		double uy = (a2*(cx-bx) + b2*(ax-cx) + c2*(bx-ax))/d;
+		circle[0] = ux;
+		circle[1] = uy;
+		circle[2] = Math.hypot(ax-ux, ay-uy);
+		return true;
+	}
+}
+
+/**
+ * This file is part of Makelangelo.
+ * <p>
+ * Makelangelo is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * Makelangelo is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with Makelangelo.  If not, see <http://www.gnu.org/licenses/>.
+ */
@@ -0,0 +1,171 @@
+package com.marginallyclever.convenience;
+
+import java.awt.geom.PathIterator;
+
+import com.marginallyclever.convenience.turtle.Turtle;
+
+/**
+ * Turns curves into straight turtle moves, no further than a tolerance from the true curve.
+ * <p>
+ * Bezier curves are split in half until each piece is flat enough.  Arcs and ellipses are cut into equal steps just
+ * small enough for their widest radius.  Points go straight into the turtle's history with no lists in between.  A
+ * curve starts wherever the caller says it does; the turtle is not moved there first.
+ *
+ * Based on https://github.com/pelson/antigrain/blob/master/agg-2.4/src/agg_curves.cpp
+ */
+public class CurveFlattener {
+	// a curve is split at most this many times, 2^MAX_DEPTH pieces.
+	private static final int MAX_DEPTH = 10;
+	// no point drawing curves more finely than this, in mm.
+	public static final double MIN_TOLERANCE = 0.05;
+	// the most steps in one arc.
+	private static final int MAX_ARC_STEPS = 4096;
+
+	/**
+	 * @param penDiameter in mm
+	 * @return how far a flattened curve may stray from the true curve without anyone seeing it.  Half the pen width.
+	 */
+	public static double getTolerance(double penDiameter) {
+		return Math.max(penDiameter/2.0, MIN_TOLERANCE);
+	}
+
+	/**
+	 * Quadratic Bezier from (x0,y0) through control point (x1,y1) to (x2,y2).
+	 */
+	public static void quadTo(Turtle turtle,double x0,double y0,double x1,double y1,double x2,double y2,double tolerance) {
+		// a quadratic is the cubic with control points 2/3 of the way to its one control point.
+		cubicTo(turtle,
+				x0,y0,
+				x0+(x1-x0)*2.0/3.0, y0+(y1-y0)*2.0/3.0,
+				x2+(x1-x2)*2.0/3.0, y2+(y1-y2)*2.0/3.0,
+				x2,y2,
+				tolerance);
+	}
+
+	/**
+	 * Cubic Bezier from (x0,y0) with control points (x1,y1) and (x2,y2) to (x3,y3).
+	 */
+	public static void cubicTo(Turtle turtle,double x0,double y0,double x1,double y1,double x2,double y2,double x3,double y3,double tolerance) {
+		cubic(turtle,x0,y0,x1,y1,x2,y2,x3,y3,tolerance*tolerance,0);
+	}
+
+	private static void cubic(Turtle turtle,double x0,double y0,double x1,double y1,double x2,double y2,double x3,double y3,double toleranceSq,int depth) {
+		double dx = x3-x0;
+		double dy = y3-y0;
+		double lenSq = dx*dx+dy*dy;
+		boolean flat;
+		if(lenSq==0) {
+			// ends meet.  flat only if the control points are on top of them.
+			double e1 = (x1-x0)*(x1-x0)+(y1-y0)*(y1-y0);
+			double e2 = (x2-x0)*(x2-x0)+(y2-y0)*(y2-y0);
+			flat = Math.max(e1,e2) <= toleranceSq;
+		} else {
+			// distance of each control point from the line between the ends, times the length of that line.
+			double d1 = (x1-x0)*dy-(y1-y0)*dx;
+			double d2 = (x2-x0)*dy-(y2-y0)*dx;
+			flat = Math.max(d1*d1,d2*d2) <= toleranceSq*lenSq;
+		}
+		if(flat || depth>=MAX_DEPTH) {
+			turtle.moveTo(x3,y3);
+			return;
+		}
+
+		double x01 = (x0+x1)/2, y01 = (y0+y1)/2;
+		double x12 = (x1+x2)/2, y12 = (y1+y2)/2;
+		double x23 = (x2+x3)/2, y23 = (y2+y3)/2;
+		double x012 = (x01+x12)/2, y012 = (y01+y12)/2;
+		double x123 = (x12+x23)/2, y123 = (y12+y23)/2;
+		double xm = (x012+x123)/2, ym = (y012+y123)/2;
+		cubic(turtle,x0,y0,x01,y01,x012,y012,xm,ym,toleranceSq,depth+1);
+		cubic(turtle,xm,ym,x123,y123,x23,y23,x3,y3,toleranceSq,depth+1);
+	}
+
+	/**
+	 * Part of an ellipse, from angle a0 to angle a1.  The turtle should already be at the point for a0.
+	 * @param cx center
+	 * @param cy center
+	 * @param rx radius along the (rotated) x axis
+	 * @param ry radius along the (rotated) y axis
+	 * @param rotation of the ellipse, in radians
+	 * @param a0 start angle, in radians
+	 * @param a1 end angle, in radians.  less than a0 to go clockwise.
+	 */
+	public static void ellipseTo(Turtle turtle,double cx,double cy,double rx,double ry,double rotation,double a0,double a1,double tolerance) {
+		double r = Math.max(Math.abs(rx),Math.abs(ry));
+		double sweep = a1-a0;
+		int steps = 1;
+		if(r>tolerance) {
+			// the widest angle whose chord stays within tolerance of a circle with the larger radius.
+			double step = 2.0*Math.acos(1.0-tolerance/r);
+			steps = (int)Math.min(MAX_ARC_STEPS,Math.ceil(Math.abs(sweep)/step));
+			steps = Math.max(steps,1);
+		}
+		double c = Math.cos(rotation);
+		double s = Math.sin(rotation);
+		for(int i=1;i<=steps;++i) {
+			double a = a0 + sweep*i/steps;
+			double px = rx*Math.cos(a);
+			double py = ry*Math.sin(a);
+			turtle.moveTo(cx + px*c - py*s, cy + px*s + py*c);
+		}
+	}
+
+	/**
+	 * Follow a java.awt path.  Each subpath starts with a jump.  Closed subpaths return to their start, then lift the pen.
+	 */
+	public static void flatten(Turtle turtle,PathIterator pi,double tolerance) {
+		double [] coords = new double[6];
+		double x=0, y=0;
+		double startX=0, startY=0;
+		boolean closed=false;
+
+		while(pi.isDone() == false ) {
+			int type = pi.currentSegment(coords);
+			if(closed && type!=PathIterator.SEG_MOVETO) {
+				// carry on from the start of the closed subpath.
+				turtle.jumpTo(x = startX, y = startY);
+			}
+			closed = (type==PathIterator.SEG_CLOSE);
+			switch(type) {
+			case PathIterator.SEG_MOVETO:
+				turtle.jumpTo(startX = x = coords[0], startY = y = coords[1]);
+				break;
+			case PathIterator.SEG_LINETO:
+				turtle.moveTo(x = coords[0], y = coords[1]);
+				break;
+			case PathIterator.SEG_QUADTO:
+				quadTo(turtle,x,y,coords[0],coords[1],coords[2],coords[3],tolerance);
+				x = coords[2];
+				y = coords[3];
+				break;
+			case PathIterator.SEG_CUBICTO:
+				cubicTo(turtle,x,y,coords[0],coords[1],coords[2],coords[3],coords[4],coords[5],tolerance);
+				x = coords[4];
+				y = coords[5];
+				break;
+			case PathIterator.SEG_CLOSE:
+				if(x!=startX || y!=startY) turtle.moveTo(x = startX, y = startY);
+				turtle.penUp();
+				break;
+			}
+			pi.next();
+		}
+	}
+}
+
+/**
+ * This file is part of Makelangelo.
+ * <p>
+ * Makelangelo is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * Makelangelo is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with Makelangelo.  If not, see <http://www.gnu.org/licenses/>.
+ */
@@ -1,69 +1,125 @@
 package com.marginallyclever.convenience;
 
-import java.awt.Color;
 import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
 import java.security.InvalidParameterException;
+import java.util.stream.IntStream;
 
 /**
  * Histogram of an image with 8 bits red, 8 bits green, and 8 bits blue.
+ * <p>
+ * Counting is split across threads by bands of rows.  Each band fills its own bins, which are summed at the end.
+ * The image types ImageIO usually returns are read straight from the raster.
  *
  * @author Dan Royer
  * @since 7.1.4-SNAPSHOT?
  */
 public class Histogram {
-	public char[] red = new char[256];
-	public char[] green = new char[256];
-	public char[] blue = new char[256];
+	// rows per band handed to each worker.
+	private static final int ROWS_PER_BAND = 64;
+
+	public long[] red = new long[256];
+	public long[] green = new long[256];
+	public long[] blue = new long[256];
 
 	public Histogram() {}
 
 	public void getRGBHistogramOf(BufferedImage img) {
-		int w = img.getWidth();
-		int h = img.getHeight();
-		int x, y;
-
-		for (y = 0; y < 255; ++y) {
-			red[y] = 0;
-			green[y] = 0;
-			blue[y] = 0;
-		}
-		
-		for (y = 0; y < h; ++y) {
-			for (x = 0; x < w; ++x) {
-				Color c = new Color(img.getRGB(x, y));
-				red[c.getRed()]++;
-				green[c.getGreen()]++;
-				blue[c.getBlue()]++;
-			}
-		}
+		long[][] bins = count(img,false);
+		red = bins[0];
+		green = bins[1];
+		blue = bins[2];
 	}
 
 	/**
 	 * calculate the greyscale histogram of the BufferedImage and store it in th red[] channel.
+	 * Transparent pixels are blended towards white, the same as {@code ImageFilter.decode32bit()}.
 	 * @param img
 	 */
 	public void getGreyHistogramOf(BufferedImage img) {
-		int w = img.getWidth();
-		int h = img.getHeight();
-		int x, y;
+		red = count(img,true)[0];
+	}
+
+	/**
+	 * @param img the image to count
+	 * @param grey true for a single grey channel, false for red, green, and blue.
+	 * @return bins[channel][value]
+	 */
+	private long[][] count(BufferedImage img,boolean grey) {
+		final int h = img.getHeight();
+		final int bands = (h + ROWS_PER_BAND - 1) / ROWS_PER_BAND;
+		final int channels = grey ? 1 : 3;
+
+		return IntStream.range(0, bands).parallel()
+			.mapToObj(band -> {
+				long[][] bins = new long[channels][256];
+				int y0 = band * ROWS_PER_BAND;
+				countRows(img, y0, Math.min(ROWS_PER_BAND, h - y0), grey, bins);
+				return bins;
+			})
+			.reduce(new long[channels][256], (a, b) -> {
+				long[][] sum = new long[channels][256];
+				for (int c = 0; c < channels; ++c) {
+					for (int i = 0; i < 256; ++i) {
+						sum[c][i] = a[c][i] + b[c][i];
+					}
+				}
+				return sum;
+			});
+	}
+
+	private void countRows(BufferedImage img,int y0,int rows,boolean grey,long[][] bins) {
+		final int w = img.getWidth();
 
-		for (y = 0; y < 255; ++y) {
-			red[y]=0;
+		switch(img.getType()) {
+		case BufferedImage.TYPE_INT_RGB:
+		case BufferedImage.TYPE_INT_ARGB:
+		case BufferedImage.TYPE_3BYTE_BGR:
+		case BufferedImage.TYPE_4BYTE_ABGR: {
+			// the raster bands of these types are always r,g,b(,a) with 8 bits each.
+			Raster raster = img.getRaster();
+			int stride = raster.getNumBands();
+			boolean hasAlpha = stride > 3;
+			int[] samples = raster.getPixels(0, y0, w, rows, (int[])null);
+			for (int i = 0; i < samples.length; i += stride) {
+				int a = hasAlpha ? samples[i+3] : 255;
+				countPixel(samples[i], samples[i+1], samples[i+2], a, grey, bins);
+			}
+			break;
 		}
-		
-		for (y = 0; y < h; ++y) {
-			for (x = 0; x < w; ++x) {
-				Color c = new Color(img.getRGB(x, y));
-				int v = (c.getRed()+c.getGreen()+c.getBlue())/3;
-				v = Math.min(Math.max(0, v), 255);
-				red[v]++;
+		default: {
+			int[] row = new int[w];
+			for (int y = y0; y < y0 + rows; ++y) {
+				img.getRGB(0, y, w, 1, row, 0, w);
+				for (int x = 0; x < w; ++x) {
+					int pixel = row[x];
+					countPixel((pixel >> 16) & 0xff, (pixel >> 8) & 0xff, pixel & 0xff, (pixel >> 24) & 0xff, grey, bins);
+				}
 			}
+			break;
+		}
+		}
+	}
+
+	private void countPixel(int r,int g,int b,int a,boolean grey,long[][] bins) {
+		if (!grey) {
+			bins[0][r]++;
+			bins[1][g]++;
+			bins[2][b]++;
+			return;
+		}
+		if (a != 255) {
+			double t = (255 - a) / 255.0;
+			r = (int)((255 - r) * t + r);
+			g = (int)((255 - g) * t + g);
+			b = (int)((255 - b) * t + b);
 		}
+		bins[0][(r + g + b) / 3]++;
 	}
 
 	public void reportGrey() {
 		for( int i=0;i<256;++i ) {
-			System.out.println(i+"="+(int)red[i]);
+			System.out.println(i+"="+red[i]);
 		}
 	}
 
@@ -87,7 +143,7 @@ public double[] getLevels(int numLevels) throws InvalidParameterException {
 		double costPerLevel = (double)total/(double)numLevels;
 		double[] levels = new double[numLevels];
 		
-		int sum=0;
+		long sum=0;
 		int j=0;
 		for(int i=0;i<256;++i) {
 			sum+=red[i];
@@ -0,0 +1,143 @@
+package com.marginallyclever.convenience;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * A static 2D k-d tree over a fixed set of points, used to find the nearest neighbors of every point.
+ * The tree is stored implicitly: each range of {@code index} keeps its splitting point in the middle,
+ * lower values to the left and higher values to the right.  Splits alternate between x and y.
+ *
+ * See <a href="https://en.wikipedia.org/wiki/K-d_tree">https://en.wikipedia.org/wiki/K-d_tree</a>
+ */
+public class KDTree2D {
+	private final double[] x, y;
+	private final int[] index;
+
+	/**
+	 * @param x the x coordinate of every point
+	 * @param y the y coordinate of every point.  must be the same length as x.
+	 */
+	public KDTree2D(double[] x, double[] y) {
+		this.x = x;
+		this.y = y;
+		index = new int[x.length];
+		for (int i = 0; i < index.length; ++i) index[i] = i;
+		build(0, index.length, 0);
+	}
+
+	private void build(int lo, int hi, int depth) {
+		if (hi - lo <= 1) return;
+		int mid = (lo + hi) >>> 1;
+		select(lo, hi, mid, (depth & 1) == 0 ? x : y);
+		build(lo, mid, depth + 1);
+		build(mid + 1, hi, depth + 1);
+	}
+
+	/**
+	 * Quickselect: partially sort index[lo...hi-1] so that index[k] holds the point that would be there if the
+	 * range were fully sorted by axis.
+	 */
+	private void select(int lo, int hi, int k, double[] axis) {
+		int left = lo, right = hi - 1;
+		while (left < right) {
+			double pivot = axis[index[(left + right) >>> 1]];
+			int i = left, j = right;
+			while (i <= j) {
+				while (axis[index[i]] < pivot) ++i;
+				while (axis[index[j]] > pivot) --j;
+				if (i <= j) {
+					int t = index[i];
+					index[i] = index[j];
+					index[j] = t;
+					++i;
+					--j;
+				}
+			}
+			if (k <= j) right = j;
+			else if (k >= i) left = i;
+			else return;
+		}
+	}
+
+	/**
+	 * @param k how many neighbors to find for each point.
+	 * @return for every point the indexes of its (up to) k nearest other points, closest first.
+	 */
+	public int[][] nearestNeighbors(int k) {
+		final int count = Math.max(0, Math.min(k, x.length - 1));
+		int[][] result = new int[x.length][];
+		IntStream.range(0, x.length).parallel().forEach(i -> {
+			Query q = new Query(i, count);
+			q.search(0, index.length, 0);
+			result[i] = Arrays.copyOf(q.best, q.found);
+		});
+		return result;
+	}
+
+	private class Query {
+		final int self;
+		final double qx, qy;
+		final int[] best;
+		final double[] bestDist;
+		int found = 0;
+
+		Query(int self, int k) {
+			this.self = self;
+			qx = x[self];
+			qy = y[self];
+			best = new int[k];
+			bestDist = new double[k];
+		}
+
+		void search(int lo, int hi, int depth) {
+			if (lo >= hi || best.length == 0) return;
+			int mid = (lo + hi) >>> 1;
+			int p = index[mid];
+			if (p != self) {
+				double dx = x[p] - qx;
+				double dy = y[p] - qy;
+				offer(p, dx * dx + dy * dy);
+			}
+
+			double diff = (depth & 1) == 0 ? qx - x[p] : qy - y[p];
+			if (diff < 0) {
+				search(lo, mid, depth + 1);
+				if (found < best.length || diff * diff < bestDist[found - 1]) search(mid + 1, hi, depth + 1);
+			} else {
+				search(mid + 1, hi, depth + 1);
+				if (found < best.length || diff * diff < bestDist[found - 1]) search(lo, mid, depth + 1);
+			}
+		}
+
+		// insertion sort into the short list of best candidates.
+		void offer(int p, double d) {
+			if (found == best.length && d >= bestDist[found - 1]) return;
+			int i = (found < best.length) ? found++ : found - 1;
+			while (i > 0 && bestDist[i - 1] > d) {
+				best[i] = best[i - 1];
+				bestDist[i] = bestDist[i - 1];
+				--i;
+			}
+			best[i] = p;
+			bestDist[i] = d;
+		}
+	}
+}
+
+/**
+ * This file is part of Makelangelo.
+ * <p>
+ * Makelangelo is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * Makelangelo is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with Makelangelo.  If not, see <http://www.gnu.org/licenses/>.
+ */
@@ -0,0 +1,165 @@
+package com.marginallyclever.convenience;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import com.marginallyclever.convenience.turtle.Turtle;
+import com.marginallyclever.convenience.turtle.TurtleMove;
+import com.marginallyclever.convenience.turtle.TurtleMoveType;
+
+/**
+ * Drop the points of a polyline that don't change its shape by more than a given distance.
+ *
+ * See <a href="https://en.wikipedia.org/wiki/Ramer%E2%80%93Douglas%E2%80%93Peucker_algorithm">https://en.wikipedia.org/wiki/Ramer%E2%80%93Douglas%E2%80%93Peucker_algorithm</a>
+ */
+public class PolylineSimplifier {
+	/**
+	 * Ramer-Douglas-Peucker.  Works with an explicit stack, so very long polylines can't overflow the call stack.
+	 * @param x the x coordinate of every point
+	 * @param y the y coordinate of every point.  must be the same length as x.
+	 * @param epsilon the furthest any dropped point may be from the simplified line.
+	 * @return the indexes of the points to keep, in order.  the first and last points are always kept.
+	 */
+	public static int[] ramerDouglasPeucker(double[] x, double[] y, double epsilon) {
+		final int n = x.length;
+		if (n < 3) {
+			int[] all = new int[n];
+			for (int i = 0; i < n; ++i) all[i] = i;
+			return all;
+		}
+
+		boolean[] keep = new boolean[n];
+		keep[0] = true;
+		keep[n - 1] = true;
+		final double epsilonSq = epsilon * epsilon;
+
+		// pairs of first,last still to check.
+		int[] stack = new int[64];
+		int top = 0;
+		stack[top++] = 0;
+		stack[top++] = n - 1;
+		while (top > 0) {
+			int last = stack[--top];
+			int first = stack[--top];
+			if (last - first < 2) continue;
+
+			double ax = x[first], ay = y[first];
+			double dx = x[last] - ax, dy = y[last] - ay;
+			double lenSq = dx * dx + dy * dy;
+
+			int worst = -1;
+			double worstSq = epsilonSq;
+			for (int i = first + 1; i < last; ++i) {
+				double d = distanceSq(x[i] - ax, y[i] - ay, dx, dy, lenSq);
+				if (d > worstSq) {
+					worstSq = d;
+					worst = i;
+				}
+			}
+			if (worst == -1) continue;
+
+			keep[worst] = true;
+			if (top + 4 > stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+			stack[top++] = first;
+			stack[top++] = worst;
+			stack[top++] = worst;
+			stack[top++] = last;
+		}
+
+		int count = 0;
+		for (boolean k : keep) if (k) ++count;
+		int[] result = new int[count];
+		count = 0;
+		for (int i = 0; i < n; ++i) if (keep[i]) result[count++] = i;
+		return result;
+	}
+
+	/**
+	 * Simplify every pen-down polyline in a turtle, all at once on every core.  A polyline starts where the pen goes
+	 * down and runs until it lifts or the tool changes.  Travel moves and tool changes are kept.
+	 * @param turtle changed in place.
+	 * @param epsilon the furthest any dropped point may be from the simplified line.
+	 */
+	public static void simplify(Turtle turtle, double epsilon) {
+		final ArrayList<TurtleMove> history = turtle.history;
+		final int size = history.size();
+
+		// {first,last} index of each polyline.  first is the point where the pen went down.
+		ArrayList<int[]> polylines = new ArrayList<int[]>();
+		// the last point the pen was at, -1 right after a tool change.
+		int anchor = -1;
+		int[] current = null;
+		for (int i = 0; i < size; ++i) {
+			TurtleMoveType type = history.get(i).type;
+			if (type == TurtleMoveType.DRAW) {
+				if (current == null) {
+					current = new int[] { anchor == -1 ? i : anchor, i };
+					polylines.add(current);
+				} else {
+					current[1] = i;
+				}
+				anchor = i;
+			} else {
+				current = null;
+				anchor = (type == TurtleMoveType.TRAVEL) ? i : -1;
+			}
+		}
+
+		final boolean[] drop = new boolean[size];
+		IntStream.range(0, polylines.size()).parallel().forEach(p -> {
+			int first = polylines.get(p)[0];
+			int n = polylines.get(p)[1] - first + 1;
+			if (n < 3) return;
+			double[] x = new double[n];
+			double[] y = new double[n];
+			for (int i = 0; i < n; ++i) {
+				TurtleMove m = history.get(first + i);
+				x[i] = m.x;
+				y[i] = m.y;
+			}
+			int[] keep = ramerDouglasPeucker(x, y, epsilon);
+			int k = 0;
+			for (int i = 0; i < n; ++i) {
+				if (k < keep.length && keep[k] == i) ++k;
+				else drop[first + i] = true;
+			}
+		});
+
+		ArrayList<TurtleMove> kept = new ArrayList<TurtleMove>(size);
+		for (int i = 0; i < size; ++i) {
+			if (!drop[i]) kept.add(history.get(i));
+		}
+		turtle.history = kept;
+	}
+
+	/**
+	 * @return the square of the distance from (px,py) to the segment from the origin to (dx,dy).
+	 */
+	private static double distanceSq(double px, double py, double dx, double dy, double lenSq) {
+		if (lenSq == 0) return px * px + py * py;
+		double t = (px * dx + py * dy) / lenSq;
+		if (t < 0) t = 0;
+		else if (t > 1) t = 1;
+		double ex = px - dx * t;
+		double ey = py - dy * t;
+		return ex * ex + ey * ey;
+	}
+}
+
+/**
+ * This file is part of Makelangelo.
+ * <p>
+ * Makelangelo is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * Makelangelo is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with Makelangelo.  If not, see <http://www.gnu.org/licenses/>.
+ */
@@ -0,0 +1,461 @@
+package com.marginallyclever.convenience;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Shortens a closed tour through a set of points with 2-opt and Or-opt moves.
+ * <p>
+ * Only the k nearest neighbors of each point (found with a {@link KDTree2D}) are considered as new partners, and a
+ * point is only looked at again after one of its edges changes ("don't look bits").  Several workers start from
+ * slightly shaken copies of the same tour and search in parallel.  The shortest result wins.
+ * <p>
+ * {@link #seedTour()} builds the starting tour: a Hilbert curve walk, or the greedy nearest-neighbor walk if that is
+ * shorter and there are few enough points to afford it.
+ *
+ * See <a href="https://en.wikipedia.org/wiki/2-opt">https://en.wikipedia.org/wiki/2-opt</a>
+ */
+public class TourOptimizer {
+	public static final int DEFAULT_NEIGHBORS = 8;
+	// the greedy walk is O(n^2).  above this many points only the Hilbert walk is tried.
+	public static final int GREEDY_LIMIT = 20000;
+	// bits per axis of the Hilbert curve grid.  2*15 bits of curve position fit above the point index in a long.
+	private static final int HILBERT_ORDER = 15;
+	// longest run of points moved by a single Or-opt move.
+	private static final int MAX_SEGMENT = 3;
+	// longest block moved by each random kick that separates the workers.
+	private static final int MAX_KICK = 50;
+	private static final double EPSILON = 1e-9;
+
+	private final double[] x, y;
+	private final int n;
+	private int[][] neighbors;
+	private int neighborCount = DEFAULT_NEIGHBORS;
+	private int workers = Runtime.getRuntime().availableProcessors();
+	private long seed = 0;
+	private BooleanSupplier cancelled = () -> false;
+	private Consumer<int[]> listener = null;
+
+	private int[] bestTour;
+	private double bestLength;
+
+	/**
+	 * @param x the x coordinate of every point
+	 * @param y the y coordinate of every point.  must be the same length as x.
+	 */
+	public TourOptimizer(double[] x, double[] y) {
+		this.x = x;
+		this.y = y;
+		n = x.length;
+	}
+
+	public void setNeighborCount(int k) {
+		neighborCount = Math.max(1, k);
+		neighbors = null;
+	}
+
+	public void setWorkers(int count) {
+		workers = Math.max(1, count);
+	}
+
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * @param cancelled polled now and then.  when it returns true every worker stops and the best tour so far is kept.
+	 */
+	public void setCancelled(BooleanSupplier cancelled) {
+		this.cancelled = cancelled;
+	}
+
+	/**
+	 * @param listener receives every new best tour.  The array is never changed afterwards.
+	 */
+	public void setListener(Consumer<int[]> listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * @param initialTour every point index exactly once.  not changed.
+	 * @return the shortest tour found.  never longer than initialTour.
+	 */
+	public int[] optimize(int[] initialTour) {
+		bestTour = initialTour.clone();
+		bestLength = getTourLength(bestTour);
+		// too few points to make a move without tripping over ourselves.
+		if (n < 8) return bestTour;
+
+		if (neighbors == null) neighbors = new KDTree2D(x, y).nearestNeighbors(neighborCount);
+
+		IntStream.range(0, workers).parallel().forEach(w -> {
+			Search search = new Search(initialTour, new Random(seed + w));
+			// the first worker polishes the tour as given.  the rest start from shaken copies.
+			if (w > 0) search.kick(Math.max(1, n / 200));
+			search.run();
+			offer(search.tour);
+		});
+		return bestTour;
+	}
+
+	/**
+	 * @return the shorter of {@link #hilbertTour()} and, if there are no more than GREEDY_LIMIT points,
+	 * {@link #greedyTour()}.
+	 */
+	public int[] seedTour() {
+		int[] best = hilbertTour();
+		if (n <= GREEDY_LIMIT) {
+			int[] greedy = greedyTour();
+			if (getTourLength(greedy) < getTourLength(best)) best = greedy;
+		}
+		return best;
+	}
+
+	/**
+	 * Visit the points in the order a Hilbert curve over their bounding box passes them.  O(n log n).
+	 * @return the tour
+	 */
+	public int[] hilbertTour() {
+		double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+		double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+		for (int i = 0; i < n; ++i) {
+			minX = Math.min(minX, x[i]);
+			maxX = Math.max(maxX, x[i]);
+			minY = Math.min(minY, y[i]);
+			maxY = Math.max(maxY, y[i]);
+		}
+		// one scale for both axes so the curve doesn't stretch.
+		final int side = 1 << HILBERT_ORDER;
+		final double size = Math.max(maxX - minX, maxY - minY);
+		final double scale = (size > 0) ? (side - 1) / size : 0;
+		final double left = minX, bottom = minY;
+
+		// curve position in the high bits, point index in the low bits.
+		long[] keys = new long[n];
+		IntStream.range(0, n).parallel().forEach(i -> {
+			int hx = (int) ((x[i] - left) * scale);
+			int hy = (int) ((y[i] - bottom) * scale);
+			keys[i] = (hilbertIndex(side, hx, hy) << 32) | i;
+		});
+		Arrays.parallelSort(keys);
+
+		int[] tour = new int[n];
+		for (int i = 0; i < n; ++i) tour[i] = (int) keys[i];
+		return tour;
+	}
+
+	/**
+	 * See <a href="https://en.wikipedia.org/wiki/Hilbert_curve">https://en.wikipedia.org/wiki/Hilbert_curve</a>
+	 * @param side width of the square grid, a power of two
+	 * @return the distance along the curve to cell (hx,hy)
+	 */
+	private static long hilbertIndex(int side, int hx, int hy) {
+		long d = 0;
+		for (int s = side / 2; s > 0; s /= 2) {
+			int rx = (hx & s) > 0 ? 1 : 0;
+			int ry = (hy & s) > 0 ? 1 : 0;
+			d += (long) s * s * ((3 * rx) ^ ry);
+			// rotate the quadrant
+			if (ry == 0) {
+				if (rx == 1) {
+					hx = side - 1 - hx;
+					hy = side - 1 - hy;
+				}
+				int t = hx;
+				hx = hy;
+				hy = t;
+			}
+		}
+		return d;
+	}
+
+	/**
+	 * Starting with point 0, go to the nearest point not yet visited and repeat until all points have been visited.
+	 * O(n^2).
+	 * @return the tour
+	 */
+	public int[] greedyTour() {
+		int[] tour = new int[n];
+		for (int i = 0; i < n; ++i) tour[i] = i;
+
+		// tour[0...i] are visited, the rest are not.
+		for (int i = 0; i < n - 1; ++i) {
+			int last = tour[i];
+			int best = i + 1;
+			double bestW = Double.MAX_VALUE;
+			for (int j = i + 1; j < n; ++j) {
+				double dx = x[tour[j]] - x[last];
+				double dy = y[tour[j]] - y[last];
+				double w = dx * dx + dy * dy;
+				if (w < bestW) {
+					bestW = w;
+					best = j;
+				}
+			}
+			int t = tour[i + 1];
+			tour[i + 1] = tour[best];
+			tour[best] = t;
+		}
+		return tour;
+	}
+
+	private synchronized void offer(int[] tour) {
+		double len = getTourLength(tour);
+		if (len < bestLength - EPSILON) {
+			bestLength = len;
+			bestTour = tour;
+			if (listener != null) listener.accept(tour);
+		}
+	}
+
+	/**
+	 * @return the length of the closed loop through every point of tour.
+	 */
+	public double getTourLength(int[] tour) {
+		double sum = 0;
+		for (int i = 0; i < tour.length; ++i) {
+			sum += distance(tour[i], tour[(i + 1) % tour.length]);
+		}
+		return sum;
+	}
+
+	private double distance(int a, int b) {
+		double dx = x[a] - x[b];
+		double dy = y[a] - y[b];
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+
+	/**
+	 * One worker's private tour.  tour[i] is the i-th point visited, pos[p] is where point p sits in tour.
+	 */
+	private class Search {
+		final int[] tour;
+		final int[] pos = new int[n];
+		final Random random;
+
+		// points that still need to be looked at, with a flag so each is queued at most once.
+		final int[] queue = new int[n];
+		final boolean[] queued = new boolean[n];
+		int head = 0, size = 0;
+
+		Search(int[] initialTour, Random random) {
+			this.random = random;
+			tour = initialTour.clone();
+			for (int i = 0; i < n; ++i) pos[tour[i]] = i;
+			for (int i = 0; i < n; ++i) push(tour[i]);
+		}
+
+		int next(int p) {
+			int i = pos[p] + 1;
+			return tour[i == n ? 0 : i];
+		}
+
+		int prev(int p) {
+			int i = pos[p] - 1;
+			return tour[i < 0 ? n - 1 : i];
+		}
+
+		void push(int p) {
+			if (queued[p]) return;
+			queued[p] = true;
+			queue[(head + size) % n] = p;
+			++size;
+		}
+
+		int pop() {
+			int p = queue[head];
+			head = (head + 1) % n;
+			--size;
+			queued[p] = false;
+			return p;
+		}
+
+		void run() {
+			int steps = 0;
+			while (size > 0) {
+				if ((++steps & 0xff) == 0 && cancelled.getAsBoolean()) return;
+				int p = pop();
+				if (improveTwoOpt(p) || improveOrOpt(p)) push(p);
+			}
+		}
+
+		/**
+		 * Try to replace edges (a,b) and (c,d) with (a,c) and (b,d), where c is a near neighbor of a and b is
+		 * either side of a.
+		 */
+		boolean improveTwoOpt(int a) {
+			for (int side = 0; side < 2; ++side) {
+				int b = (side == 0) ? next(a) : prev(a);
+				double dab = distance(a, b);
+				for (int c : neighbors[a]) {
+					double dac = distance(a, c);
+					// neighbors are sorted, so nothing further along can pay for itself.
+					if (dac >= dab) break;
+					int d = (side == 0) ? next(c) : prev(c);
+					if (c == b || d == a) continue;
+
+					double delta = dac + distance(b, d) - dab - distance(c, d);
+					if (delta < -EPSILON) {
+						if (side == 0) move(a, b, c, d);
+						else move(b, a, d, c);
+						push(a);
+						push(b);
+						push(c);
+						push(d);
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Try to cut out the run of 1...MAX_SEGMENT points starting at s1 and put it back, either way round,
+		 * between a near neighbor of its ends and that neighbor's next or previous point.
+		 */
+		boolean improveOrOpt(int s1) {
+			int s2 = s1;
+			for (int length = 1; length <= MAX_SEGMENT; ++length, s2 = next(s2)) {
+				int p = prev(s1);
+				int q = next(s2);
+				double removeGain = distance(p, s1) + distance(s2, q) - distance(p, q);
+				if (removeGain <= EPSILON) continue;
+
+				for (int end = 0; end < 2; ++end) {
+					int e = (end == 0) ? s1 : s2;
+					for (int c : neighbors[e]) {
+						// the new edge to c alone already costs more than we saved.
+						if (distance(e, c) >= removeGain) break;
+						if (inSegment(c, s1, length)) continue;
+
+						for (int side = 0; side < 2; ++side) {
+							int d = (side == 0) ? next(c) : prev(c);
+							if (inSegment(d, s1, length)) continue;
+							// keep c before d in tour order.
+							int from = (side == 0) ? c : d;
+							int to = (side == 0) ? d : c;
+
+							double removed = distance(from, to) + removeGain;
+							double forward = distance(from, s1) + distance(s2, to);
+							double reversed = distance(from, s2) + distance(s1, to);
+							if (Math.min(forward, reversed) - removed < -EPSILON) {
+								moveSegment(p, s1, s2, q, from, to, forward <= reversed);
+								push(p);
+								push(q);
+								push(s1);
+								push(s2);
+								push(from);
+								push(to);
+								return true;
+							}
+						}
+					}
+				}
+			}
+			return false;
+		}
+
+		boolean inSegment(int p, int s1, int length) {
+			return ((pos[p] - pos[s1] + n) % n) < length;
+		}
+
+		/**
+		 * Take the run p,s1...s2,q and put s1...s2 between c and d, where c comes right before d.
+		 * Built from 2-opt moves: the first two leave the run reversed, the last flips it back if needed.
+		 */
+		void moveSegment(int p, int s1, int s2, int q, int c, int d, boolean forward) {
+			if (d == p) {
+				// c,p,s1...s2,q -> c,s2...s1,p,q
+				move(c, p, s2, q);
+			} else {
+				// p,s1...s2,q...c,d -> p,c...q,s2...s1,d
+				move(p, s1, c, d);
+				// -> p,q...c,s2...s1,d
+				if (c != q) move(p, c, q, s2);
+			}
+			if (forward) move(c, s2, s1, d);
+		}
+
+		/**
+		 * Replace edges (u1,u2) and (v1,v2) with (u1,v1) and (u2,v2) by reversing the path between them.
+		 * u2 must follow u1 in the same direction that v2 follows v1.
+		 */
+		void move(int u1, int u2, int v1, int v2) {
+			if (next(u1) == u2) reverse(u2, v1);
+			else reverse(u1, v2);
+		}
+
+		/**
+		 * Reverse the path from point a forward to point b.  If that is more than half the tour, reverse the rest
+		 * instead; the loop comes out the same, just walked the other way.
+		 */
+		void reverse(int a, int b) {
+			int i = pos[a];
+			int j = pos[b];
+			int length = (j - i + n) % n + 1;
+			if (length * 2 > n) {
+				int t = i;
+				i = (j + 1) % n;
+				j = (t - 1 + n) % n;
+				length = n - length;
+			}
+			for (int k = length / 2; k > 0; --k) {
+				int pi = tour[i];
+				int pj = tour[j];
+				tour[i] = pj;
+				pos[pj] = i;
+				tour[j] = pi;
+				pos[pi] = j;
+				if (++i == n) i = 0;
+				if (--j < 0) j = n - 1;
+			}
+		}
+
+		/**
+		 * Shake the tour by swapping pairs of short neighboring blocks at random places.
+		 */
+		void kick(int count) {
+			int limit = Math.min(MAX_KICK, n / 4);
+			int[] temp = new int[limit * 2];
+			for (int k = 0; k < count; ++k) {
+				int start = random.nextInt(n);
+				int lengthA = 1 + random.nextInt(limit);
+				int lengthB = 1 + random.nextInt(limit);
+				for (int i = 0; i < lengthA + lengthB; ++i) {
+					temp[i] = tour[(start + i) % n];
+				}
+				for (int i = 0; i < lengthB; ++i) {
+					place((start + i) % n, temp[lengthA + i]);
+				}
+				for (int i = 0; i < lengthA; ++i) {
+					place((start + lengthB + i) % n, temp[i]);
+				}
+			}
+		}
+
+		void place(int i, int p) {
+			tour[i] = p;
+			pos[p] = i;
+		}
+	}
+}
+
+/**
+ * This file is part of Makelangelo.
+ * <p>
+ * Makelangelo is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * Makelangelo is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with Makelangelo.  If not, see <http://www.gnu.org/licenses/>.
+ */
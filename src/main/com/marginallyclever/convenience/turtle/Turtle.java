@@ -196,6 +196,32 @@ public void forward(double stepSize) {
 		);
 	}
 
+	/**
+	 * Append a copy of another turtle's history and take on its final state.  Tool changes that would not change
+	 * the color are dropped, so turtles drawn separately can be joined without extra pen swaps.
+	 * @param t the turtle to append
+	 */
+	public void add(Turtle t) {
+		ColorRGB pendingColor = null;
+		for( TurtleMove m : t.history ) {
+			if(m.type == TurtleMoveType.TOOL_CHANGE) {
+				pendingColor = m.getColor();
+				continue;
+			}
+			if(pendingColor!=null) {
+				setColor(pendingColor);
+				pendingColor=null;
+			}
+			history.add(new TurtleMove(m));
+		}
+		if(pendingColor!=null) setColor(pendingColor);
+
+		turtleX = t.turtleX;
+		turtleY = t.turtleY;
+		setAngle(t.angle);
+		isUp = t.isUp;
+	}
+
 	/**
 	 * Calculate the limits of drawing lines in this turtle history
 	 * @param top maximum limits
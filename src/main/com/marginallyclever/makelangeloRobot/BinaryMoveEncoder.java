@@ -0,0 +1,163 @@
+package com.marginallyclever.makelangeloRobot;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Packs drawing commands into small binary frames for firmware that asks for them.  A straight move that would take
+ * 30-40 bytes of "N123 G0 X100.000 Y200.000;*45" takes about 11.
+ * <p>
+ * Every frame is
+ * <pre>
+ * SYNC, sequence (2 bytes), type, payload length, payload..., CRC (2 bytes)
+ * </pre>
+ * Multi-byte numbers are big endian.  The sequence is the low 16 bits of the line number, so the firmware can report
+ * a bad frame with BADLINENUM or BADCHECKSUM the same way it does for text.  The CRC is CRC-16/CCITT over everything
+ * between SYNC and the CRC.  SYNC is never the first byte of a text line, so text commands and frames can share one
+ * connection.
+ * <p>
+ * Plain G0 and G1 moves become move frames: X and Y in micrometers, as zig-zag varints.  The first move after a
+ * {@link #reset()} or a text frame is absolute, the rest are how far each goes from the one before.  Anything else is
+ * sent in a text frame as it is.
+ */
+public class BinaryMoveEncoder {
+	public static final int SYNC = 0xA5;
+	// moves.  the pen is not changed by a move frame, same as G0 and G1 in this app.
+	public static final int TYPE_MOVE_RELATIVE = 0x01;
+	public static final int TYPE_TRAVEL_RELATIVE = 0x02;
+	public static final int TYPE_MOVE_ABSOLUTE = 0x11;
+	public static final int TYPE_TRAVEL_ABSOLUTE = 0x12;
+	// any other command, as text.
+	public static final int TYPE_TEXT = 0x20;
+	// coordinates are sent in these units, the same precision as StringHelper.formatDouble.
+	public static final double UNITS_PER_MM = 1000;
+
+	// ask the firmware to accept frames.  firmware that can replies with HELLO_REPLY.
+	public static final String HELLO = "D20";
+	public static final String HELLO_REPLY = "D20 B1";
+
+	// where the last move frame went, in UNITS_PER_MM.
+	private long lastX, lastY;
+	private boolean hasLast = false;
+
+	/**
+	 * Forget the last position.  Call this whenever the firmware might not have seen the frame before the next one,
+	 * such as when drawing starts or restarts from some line.
+	 */
+	public void reset() {
+		hasLast = false;
+	}
+
+	/**
+	 * @param line one command, without line number or checksum.
+	 * @param lineNumber the line number the text version would carry.
+	 * @return the frame to send.
+	 */
+	public byte [] encode(String line,int lineNumber) {
+		ByteArrayOutputStream payload = new ByteArrayOutputStream();
+		int type = encodeMove(line,payload);
+		if(type==-1) {
+			payload.reset();
+			byte [] text = line.trim().getBytes(StandardCharsets.US_ASCII);
+			payload.write(text,0,text.length);
+			type = TYPE_TEXT;
+			// text can move the pen too (G0 with a feedrate, G2, G28...), so the next move can't be relative.
+			reset();
+		}
+		if(payload.size()>255) {
+			throw new IllegalArgumentException("Command too long for one frame: "+line);
+		}
+
+		ByteArrayOutputStream frame = new ByteArrayOutputStream(payload.size()+7);
+		frame.write(SYNC);
+		frame.write((lineNumber>>8) & 0xFF);
+		frame.write(lineNumber & 0xFF);
+		frame.write(type);
+		frame.write(payload.size());
+		byte [] body = payload.toByteArray();
+		frame.write(body,0,body.length);
+		byte [] bytes = frame.toByteArray();
+		int crc = crc16(bytes,1,bytes.length-1);
+		frame.write((crc>>8) & 0xFF);
+		frame.write(crc & 0xFF);
+		return frame.toByteArray();
+	}
+
+	/**
+	 * @return the frame type, or -1 if this is not a plain move.
+	 */
+	private int encodeMove(String line,ByteArrayOutputStream payload) {
+		String [] tokens = line.trim().split("\\s+");
+		if(tokens.length!=3) return -1;
+		boolean travel;
+		if(tokens[0].equals("G0") || tokens[0].equals("G00")) travel=false;
+		else if(tokens[0].equals("G1") || tokens[0].equals("G01")) travel=true;
+		else return -1;
+		if(!tokens[1].startsWith("X") || !tokens[2].startsWith("Y")) return -1;
+
+		long x, y;
+		try {
+			x = Math.round(Double.parseDouble(tokens[1].substring(1))*UNITS_PER_MM);
+			y = Math.round(Double.parseDouble(tokens[2].substring(1))*UNITS_PER_MM);
+		} catch(NumberFormatException e) {
+			return -1;
+		}
+
+		int type;
+		if(hasLast) {
+			writeVarint(payload,x-lastX);
+			writeVarint(payload,y-lastY);
+			type = travel ? TYPE_TRAVEL_RELATIVE : TYPE_MOVE_RELATIVE;
+		} else {
+			writeVarint(payload,x);
+			writeVarint(payload,y);
+			type = travel ? TYPE_TRAVEL_ABSOLUTE : TYPE_MOVE_ABSOLUTE;
+		}
+		lastX = x;
+		lastY = y;
+		hasLast = true;
+		return type;
+	}
+
+	// zig-zag so small negative numbers stay small, then 7 bits per byte, low bits first.  the high bit means more.
+	private static void writeVarint(ByteArrayOutputStream out,long v) {
+		long z = (v<<1) ^ (v>>63);
+		while((z & ~0x7FL)!=0) {
+			out.write((int)((z & 0x7F) | 0x80));
+			z >>>= 7;
+		}
+		out.write((int)z);
+	}
+
+	/**
+	 * CRC-16/CCITT: polynomial 0x1021, starting at 0xFFFF.
+	 */
+	public static int crc16(byte [] data,int offset,int length) {
+		int crc = 0xFFFF;
+		for(int i=offset;i<offset+length;++i) {
+			crc ^= (data[i] & 0xFF)<<8;
+			for(int b=0;b<8;++b) {
+				crc = ((crc & 0x8000)!=0) ? (crc<<1) ^ 0x1021 : crc<<1;
+			}
+			crc &= 0xFFFF;
+		}
+		return crc;
+	}
+}
+
+/**
+ * This file is part of Makelangelo.
+ * <p>
+ * Makelangelo is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * Makelangelo is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with Makelangelo.  If not, see <http://www.gnu.org/licenses/>.
+ */
@@ -61,6 +61,9 @@ public class MakelangeloRobot implements NetworkConnectionListener, ArtPipelineL
 	private boolean firmwareVersionChecked = false;
 	private final long expectedFirmwareVersion = 11; // must match the version in the the firmware EEPROM
 	private boolean hardwareVersionChecked = false;
+	// true once the firmware agrees to take drawing commands as binary frames.  set by the serial listener thread.
+	private volatile boolean sendBinary = false;
+	private BinaryMoveEncoder binaryEncoder = new BinaryMoveEncoder();
 
 	private MakelangeloRobotSettings settings = null;
 	private MakelangeloRobotPanel myPanel = null;
@@ -136,6 +139,7 @@ public void openConnection(NetworkConnection c) {
 		didSetHome = false;
 		firmwareVersionChecked = false;
 		hardwareVersionChecked = false;
+		sendBinary = false;
 		this.connection = c;
 		this.connection.addListener(this);
 		try {
@@ -227,9 +231,19 @@ public void dataAvailable(NetworkConnection arg0, String data) {
 			}
 		}
 
+		// does the firmware take binary frames?
+		if(!sendBinary && hardwareVersionChecked && data.lastIndexOf(BinaryMoveEncoder.HELLO_REPLY) >= 0) {
+			Log.message("Sending drawings as binary frames.");
+			sendBinary = true;
+		}
+
 		if (justNow && portConfirmed && firmwareVersionChecked && hardwareVersionChecked) {
 			// send whatever config settings I have for this machine.
 			sendConfig();
+			// offer to send binary frames.  firmware that can will say so.
+			if(settings.getHardwareProperties().canSendBinary()) {
+				sendLineToRobot(BinaryMoveEncoder.HELLO);
+			}
 
 			if (myPanel != null) {
 				String hardwareVersion = this.settings.getHardwareVersion();
@@ -296,6 +310,12 @@ private void notifyConnectionReady() {
 	}
 
 	public void lineError(NetworkConnection arg0, int lineNumber) {
+		if(sendBinary) {
+			// frames only carry the low 16 bits of the line number.  find the most recent line that matches.
+			lineNumber = drawingProgress - ((drawingProgress - lineNumber) & 0xFFFF);
+			// the firmware dropped that frame, so the next move can't be relative to it.
+			binaryEncoder.reset();
+		}
 		drawingProgress = lineNumber;
 
 		notifyLineError(lineNumber);
@@ -480,6 +500,17 @@ public void sendLineWithNumberAndChecksum(String line, int lineNumber) {
 		if (getConnection() == null || !isPortConfirmed() || !isRunning())
 			return;
 
+		if(sendBinary) {
+			rememberStatusChanges(line);
+			Log.message(line);
+			try {
+				getConnection().sendBytes(binaryEncoder.encode(line, lineNumber));
+			} catch (Exception e) {
+				Log.error(e.getMessage());
+			}
+			return;
+		}
+
 		line = "N" + lineNumber + " " + line;
 		if (!line.endsWith(";"))
 			line += ';';
@@ -543,6 +574,7 @@ public void startAt(int lineNumber) {
 
 		drawingProgress = lineNumber;
 		setLineNumber(lineNumber);
+		binaryEncoder.reset();
 		setRunning();
 		sendFileCommand();
 	}
@@ -591,6 +623,29 @@ public void commandFromLogPanel(String msg) {
 		sendLineToRobot(msg);
 	}
 
+	/**
+	 * remember important status changes.  Called for every command, however it is sent.
+	 * @param line the command, without line number or checksum.
+	 */
+	private void rememberStatusChanges(String line) {
+		if (line.startsWith(settings.getPenUpString())) {
+			rememberRaisedPen();
+		}
+		if (line.startsWith(settings.getPenDownString())) {
+			rememberLoweredPen();
+		}
+		if (line.startsWith("M17")) {
+			if( myPanel != null ) {
+				myPanel.motorsHaveBeenEngaged();
+			}
+		}
+		if (line.startsWith("M18")) {
+			if( myPanel != null ) {
+				myPanel.motorsHaveBeenDisengaged();
+			}
+		}
+	}
+
 	/**
 	 * Sends a single command the robot. Could be anything.
 	 *
@@ -613,24 +668,7 @@ public boolean sendLineToRobot(String line) {
 			return false;
 		}
 
-		// remember important status changes
-		
-		if (reportedline.startsWith(settings.getPenUpString())) {
-			rememberRaisedPen();
-		}
-		if (reportedline.startsWith(settings.getPenDownString())) {
-			rememberLoweredPen();
-		}
-		if (reportedline.startsWith("M17")) {
-			if( myPanel != null ) {
-				myPanel.motorsHaveBeenEngaged();
-			}
-		}
-		if (reportedline.startsWith("M18")) {
-			if( myPanel != null ) {
-				myPanel.motorsHaveBeenDisengaged();
-			}
-		}
+		rememberStatusChanges(reportedline);
 
 		Log.message(reportedline);
 		
@@ -34,6 +34,8 @@ public final class MakelangeloRobotSettings implements Serializable {
 
 	public static final String COMMAND_MOVE = "G0";
 	public static final String COMMAND_TRAVEL = "G1";
+	public static final String COMMAND_ARC_CW = "G2";
+	public static final String COMMAND_ARC_CCW = "G3";
 	public static final double INCH_TO_CM = 2.54;
 	public static final int FIRMWARE_MAX_SEGMENTS = 32;
 	
@@ -838,6 +840,22 @@ public void writeMoveTo(Writer out, double x, double y,boolean isUp,boolean zMov
 				+"\n");
 	}
 
+	/**
+	 * Draw an arc from wherever the pen is to (x,y), around (cx,cy).  Only for hardware that {@link MakelangeloHardwareProperties#canArc()}.
+	 */
+	public void writeArcTo(Writer out, double x, double y,double cx,double cy,boolean clockwise,boolean zMoved) throws IOException {
+		String command = clockwise ? COMMAND_ARC_CW : COMMAND_ARC_CCW;
+		if(zMoved) {
+			command += " F" + StringHelper.formatDouble(getPenDownFeedRate());
+		}
+		out.write(command
+				+" X" + StringHelper.formatDouble(x)
+				+" Y" + StringHelper.formatDouble(y)
+				+" I" + StringHelper.formatDouble(cx)
+				+" J" + StringHelper.formatDouble(cy)
+				+"\n");
+	}
+
 	// lift the pen
 	public void writePenUp(Writer out) throws IOException {
 		out.write(getPenUpString()+"\n");
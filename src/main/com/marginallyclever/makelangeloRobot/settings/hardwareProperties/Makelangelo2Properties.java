@@ -88,6 +88,16 @@ public boolean canAccelerate() {
 		return false;
 	}
 	
+	@Override
+	public boolean canArc() {
+		return true;
+	}
+	
+	@Override
+	public boolean canSendBinary() {
+		return true;
+	}
+	
 	@Override
 	public boolean canAutoHome() {
 		return false;
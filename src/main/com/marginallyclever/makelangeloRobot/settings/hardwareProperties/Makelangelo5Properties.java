@@ -53,6 +53,18 @@ public boolean canAccelerate() {
 	public float getWidth() { return 650; }
 	public float getHeight() { return 1000; }
 
+	@Override
+	public boolean canArc() {
+		// Marlin reads I and J relative to the start of the arc.
+		return false;
+	}
+
+	@Override
+	public boolean canSendBinary() {
+		// Marlin only speaks text.
+		return false;
+	}
+
 	@Override
 	public boolean canAutoHome() {
 		return true;
@@ -52,6 +52,18 @@ public boolean canAccelerate() {
 	public float getWidth() { return 3*12*25.4f; }
 	public float getHeight() { return 4*12*25.4f; }
 
+	@Override
+	public boolean canArc() {
+		// Marlin reads I and J relative to the start of the arc.
+		return false;
+	}
+
+	@Override
+	public boolean canSendBinary() {
+		// Marlin only speaks text.
+		return false;
+	}
+
 	@Override
 	public boolean canAutoHome() {
 		return true;
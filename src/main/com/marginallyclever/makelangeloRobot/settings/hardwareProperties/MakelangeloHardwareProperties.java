@@ -40,6 +40,12 @@ public interface MakelangeloHardwareProperties {
 	 */
 	public boolean canChangeHome();
 
+	// G2/G3 arcs, with I and J read the same way as X and Y (absolute in G90).
+	public boolean canArc();
+
+	// may drawing commands be sent as binary frames?  only if the firmware also agrees.  See BinaryMoveEncoder.
+	public boolean canSendBinary();
+
 	/**
 	 * @return default machine size, in mm
 	 */
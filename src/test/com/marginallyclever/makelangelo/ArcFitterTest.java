@@ -0,0 +1,84 @@
+package com.marginallyclever.makelangelo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import com.marginallyclever.convenience.ArcFitter;
+
+public class ArcFitterTest {
+	/**
+	 * @param sweep radians to go around.  positive is counter-clockwise.
+	 * @return {x[],y[]} of count+1 points on a circle at (cx,cy)
+	 */
+	private double [][] circle(double cx,double cy,double r,double start,double sweep,int count) {
+		double [] x = new double[count+1];
+		double [] y = new double[count+1];
+		for(int i=0;i<=count;++i) {
+			double a = start + sweep*i/count;
+			x[i] = cx + Math.cos(a)*r;
+			y[i] = cy + Math.sin(a)*r;
+		}
+		return new double[][] { x, y };
+	}
+
+	private void assertOneArc(double [][] p,boolean clockwise) {
+		ArrayList<ArcFitter.Piece> pieces = ArcFitter.fit(p[0], p[1], 0.01);
+		assertEquals(1, pieces.size());
+		ArcFitter.Piece arc = pieces.get(0);
+		assertTrue(arc.isArc);
+		assertEquals(p[0].length-1, arc.end);
+		assertEquals(clockwise, arc.clockwise);
+		assertEquals(10, arc.cx, 1e-6);
+		assertEquals(-5, arc.cy, 1e-6);
+	}
+
+	@Test
+	public void testCounterClockwise() {
+		assertOneArc(circle(10,-5,30,0.3,Math.PI/2,40),false);
+	}
+
+	@Test
+	public void testClockwise() {
+		assertOneArc(circle(10,-5,30,0.3,-Math.PI/2,40),true);
+	}
+
+	/**
+	 * a whole circle can't be one arc, its start and end are the same point.  it should still be all arcs, each at
+	 * most half way round, that end where the circle does.
+	 */
+	@Test
+	public void testFullCircle() {
+		double [][] p = circle(10,-5,30,0,Math.PI*2,360);
+		ArrayList<ArcFitter.Piece> pieces = ArcFitter.fit(p[0], p[1], 0.01);
+		assertTrue(pieces.size()>=2 && pieces.size()<=3);
+		int start = 0;
+		for(ArcFitter.Piece piece : pieces) {
+			assertTrue(piece.isArc);
+			assertFalse(piece.clockwise);
+			assertTrue(piece.end-start<=180);
+			assertEquals(10, piece.cx, 1e-6);
+			assertEquals(-5, piece.cy, 1e-6);
+			start = piece.end;
+		}
+		assertEquals(360, start);
+	}
+
+	@Test
+	public void testStraightLineIsLines() {
+		double [] x = new double[20];
+		double [] y = new double[20];
+		for(int i=0;i<x.length;++i) {
+			x[i] = i;
+			y[i] = i*0.5;
+		}
+		ArrayList<ArcFitter.Piece> pieces = ArcFitter.fit(x, y, 0.01);
+		assertEquals(19, pieces.size());
+		for(ArcFitter.Piece piece : pieces) assertFalse(piece.isArc);
+	}
+}
+
@@ -0,0 +1,92 @@
+package com.marginallyclever.makelangelo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import com.marginallyclever.artPipeline.ArtPipeline;
+import com.marginallyclever.convenience.ColorRGB;
+import com.marginallyclever.convenience.turtle.Turtle;
+import com.marginallyclever.convenience.turtle.TurtleMove;
+import com.marginallyclever.convenience.turtle.TurtleMoveType;
+import com.marginallyclever.makelangeloRobot.settings.MakelangeloRobotSettings;
+
+public class ArtPipelineTest {
+	/**
+	 * @return every pen-down segment as {x0,y0,x1,y1,color}
+	 */
+	private ArrayList<double[]> drawnSegments(Turtle turtle) {
+		ArrayList<double[]> segments = new ArrayList<double[]>();
+		TurtleMove last = null;
+		int color = 0;
+		for(TurtleMove m : turtle.history) {
+			if(m.type==TurtleMoveType.TOOL_CHANGE) {
+				color = m.getColor().toInt();
+				continue;
+			}
+			if(m.type==TurtleMoveType.DRAW && last!=null) {
+				segments.add(new double[] { last.x, last.y, m.x, m.y, color });
+			}
+			last = m;
+		}
+		return segments;
+	}
+
+	/**
+	 * pieces of one line drawn far apart in the history, some touching and some overlapping, become one stroke.
+	 * the stroke drawn in between is not touched.
+	 */
+	@Test
+	public void testMergeCollinearAcrossHistory() {
+		Turtle turtle = new Turtle();
+		turtle.jumpTo(0,0);
+		turtle.moveTo(10,0);
+		turtle.jumpTo(0,5);
+		turtle.moveTo(5,10);
+		turtle.jumpTo(10,0);
+		turtle.moveTo(20,0);
+		turtle.jumpTo(25,0);
+		turtle.moveTo(15,0);
+
+		new ArtPipeline().mergeCollinear(turtle, new MakelangeloRobotSettings());
+
+		ArrayList<double[]> segments = drawnSegments(turtle);
+		assertEquals(2, segments.size());
+		double [] merged = segments.get(0);
+		assertTrue(merged[0]==0 && merged[1]==0 && merged[2]==25 && merged[3]==0);
+		double [] other = segments.get(1);
+		assertTrue(other[0]==0 && other[1]==5 && other[2]==5 && other[3]==10);
+	}
+
+	/**
+	 * red over and beside blue on one line: the red joins up, the blue stays as it was.
+	 */
+	@Test
+	public void testMergeCollinearKeepsColorsApart() {
+		ColorRGB red = new ColorRGB(255,0,0);
+		ColorRGB blue = new ColorRGB(0,0,255);
+		Turtle turtle = new Turtle();
+		turtle.setColor(red);
+		turtle.jumpTo(0,0);
+		turtle.moveTo(10,0);
+		turtle.setColor(blue);
+		turtle.moveTo(20,0);
+		turtle.setColor(red);
+		turtle.jumpTo(10,0);
+		turtle.moveTo(20,0);
+
+		new ArtPipeline().mergeCollinear(turtle, new MakelangeloRobotSettings());
+
+		ArrayList<double[]> segments = drawnSegments(turtle);
+		assertEquals(2, segments.size());
+		double [] r = segments.get(0);
+		assertEquals(red.toInt(), (int)r[4]);
+		assertTrue(r[0]==0 && r[2]==20);
+		double [] b = segments.get(1);
+		assertEquals(blue.toInt(), (int)b[4]);
+		assertTrue(b[0]==10 && b[2]==20);
+	}
+}
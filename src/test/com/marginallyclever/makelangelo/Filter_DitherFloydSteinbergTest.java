@@ -0,0 +1,75 @@
+package com.marginallyclever.makelangelo;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.marginallyclever.artPipeline.TransformedImage;
+import com.marginallyclever.artPipeline.imageFilters.Filter_DitherFloydSteinberg;
+import com.marginallyclever.artPipeline.imageFilters.ImageFilter;
+
+public class Filter_DitherFloydSteinbergTest {
+	private BufferedImage makeNoise(int w,int h) {
+		BufferedImage bi = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+		Random r = new Random(1234);
+		for (int y = 0; y < h; ++y) {
+			for (int x = 0; x < w; ++x) {
+				bi.setRGB(x, y, r.nextInt(0xffffff));
+			}
+		}
+		return bi;
+	}
+
+	/**
+	 * the wavefront pass must match a plain single threaded left-to-right scan, pixel for pixel.
+	 */
+	@Test
+	public void testWavefrontMatchesSerialScan() {
+		final int w = 173;
+		final int h = 91;
+		BufferedImage bi = makeNoise(w, h);
+
+		// reference: the serial pass with every row scanned left to right.
+		long tone = 0;
+		for (int y = 0; y < h; ++y) {
+			for (int x = 0; x < w; ++x) {
+				tone += ImageFilter.decode32bit(bi.getRGB(x, y));
+			}
+		}
+		tone /= (w * h);
+		int[] expected = new int[w * h];
+		int[] error = new int[w];
+		int[] nexterror = new int[w];
+		for (int y = 0; y < h; ++y) {
+			for (int x = 0; x < w; ++x) nexterror[x] = 0;
+			for (int x = 0; x < w; ++x) {
+				int oldPixel = ImageFilter.decode32bit(bi.getRGB(x, y)) + error[x];
+				int newPixel = (Math.min(Math.max(oldPixel, 0), 255) > tone) ? 255 : 0;
+				expected[y * w + x] = ImageFilter.encode32bit(newPixel);
+				int quant_error = oldPixel - newPixel;
+				nexterror[x] += 5.0 / 16.0 * quant_error;
+				if (x + 1 < w) {
+					error[x + 1] += 7.0 / 16.0 * quant_error;
+					nexterror[x + 1] += 1.0 / 16.0 * quant_error;
+				}
+				if (x - 1 >= 0) {
+					nexterror[x - 1] += 3.0 / 16.0 * quant_error;
+				}
+			}
+			int[] tmp = error;
+			error = nexterror;
+			nexterror = tmp;
+		}
+
+		for (int threads : new int[] { 1, 2, 7 }) {
+			Filter_DitherFloydSteinberg fs = new Filter_DitherFloydSteinberg(true);
+			BufferedImage out = fs.filterWavefront(new TransformedImage(bi), threads).getSourceImage();
+			for (int i = 0; i < expected.length; ++i) {
+				assertEquals("threads=" + threads + " pixel " + i, expected[i], out.getRGB(i % w, i / w));
+			}
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package com.marginallyclever.makelangelo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+
+import org.junit.Test;
+
+import com.marginallyclever.artPipeline.TransformedImage;
+import com.marginallyclever.artPipeline.imageFilters.Filter_DitherOrdered;
+
+public class Filter_DitherOrderedTest {
+	/**
+	 * a horizontal grey ramp should come out roughly half black, whatever the pattern and across tile seams.
+	 */
+	@Test
+	public void testRampKeepsTone() {
+		final int w = Filter_DitherOrdered.TILE_SIZE * 2 + 17;
+		final int h = Filter_DitherOrdered.TILE_SIZE + 5;
+		BufferedImage bi = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < h; ++y) {
+			for (int x = 0; x < w; ++x) {
+				int v = x * 255 / (w - 1);
+				bi.setRGB(x, y, (v << 16) | (v << 8) | v);
+			}
+		}
+
+		for (Filter_DitherOrdered.Pattern p : Filter_DitherOrdered.Pattern.values()) {
+			TransformedImage result = new Filter_DitherOrdered(p).filter(new TransformedImage(bi));
+			BufferedImage out = result.getSourceImage();
+			int black = 0;
+			for (int y = 0; y < h; ++y) {
+				for (int x = 0; x < w; ++x) {
+					int v = out.getRGB(x, y) & 0xff;
+					assertTrue(v == 0 || v == 255);
+					if (v == 0) ++black;
+				}
+			}
+			assertEquals(p.toString(), 0.5, (double)black / (double)(w * h), 0.02);
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package com.marginallyclever.makelangelo;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.image.BufferedImage;
+
+import org.junit.Test;
+
+import com.marginallyclever.convenience.Histogram;
+
+public class HistogramTest {
+	/**
+	 * bins must not wrap at 65535 and every image type must count the same.
+	 */
+	@Test
+	public void testLargeFlatImage() {
+		final int w = 400;
+		final int h = 300;
+		int [] types = {
+			BufferedImage.TYPE_INT_RGB,
+			BufferedImage.TYPE_INT_ARGB,
+			BufferedImage.TYPE_3BYTE_BGR,
+			BufferedImage.TYPE_4BYTE_ABGR,
+			BufferedImage.TYPE_INT_BGR,
+		};
+		for (int type : types) {
+			BufferedImage img = new BufferedImage(w, h, type);
+			for (int y = 0; y < h; ++y) {
+				for (int x = 0; x < w; ++x) {
+					img.setRGB(x, y, (x < w/2) ? 0xff306090 : 0xff000000);
+				}
+			}
+
+			Histogram hist = new Histogram();
+			hist.getRGBHistogramOf(img);
+			assertEquals("type "+type, w*h/2, hist.red[0x30]);
+			assertEquals("type "+type, w*h/2, hist.green[0x60]);
+			assertEquals("type "+type, w*h/2, hist.blue[0x90]);
+			assertEquals("type "+type, w*h/2, hist.blue[0]);
+
+			hist.getGreyHistogramOf(img);
+			assertEquals("type "+type, w*h/2, hist.red[(0x30+0x60+0x90)/3]);
+			assertEquals("type "+type, w*h/2, hist.red[0]);
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package com.marginallyclever.makelangelo;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.image.BufferedImage;
+
+import org.junit.Test;
+
+import com.marginallyclever.artPipeline.PolarImage;
+import com.marginallyclever.artPipeline.TransformedImage;
+
+public class PolarImageTest {
+	/**
+	 * rings and spokes should read back the same intensity as sampling the image directly.
+	 */
+	@Test
+	public void testMatchesImage() {
+		final int w = 200, h = 150;
+		BufferedImage bi = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < h; ++y) {
+			for (int x = 0; x < w; ++x) {
+				// big flat squares, so being a fraction of a pixel off doesn't matter.
+				int v = (((x / 20) + (y / 20)) % 2 == 0) ? 0 : 255;
+				bi.setRGB(x, y, (v << 16) | (v << 8) | v);
+			}
+		}
+		TransformedImage img = new TransformedImage(bi);
+		PolarImage polar = new PolarImage(img, 5, -3, 60);
+
+		int misses = 0, total = 0;
+		for (double r = 0; r < 60; r += 1.7) {
+			for (double a = -Math.PI; a < Math.PI * 3; a += 0.05) {
+				double x = 5 + Math.cos(a) * r;
+				double y = -3 + Math.sin(a) * r;
+				if (polar.sample(r, a) != img.sample1x1(x, y)) ++misses;
+				++total;
+			}
+		}
+		// only points right on the edge of a square may land on the other side.
+		assertEquals(0, (double) misses / total, 0.05);
+		assertEquals(255, polar.sample(61, 0));
+	}
+
+	/**
+	 * centered off the corner of the paper, only the quarter that crosses the paper is kept, and it still matches.
+	 */
+	@Test
+	public void testCornerOfPaper() {
+		final int w = 200, h = 150;
+		BufferedImage bi = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < h; ++y) {
+			for (int x = 0; x < w; ++x) {
+				int v = (((x / 20) + (y / 20)) % 2 == 0) ? 0 : 255;
+				bi.setRGB(x, y, (v << 16) | (v << 8) | v);
+			}
+		}
+		TransformedImage img = new TransformedImage(bi);
+		// the paper is the top right quarter of the image, the center is below and left of it.
+		PolarImage polar = new PolarImage(img, -10, -10, 1000, 0, 0, 100, 75);
+
+		int misses = 0, total = 0;
+		for (double x = 0.5; x < 100; x += 1.3) {
+			for (double y = 0.5; y < 75; y += 1.3) {
+				double r = Math.hypot(x + 10, y + 10);
+				double a = Math.atan2(y + 10, x + 10);
+				if (polar.sample(r, a) != img.sample1x1(x, y)) ++misses;
+				if (polar.sample(r, a + Math.PI * 2) != img.sample1x1(x, y)) ++misses;
+				total += 2;
+			}
+		}
+		assertEquals(0, (double) misses / total, 0.05);
+		// behind the center, and inside the nearest corner, is off the paper.
+		assertEquals(255, polar.sample(50, Math.PI * 1.25));
+		assertEquals(255, polar.sample(5, Math.PI * 0.25));
+	}
+}
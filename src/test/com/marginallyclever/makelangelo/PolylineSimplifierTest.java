@@ -0,0 +1,65 @@
+package com.marginallyclever.makelangelo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import com.marginallyclever.convenience.ColorRGB;
+import com.marginallyclever.convenience.PolylineSimplifier;
+import com.marginallyclever.convenience.turtle.Turtle;
+import com.marginallyclever.convenience.turtle.TurtleMove;
+import com.marginallyclever.convenience.turtle.TurtleMoveType;
+
+public class PolylineSimplifierTest {
+	/**
+	 * bumps smaller than epsilon go, corners stay.
+	 */
+	@Test
+	public void testRamerDouglasPeucker() {
+		double [] x = { 0, 5, 10, 10, 9.99, 10, 0 };
+		double [] y = { 0, 0.01, 0, 5, 7, 10, 10 };
+		int [] keep = PolylineSimplifier.ramerDouglasPeucker(x, y, 0.1);
+		int [] expected = { 0, 2, 5, 6 };
+		assertEquals(expected.length, keep.length);
+		for(int i=0;i<expected.length;++i) assertEquals(expected[i], keep[i]);
+	}
+
+	/**
+	 * only pen-down points are dropped.  travels and tool changes stay where they were.
+	 */
+	@Test
+	public void testSimplifyKeepsTravelsAndToolChanges() {
+		Turtle turtle = new Turtle();
+		turtle.setColor(new ColorRGB(255,0,0));
+		turtle.jumpTo(0,0);
+		for(int i=1;i<=10;++i) turtle.moveTo(i, (i%2)*0.01);
+		turtle.jumpTo(50,50);
+		turtle.setColor(new ColorRGB(0,0,255));
+		turtle.moveTo(60,50);
+		turtle.moveTo(70,50.01);
+		turtle.moveTo(80,50);
+		turtle.penUp();
+		turtle.moveTo(0,0);
+
+		ArrayList<TurtleMove> before = new ArrayList<TurtleMove>();
+		for(TurtleMove m : turtle.history) {
+			if(m.type!=TurtleMoveType.DRAW) before.add(m);
+		}
+
+		PolylineSimplifier.simplify(turtle, 0.1);
+
+		ArrayList<TurtleMove> after = new ArrayList<TurtleMove>();
+		int draws = 0;
+		for(TurtleMove m : turtle.history) {
+			if(m.type!=TurtleMoveType.DRAW) after.add(m);
+			else ++draws;
+		}
+		assertEquals(before.size(), after.size());
+		for(int i=0;i<before.size();++i) assertTrue(before.get(i)==after.get(i));
+		// one stroke from the travel at 0,0.  one from the first point after the tool change.
+		assertEquals(1+2, draws);
+	}
+}
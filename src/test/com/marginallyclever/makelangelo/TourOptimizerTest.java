@@ -0,0 +1,82 @@
+package com.marginallyclever.makelangelo;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.marginallyclever.convenience.TourOptimizer;
+
+public class TourOptimizerTest {
+	private static void randomPoints(Random random, double[] x, double[] y) {
+		for (int i = 0; i < x.length; ++i) {
+			x[i] = random.nextDouble() * 100;
+			y[i] = random.nextDouble() * 100;
+		}
+	}
+
+	/**
+	 * a scrambled tour of random points should come back as a much shorter tour that still visits every point once.
+	 */
+	@Test
+	public void testRandomTourGetsShorter() {
+		final int n = 2000;
+		Random random = new Random(1234);
+		double[] x = new double[n];
+		double[] y = new double[n];
+		int[] tour = new int[n];
+		randomPoints(random, x, y);
+		for (int i = 0; i < n; ++i) tour[i] = i;
+		for (int i = n - 1; i > 0; --i) {
+			int j = random.nextInt(i + 1);
+			int t = tour[i];
+			tour[i] = tour[j];
+			tour[j] = t;
+		}
+
+		TourOptimizer optimizer = new TourOptimizer(x, y);
+		optimizer.setWorkers(2);
+		int[] result = optimizer.optimize(tour);
+
+		assertVisitsAll(result, n);
+
+		// a good tour through n uniform points in a square of side L is about 0.7124*sqrt(n*L*L).
+		double expected = 0.7124 * Math.sqrt(n * 100.0 * 100.0);
+		double len = optimizer.getTourLength(result);
+		assertTrue("length " + len, len < expected * 1.25);
+	}
+
+	/**
+	 * both starting tours visit every point once, the Hilbert curve walk is not much longer than greedy, and
+	 * seedTour() picks the shorter of the two.
+	 */
+	@Test
+	public void testSeedTours() {
+		final int n = 1000;
+		double[] x = new double[n];
+		double[] y = new double[n];
+		randomPoints(new Random(n), x, y);
+		TourOptimizer optimizer = new TourOptimizer(x, y);
+
+		int[] hilbert = optimizer.hilbertTour();
+		int[] greedy = optimizer.greedyTour();
+		assertVisitsAll(hilbert, n);
+		assertVisitsAll(greedy, n);
+
+		double hilbertLen = optimizer.getTourLength(hilbert);
+		double greedyLen = optimizer.getTourLength(greedy);
+		// the curve walk is typically ~10% longer than greedy, but much faster to build.
+		assertTrue("hilbert " + hilbertLen + " greedy " + greedyLen, hilbertLen < greedyLen * 1.5);
+		assertTrue(optimizer.getTourLength(optimizer.seedTour()) == Math.min(hilbertLen, greedyLen));
+	}
+
+	private static void assertVisitsAll(int[] tour, int n) {
+		assertTrue(tour.length == n);
+		boolean[] seen = new boolean[n];
+		for (int p : tour) {
+			assertTrue(!seen[p]);
+			seen[p] = true;
+		}
+	}
+}
@@ -0,0 +1,178 @@
+package com.marginallyclever.makelangeloRobot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class BinaryMoveEncoderTest {
+	/**
+	 * Reads frames the way firmware would.  Keeps the pen position in micrometers and answers each frame like the
+	 * text protocol does.
+	 */
+	static class SimulatedFirmware {
+		long x, y;
+		int expectedLine = 0;
+		List<String> textReceived = new ArrayList<String>();
+
+		String receive(byte [] frame) {
+			if((frame[0] & 0xFF) != BinaryMoveEncoder.SYNC) return "NOSYNC";
+			int seq = ((frame[1] & 0xFF)<<8) | (frame[2] & 0xFF);
+			int type = frame[3] & 0xFF;
+			int length = frame[4] & 0xFF;
+			int crc = ((frame[5+length] & 0xFF)<<8) | (frame[6+length] & 0xFF);
+			if(crc != BinaryMoveEncoder.crc16(frame, 1, 4+length)) return "BADCHECKSUM "+expectedLine;
+			if(seq != (expectedLine & 0xFFFF)) return "BADLINENUM "+expectedLine;
+
+			int [] pos = { 5 };
+			switch(type) {
+			case BinaryMoveEncoder.TYPE_MOVE_ABSOLUTE:
+			case BinaryMoveEncoder.TYPE_TRAVEL_ABSOLUTE:
+				x = readVarint(frame,pos);
+				y = readVarint(frame,pos);
+				break;
+			case BinaryMoveEncoder.TYPE_MOVE_RELATIVE:
+			case BinaryMoveEncoder.TYPE_TRAVEL_RELATIVE:
+				x += readVarint(frame,pos);
+				y += readVarint(frame,pos);
+				break;
+			case BinaryMoveEncoder.TYPE_TEXT:
+				String text = new String(frame, 5, length, StandardCharsets.US_ASCII);
+				textReceived.add(text);
+				for(String t : text.split(" ")) {
+					if(t.startsWith("X")) x = Math.round(Double.parseDouble(t.substring(1))*1000);
+					if(t.startsWith("Y")) y = Math.round(Double.parseDouble(t.substring(1))*1000);
+				}
+				break;
+			default:
+				return "UNKNOWN";
+			}
+			++expectedLine;
+			return "> ";
+		}
+
+		static long readVarint(byte [] data,int [] pos) {
+			long z = 0;
+			int shift = 0;
+			int b;
+			do {
+				b = data[pos[0]++] & 0xFF;
+				z |= (long)(b & 0x7F) << shift;
+				shift += 7;
+			} while((b & 0x80) != 0);
+			return (z >>> 1) ^ -(z & 1);
+		}
+	}
+
+	private List<String> makeDrawing(int count) {
+		List<String> lines = new ArrayList<String>();
+		lines.add("M6 T16711680");
+		lines.add("G1 F3000 X-200.000 Y300.000");
+		for(int i=0;i<count;++i) {
+			double a = i*0.01;
+			double r = 200-i*0.001;
+			lines.add("G0 X"+String.format(java.util.Locale.US,"%.3f",r*Math.cos(a))
+					+" Y"+String.format(java.util.Locale.US,"%.3f",r*Math.sin(a)));
+			if(i%1000==999) lines.add("G2 X1.000 Y2.000 I0.000 J0.000");
+		}
+		return lines;
+	}
+
+	private long [] lastPosition(List<String> lines) {
+		long [] p = new long[2];
+		for(String line : lines) {
+			for(String t : line.split(" ")) {
+				if(t.startsWith("X")) p[0] = Math.round(Double.parseDouble(t.substring(1))*1000);
+				if(t.startsWith("Y")) p[1] = Math.round(Double.parseDouble(t.substring(1))*1000);
+			}
+		}
+		return p;
+	}
+
+	/**
+	 * every line arrives, moves land where the text would put them, and the frames are much smaller than the text.
+	 * Long enough for the sequence number to wrap.
+	 */
+	@Test
+	public void testDrawingArrives() {
+		List<String> lines = makeDrawing(70000);
+		BinaryMoveEncoder encoder = new BinaryMoveEncoder();
+		SimulatedFirmware firmware = new SimulatedFirmware();
+		long binaryBytes = 0;
+		long textBytes = 0;
+		for(int i=0;i<lines.size();++i) {
+			byte [] frame = encoder.encode(lines.get(i), i);
+			binaryBytes += frame.length;
+			textBytes += ("N"+i+" "+lines.get(i)+";*123\n").length();
+			assertEquals("> ", firmware.receive(frame));
+		}
+		long [] expected = lastPosition(lines);
+		assertEquals(expected[0], firmware.x);
+		assertEquals(expected[1], firmware.y);
+		assertEquals(lines.size(), firmware.expectedLine);
+		assertTrue(firmware.textReceived.contains("M6 T16711680"));
+		assertTrue(firmware.textReceived.contains("G2 X1.000 Y2.000 I0.000 J0.000"));
+		assertTrue("binary "+binaryBytes+" text "+textBytes, binaryBytes*2 < textBytes);
+	}
+
+	/**
+	 * a text command can move the pen.  the move after it must not be measured from the move before it.
+	 */
+	@Test
+	public void testRelativeMoveAfterTextMove() {
+		String [] lines = {
+			"G0 X0.000 Y0.000",
+			"G0 F3000 X10.000 Y10.000",
+			"G0 X11.000 Y10.000",
+			"G2 X20.000 Y10.000 I15.500 J10.000",
+			"G0 X21.000 Y12.000",
+		};
+		BinaryMoveEncoder encoder = new BinaryMoveEncoder();
+		SimulatedFirmware firmware = new SimulatedFirmware();
+		for(int i=0;i<3;++i) {
+			assertEquals("> ", firmware.receive(encoder.encode(lines[i], i)));
+		}
+		assertEquals(11000, firmware.x);
+		assertEquals(10000, firmware.y);
+		for(int i=3;i<lines.length;++i) {
+			assertEquals("> ", firmware.receive(encoder.encode(lines[i], i)));
+		}
+		assertEquals(21000, firmware.x);
+		assertEquals(12000, firmware.y);
+	}
+
+	/**
+	 * a damaged frame is refused.  Resending from that line after a reset puts the pen back on course.
+	 */
+	@Test
+	public void testResendAfterBadFrame() {
+		List<String> lines = makeDrawing(500);
+		BinaryMoveEncoder encoder = new BinaryMoveEncoder();
+		SimulatedFirmware firmware = new SimulatedFirmware();
+		int i = 0;
+		boolean damaged = false;
+		while(i<lines.size()) {
+			byte [] frame = encoder.encode(lines.get(i), i);
+			if(i==250 && !damaged) {
+				frame[6] ^= 0x10;
+				damaged = true;
+			}
+			String reply = firmware.receive(frame);
+			if(reply.startsWith("BADCHECKSUM ")) {
+				i = Integer.parseInt(reply.substring("BADCHECKSUM ".length()));
+				encoder.reset();
+				continue;
+			}
+			assertEquals("> ", reply);
+			++i;
+		}
+		assertTrue(damaged);
+		long [] expected = lastPosition(lines);
+		assertEquals(expected[0], firmware.x);
+		assertEquals(expected[1], firmware.y);
+	}
+}